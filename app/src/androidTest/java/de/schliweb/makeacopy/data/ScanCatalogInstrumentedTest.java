@@ -0,0 +1,146 @@
+package de.schliweb.makeacopy.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Verifies the SQLite registry store on a device:
+ * - The JSON registry (snapshot and journal) is imported once and its files are renamed to *.migrated
+ * - Imported texts are backfilled into the full-text index
+ * - Updating an entry keeps its row id, so its text stays attached
+ * - Removing an entry removes its text row
+ */
+@RunWith(AndroidJUnit4.class)
+public class ScanCatalogInstrumentedTest {
+    private static final String DB = "scan_catalog_test.db";
+
+    private Context ctx;
+    private File dir;
+    private ScanCatalog catalog;
+
+    @Before
+    public void setUp() {
+        ctx = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        ctx.deleteDatabase(DB);
+        dir = new File(ctx.getCacheDir(), "scan_catalog_test");
+        deleteRecursively(dir);
+        assertTrue(dir.mkdirs());
+    }
+
+    @After
+    public void tearDown() {
+        if (catalog != null) catalog.close();
+        ctx.deleteDatabase(DB);
+        deleteRecursively(dir);
+    }
+
+    @Test
+    public void testImportLegacyMigratesEntriesAndText() throws Exception {
+        File index = new File(dir, "completed_scans.json");
+        File scanDir = new File(dir, "a");
+        assertTrue(scanDir.mkdirs());
+        File text = new File(scanDir, "text.txt");
+        try (FileOutputStream fos = new FileOutputStream(text)) {
+            fos.write("Invoice number 4711".getBytes(StandardCharsets.UTF_8));
+        }
+        // "a" ends up in the snapshot, "b" only in the journal
+        JournalRegistryStore legacy = new JournalRegistryStore(index);
+        legacy.commit(Collections.singletonList(entry("a", 1000L, text.getPath())), Collections.emptyList());
+        legacy.compact(legacy.loadAll());
+        legacy.commit(Collections.singletonList(entry("b", 2000L, null)), Collections.emptyList());
+        File journal = JournalRegistryStore.journalFileFor(index);
+        assertTrue(index.exists());
+        assertTrue(journal.exists());
+
+        catalog = ScanCatalog.open(ctx, index, DB);
+        assertEquals(2, catalog.loadAll().size());
+        assertFalse(index.exists());
+        assertFalse(journal.exists());
+        assertTrue(new File(dir, index.getName() + ".migrated").exists());
+        assertTrue(new File(dir, journal.getName() + ".migrated").exists());
+
+        // The backfill runs on a background thread
+        List<String> hits = Collections.emptyList();
+        for (int i = 0; i < 50 && hits.isEmpty(); i++) {
+            Thread.sleep(100);
+            hits = catalog.search("invoice 4711", 10);
+        }
+        assertEquals(Collections.singletonList("a"), hits);
+
+        // A second open does not import again
+        catalog.close();
+        catalog = ScanCatalog.open(ctx, index, DB);
+        assertEquals(2, catalog.loadAll().size());
+    }
+
+    @Test
+    public void testUpdateKeepsRowIdAndText() throws Exception {
+        catalog = ScanCatalog.open(ctx, new File(dir, "none.json"), DB);
+        catalog.commit(Collections.singletonList(entry("a", 1000L, null)), Collections.emptyList());
+        catalog.setText("a", "Quarterly report");
+        long rowId = rowIdOf("a");
+
+        CompletedScanEntry updated = entry("a", 1000L, null);
+        updated.rotationDeg = 90;
+        catalog.commit(Collections.singletonList(updated), Collections.emptyList());
+
+        assertEquals(rowId, rowIdOf("a"));
+        assertEquals(90, catalog.loadAll().get(0).rotationDeg);
+        assertEquals(Collections.singletonList("a"), catalog.search("quarterly", 10));
+        assertEquals(Collections.singletonList("a"), catalog.search("rep", 10));
+        assertTrue(catalog.search("invoice", 10).isEmpty());
+    }
+
+    @Test
+    public void testRemoveDeletesTextRow() throws Exception {
+        catalog = ScanCatalog.open(ctx, new File(dir, "none.json"), DB);
+        catalog.commit(Arrays.asList(entry("a", 1000L, null), entry("b", 2000L, null)), Collections.emptyList());
+        catalog.setText("a", "common alpha");
+        catalog.setText("b", "common beta");
+        assertEquals(Arrays.asList("b", "a"), catalog.search("common", 10));
+
+        catalog.commit(Collections.emptyList(), Collections.singletonList("a"));
+
+        assertEquals(Collections.singletonList("b"), catalog.search("common", 10));
+        try (Cursor c = catalog.getReadableDatabase().rawQuery("SELECT COUNT(*) FROM scan_text", null)) {
+            assertTrue(c.moveToFirst());
+            assertEquals(1, c.getInt(0));
+        }
+    }
+
+    private long rowIdOf(String id) {
+        try (Cursor c = catalog.getReadableDatabase().rawQuery("SELECT _id FROM scans WHERE id = ?", new String[]{id})) {
+            assertTrue(c.moveToFirst());
+            return c.getLong(0);
+        }
+    }
+
+    private static CompletedScanEntry entry(String id, long createdAt, String textPath) {
+        return new CompletedScanEntry(id, "/nonexistent/" + id + "/page.jpg", 0, textPath,
+                textPath != null ? "plain" : null, null, createdAt, 100, 200);
+    }
+
+    private static void deleteRecursively(File f) {
+        File[] children = f.listFiles();
+        if (children != null) {
+            for (File c : children) deleteRecursively(c);
+        }
+        //noinspection ResultOfMethodCallIgnored
+        f.delete();
+    }
+}
@@ -0,0 +1,142 @@
+package de.schliweb.makeacopy.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Log;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs {@link OCRHelper#runBatch} over pages rendered from the bundled test PDFs plus one undecodable
+ * page and checks the per-page callbacks and the written result files.
+ * <p>
+ * The pages are first recognized one by one on the same warm engine; the batch time is logged against
+ * that summed recognition time (tag "OcrBatch"). Timings are informational.
+ */
+@RunWith(AndroidJUnit4.class)
+public class OcrBatchInstrumentedTest {
+
+    private static final String TAG = "OcrBatch";
+    private static final String[] PAGES = {
+            "test_pdfs/simple_line.pdf",
+            "test_pdfs/multi_line.pdf",
+            "test_pdfs/multi_column.pdf"
+    };
+    // Position of the undecodable page, between readable ones
+    private static final int BROKEN_INDEX = 1;
+
+    @Test
+    public void batchDeliversPagesInOrderAndWritesResults() throws Exception {
+        Context ctx = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        File root = new File(ctx.getCacheDir(), "ocr_batch_test");
+        deleteRecursively(root);
+        File in = new File(root, "in");
+        assertTrue("Could not create " + in, in.mkdirs());
+
+        List<OCRHelper.BatchPage> pages = new ArrayList<>();
+        List<Bitmap> rendered = new ArrayList<>();
+        for (String asset : PAGES) {
+            if (pages.size() == BROKEN_INDEX) {
+                File broken = new File(in, "broken.png");
+                Files.write(broken.toPath(), "not an image".getBytes(StandardCharsets.UTF_8));
+                pages.add(OCRHelper.BatchPage.ofFile("broken", broken.getAbsolutePath(), new File(root, "out/broken")));
+            }
+            Bitmap bmp = PdfTestUtils.renderPdfAssetToBitmap(ctx, asset, 0);
+            String id = "page" + pages.size();
+            File png = new File(in, id + ".png");
+            try (FileOutputStream fos = new FileOutputStream(png)) {
+                assertTrue("PNG encode failed for " + asset, bmp.compress(Bitmap.CompressFormat.PNG, 100, fos));
+            }
+            rendered.add(bmp);
+            pages.add(OCRHelper.BatchPage.ofFile(id, png.getAbsolutePath(), new File(root, "out/" + id)));
+        }
+
+        OCRHelper helper = new OCRHelper(ctx);
+        helper.setLanguage("eng");
+        helper.setResultCacheEnabled(false); // measure recognition, not cache hits
+        assertTrue("Tesseract init failed", helper.initTesseract());
+        try {
+            // Warm-up run, then the sequential baseline on the same engine
+            helper.runOcrWithWords(rendered.get(0));
+            long summed = 0;
+            for (Bitmap bmp : rendered) {
+                long t0 = System.nanoTime();
+                helper.runOcrWithWords(bmp);
+                summed += System.nanoTime() - t0;
+            }
+            for (Bitmap bmp : rendered) bmp.recycle();
+
+            List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+            List<Integer> failed = Collections.synchronizedList(new ArrayList<>());
+            OCRHelper.OcrResultWords[] results = new OCRHelper.OcrResultWords[pages.size()];
+            File[] wordsFiles = new File[pages.size()];
+            long t0 = System.nanoTime();
+            int ok = helper.runBatch(pages, new OCRHelper.BatchListener() {
+                @Override
+                public void onPageDone(int index, OCRHelper.BatchPage page, OCRHelper.OcrResultWords result, File wordsFile) {
+                    order.add(index);
+                    results[index] = result;
+                    wordsFiles[index] = wordsFile;
+                }
+
+                @Override
+                public void onPageFailed(int index, OCRHelper.BatchPage page, Throwable error) {
+                    order.add(index);
+                    failed.add(index);
+                }
+            });
+            long batch = System.nanoTime() - t0;
+            Log.i(TAG, String.format(Locale.ROOT, "pages=%d: batch=%d ms, summed recognition=%d ms",
+                    pages.size(), batch / 1_000_000L, summed / 1_000_000L));
+
+            assertEquals("Successful pages", pages.size() - 1, ok);
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < pages.size(); i++) expected.add(i);
+            assertEquals("Each page reported once, in page order", expected, order);
+            assertEquals("Only the undecodable page fails", Collections.singletonList(BROKEN_INDEX), failed);
+            assertFalse("No output for the undecodable page", pages.get(BROKEN_INDEX).outputDir.exists());
+
+            for (int i = 0; i < pages.size(); i++) {
+                if (i == BROKEN_INDEX) continue;
+                OCRHelper.BatchPage page = pages.get(i);
+                OCRHelper.OcrResultWords res = results[i];
+                assertNotNull("No result for " + page.id, res);
+                assertFalse("No words recognized for " + page.id, res.words.isEmpty());
+
+                assertEquals(new File(page.outputDir, WordsBinary.FILE_NAME), wordsFiles[i]);
+                List<RecognizedWord> stored = WordsBinary.load(wordsFiles[i]);
+                assertEquals("words.bin of " + page.id, res.words.size(), stored.size());
+                for (int w = 0; w < stored.size(); w++) {
+                    assertEquals(res.words.get(w).getText(), stored.get(w).getText());
+                }
+                byte[] text = Files.readAllBytes(new File(page.outputDir, "text.txt").toPath());
+                assertEquals("text.txt of " + page.id, res.text, new String(text, StandardCharsets.UTF_8));
+            }
+        } finally {
+            helper.shutdown();
+            deleteRecursively(root);
+        }
+    }
+
+    private static void deleteRecursively(File f) {
+        File[] children = f.listFiles();
+        if (children != null) {
+            for (File c : children) deleteRecursively(c);
+        }
+        //noinspection ResultOfMethodCallIgnored
+        f.delete();
+    }
+}
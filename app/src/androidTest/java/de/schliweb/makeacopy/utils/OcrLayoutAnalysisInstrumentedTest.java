@@ -0,0 +1,40 @@
+package de.schliweb.makeacopy.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies that the layout pass used by region-parallel OCR finds several blocks on a multi-column page
+ * although the helper runs with the single-block segmentation mode, and that this mode is kept.
+ */
+@RunWith(AndroidJUnit4.class)
+public class OcrLayoutAnalysisInstrumentedTest {
+
+    @Test
+    public void multiColumnPageYieldsSeveralBlocks() throws Exception {
+        Context ctx = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        OCRHelper helper = new OCRHelper(ctx);
+        helper.setLanguage("eng");
+        assertTrue("Tesseract init failed", helper.initTesseract());
+        Bitmap page = PdfTestUtils.renderPdfAssetToBitmap(ctx, "test_pdfs/multi_column.pdf", 0);
+        try {
+            int psm = helper.getPageSegMode();
+            List<Rect> blocks = helper.analyseLayout(page);
+            assertTrue("expected more than one block, got " + blocks.size(), blocks.size() > 1);
+            assertEquals(psm, helper.getPageSegMode());
+        } finally {
+            page.recycle();
+            helper.shutdown();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package de.schliweb.makeacopy.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Log;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Benchmarks the single-pass word extraction (result iterator) against the legacy path
+ * (getUTF8Text + getHOCRText + regex parsing) on the bundled test pages.
+ * <p>
+ * Both paths run on the same warm engine; each page is recognized {@link #ROUNDS} times per path
+ * and the median is reported in logcat (tag "OcrBenchmark"). The test asserts that both paths
+ * produce comparable results; timings are informational.
+ */
+@RunWith(AndroidJUnit4.class)
+public class OcrWordExtractionBenchmarkTest {
+
+    private static final String TAG = "OcrBenchmark";
+    private static final int ROUNDS = 3;
+    private static final String[] PAGES = {
+            "test_pdfs/simple_line.pdf",
+            "test_pdfs/multi_line.pdf",
+            "test_pdfs/multi_column.pdf",
+            "test_pdfs/stress_test.pdf"
+    };
+
+    @Test
+    public void compareIteratorAndHocrPaths() throws Exception {
+        Context ctx = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        OCRHelper helper = new OCRHelper(ctx);
+        helper.setLanguage("eng");
+        helper.setResultCacheEnabled(false); // measure recognition, not cache hits
+        assertTrue("Tesseract init failed", helper.initTesseract());
+        long totalIterator = 0;
+        long totalHocr = 0;
+        try {
+            for (String asset : PAGES) {
+                Bitmap page = PdfTestUtils.renderPdfAssetToBitmap(ctx, asset, 0);
+                try {
+                    // Warm-up run so that both measurements see the same engine state
+                    helper.runOcrWithWords(page);
+
+                    long[] iter = new long[ROUNDS];
+                    long[] hocr = new long[ROUNDS];
+                    OCRHelper.OcrResultWords a = null;
+                    OCRHelper.OcrResultWords b = null;
+                    for (int i = 0; i < ROUNDS; i++) {
+                        long t0 = System.nanoTime();
+                        a = helper.runOcrWithWords(page);
+                        iter[i] = System.nanoTime() - t0;
+                        t0 = System.nanoTime();
+                        b = helper.runOcrWithWordsViaHocr(page);
+                        hocr[i] = System.nanoTime() - t0;
+                    }
+                    long mi = median(iter) / 1_000_000L;
+                    long mh = median(hocr) / 1_000_000L;
+                    totalIterator += mi;
+                    totalHocr += mh;
+                    Log.i(TAG, String.format(Locale.ROOT, "%s: iterator=%d ms (%d words), hocr=%d ms (%d words)",
+                            asset, mi, a.words.size(), mh, b.words.size()));
+
+                    assertFalse("Iterator path returned no words for " + asset, a.words.isEmpty());
+                    int diff = Math.abs(a.words.size() - b.words.size());
+                    assertTrue("Word counts diverge for " + asset + ": " + a.words.size() + " vs " + b.words.size(),
+                            diff <= Math.max(2, b.words.size() / 10));
+                    assertFalse("Iterator path returned no text for " + asset, a.text.trim().isEmpty());
+                } finally {
+                    page.recycle();
+                }
+            }
+        } finally {
+            helper.shutdown();
+        }
+        Log.i(TAG, String.format(Locale.ROOT, "total: iterator=%d ms, hocr=%d ms", totalIterator, totalHocr));
+    }
+
+    private static long median(long[] values) {
+        long[] copy = values.clone();
+        java.util.Arrays.sort(copy);
+        return copy[copy.length / 2];
+    }
+}
@@ -4,6 +4,7 @@ import android.app.Application;
 import android.util.Log;
 import de.schliweb.makeacopy.services.CacheCleanupService;
 import de.schliweb.makeacopy.utils.OpenCVUtils;
+import de.schliweb.makeacopy.utils.TessDataManager;
 
 /**
  * Main Application class for MakeACopy.
@@ -24,6 +25,9 @@ public class MakeACopyApplication extends Application {
 
         initializeCacheCleanupService();
 
+        // Extract OCR language data in the background so the first OCR does not wait for it
+        TessDataManager.startBackgroundExtraction(this);
+
         Log.i(TAG, "MakeACopy Application initialized successfully");
     }
 
@@ -14,7 +14,7 @@ public class CompletedScanEntry {
     @Nullable
     public String ocrTextPath;
     @Nullable
-    public String ocrFormat; // "plain" | "hocr" | "alto" | "words_json" (optional; null implies "plain")
+    public String ocrFormat; // "plain" | "hocr" | "alto" | "words_bin" | "words_json" (optional; null implies "plain")
     @Nullable
     public String thumbPath;
     public long createdAt;
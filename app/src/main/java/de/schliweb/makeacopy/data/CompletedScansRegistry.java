@@ -1,36 +1,54 @@
 package de.schliweb.makeacopy.data;
 
 import android.content.Context;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import de.schliweb.makeacopy.ui.export.session.CompletedScan;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.channels.FileChannel;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
 /**
  * The CompletedScansRegistry class manages the persistence and retrieval of completed scan records.
- * It uses JSON serialization to store scan data in a file and provides synchronized methods for
+ * It keeps the scan data in a pluggable {@link RegistryStore} and provides synchronized methods for
  * accessing and manipulating the registry data.
  * <p>
  * This is a singleton class designed to ensure a single instance of the registry is created and used
- * throughout the application. The registry is backed by a file to ensure data persistence across app sessions.
+ * throughout the application. The registry is backed by app-private storage to ensure data persistence
+ * across app sessions.
+ * <p>
+ * Storage: the entries are loaded once into an in-memory index, after which reads never touch the disk.
+ * Every mutation is handed to a {@link RegistryStore} and only applied in memory once it is durable. The
+ * application instance ({@link #get}) uses the SQLite {@link ScanCatalog}, which also keeps a full-text index
+ * over the OCR text ({@link #setOcrText}, {@link #search}) and imports the older JSON registry on first start;
+ * a registry created from a file uses the JSON snapshot with its append-only journal
+ * ({@link JournalRegistryStore}).
+ * <p>
+ * Besides the id index, a list sorted by creation time is maintained, so that point lookups
+ * ({@link #getById}) are O(1) and ordered pages ({@link #list}) are served without sorting.
+ * <p>
+ * Bulk changes go through {@link #runBatch}, which commits any number of mutations atomically with a single
+ * sync; an interrupted batch is dropped as a whole on the next load.
  */
 public final class CompletedScansRegistry {
     private static final String TAG = "CompletedScansRegistry";
 
+    private static final Comparator<CompletedScanEntry> BY_DATE =
+            Comparator.<CompletedScanEntry>comparingLong(e -> e.createdAt).thenComparing(e -> e.id);
+
     private static volatile CompletedScansRegistry instance;
 
-    private final File indexFile;
-    private final Gson gson;
+    private final RegistryStore store;
+
+    // In-memory indexes, loaded on first access; guarded by this
+    private Map<String, CompletedScanEntry> entries;       // id -> entry
+    private final List<CompletedScanEntry> byDate = new ArrayList<>(); // sorted by BY_DATE (ascending)
 
     /**
      * Returns the singleton instance of the CompletedScansRegistry. If the instance does not already
@@ -50,20 +68,39 @@ public final class CompletedScansRegistry {
                     base.mkdirs();
                 }
                 File idx = new File(base, "completed_scans.json");
-                instance = new CompletedScansRegistry(idx);
+                RegistryStore store;
+                try {
+                    store = ScanCatalog.open(ctx.getApplicationContext(), idx);
+                } catch (Throwable t) {
+                    // Never fall back to an empty store: that would make every scan directory look orphaned
+                    System.err.println(TAG + ": scan catalog unavailable, opening JSON registry read-only: " + t.getMessage());
+                    store = ScanCatalog.readOnlyFallback(idx);
+                }
+                instance = new CompletedScansRegistry(store);
             }
             return instance;
         }
     }
 
     /**
-     * Constructs a new instance of the CompletedScansRegistry.
+     * Sort order for {@link #list}.
+     */
+    public enum SortOrder {
+        CREATED_DESC,
+        CREATED_ASC
+    }
+
+    /**
+     * Constructs a new instance of the CompletedScansRegistry backed by a JSON file and its journal.
      *
      * @param indexFile the file used to store the registry data
      */
     public CompletedScansRegistry(File indexFile) {
-        this.indexFile = indexFile;
-        this.gson = new GsonBuilder().disableHtmlEscaping().create();
+        this(new JournalRegistryStore(indexFile));
+    }
+
+    CompletedScansRegistry(RegistryStore store) {
+        this.store = store;
     }
 
     /**
@@ -77,70 +114,294 @@ public final class CompletedScansRegistry {
      * @return a list of CompletedScan objects sorted by creation timestamp in descending order
      */
     public synchronized List<CompletedScan> listAllOrderedByDateDesc() {
-        RegistryFile rf = safeLoad();
-        List<CompletedScan> out = new ArrayList<>();
-        if (rf.items != null) {
-            for (CompletedScanEntry e : rf.items) {
-                if (e == null || e.id == null) continue;
-                out.add(toRuntime(e));
+        return list(0, Integer.MAX_VALUE, SortOrder.CREATED_DESC);
+    }
+
+    /**
+     * Returns one page of scans in creation order, served from the maintained date index.
+     *
+     * @param offset number of scans to skip
+     * @param limit  maximum number of scans to return
+     * @param order  sort order
+     * @return the page (empty past the end)
+     */
+    public synchronized List<CompletedScan> list(int offset, int limit, SortOrder order) {
+        entries();
+        int n = byDate.size();
+        int from = Math.max(0, offset);
+        int to = (int) Math.min(n, (long) from + Math.max(0, limit));
+        List<CompletedScan> out = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            out.add(toRuntime(byDate.get(order == SortOrder.CREATED_ASC ? i : n - 1 - i)));
+        }
+        return out;
+    }
+
+    /**
+     * Returns the page of scans that follows a given scan in creation order. Unlike an offset, the cursor
+     * stays valid while scans are inserted or removed between two pages, so no scan is skipped or repeated.
+     *
+     * @param afterCreatedAt creation time of the last scan of the previous page
+     * @param afterId        id of the last scan of the previous page; it need not exist anymore
+     * @param limit          maximum number of scans to return
+     * @param order          sort order
+     * @return the page (empty past the end)
+     */
+    public synchronized List<CompletedScan> listAfter(long afterCreatedAt, String afterId, int limit, SortOrder order) {
+        entries();
+        CompletedScanEntry cursor = new CompletedScanEntry();
+        cursor.createdAt = afterCreatedAt;
+        cursor.id = afterId != null ? afterId : "";
+        int pos = Collections.binarySearch(byDate, cursor, BY_DATE);
+        int max = Math.max(0, limit);
+        List<CompletedScan> out = new ArrayList<>(Math.min(max, byDate.size()));
+        if (order == SortOrder.CREATED_ASC) {
+            for (int i = pos >= 0 ? pos + 1 : -pos - 1; i < byDate.size() && out.size() < max; i++) {
+                out.add(toRuntime(byDate.get(i)));
+            }
+        } else {
+            for (int i = pos >= 0 ? pos - 1 : -pos - 2; i >= 0 && out.size() < max; i--) {
+                out.add(toRuntime(byDate.get(i)));
             }
         }
-        // Order by createdAt desc
-        out.sort(Comparator.comparingLong(CompletedScan::createdAt).reversed());
         return out;
     }
 
+    /**
+     * @return the number of scans in the registry
+     */
+    public synchronized int size() {
+        return entries().size();
+    }
+
+    /**
+     * @return true if the registry could only be opened read-only (see {@link RegistryStore#isReadOnly}); all
+     * mutations fail and it may be missing scans that exist on disk
+     */
+    public synchronized boolean isReadOnly() {
+        return store.isReadOnly();
+    }
+
+    /**
+     * Looks up a scan by id.
+     *
+     * @param id the scan id
+     * @return the scan, or null if the id is unknown
+     */
+    public synchronized CompletedScan getById(String id) {
+        if (id == null) return null;
+        CompletedScanEntry e = entries().get(id);
+        return e != null ? toRuntime(e) : null;
+    }
+
+    /**
+     * Atomically replaces an existing scan with the result of {@code mutator}, persisted as a single
+     * write. Nothing is written if the id is unknown or the mutator returns null.
+     *
+     * @param id      the scan id
+     * @param mutator receives the current scan and returns the updated one; must keep the id
+     * @return the updated scan, or null if nothing was changed
+     * @throws IOException              if an error occurs while writing to the registry store
+     * @throws IllegalArgumentException if the mutator changes the id
+     */
+    public synchronized CompletedScan update(String id, UnaryOperator<CompletedScan> mutator) throws IOException {
+        if (id == null || mutator == null) return null;
+        Map<String, CompletedScanEntry> map = entries();
+        CompletedScanEntry old = map.get(id);
+        if (old == null) return null;
+        CompletedScan next = mutator.apply(toRuntime(old));
+        if (next == null) return null;
+        if (!id.equals(next.id())) throw new IllegalArgumentException("update must not change the id");
+        CompletedScanEntry e = fromRuntime(next);
+        store.commit(Collections.singletonList(e), Collections.emptyList());
+        map.put(id, e);
+        unindex(old);
+        index(e);
+        store.maintain(map.values());
+        return toRuntime(e);
+    }
+
     /**
      * Inserts a completed scan into the registry, ensuring no duplicate entries by ID.
-     * This operation is thread-safe and updates the registry file atomically. If the
-     * provided scan or its ID is null, the method does nothing. If the entry does
-     * not already exist in the registry, it is added and persisted to storage.
+     * This operation is thread-safe and persists a single mutation. If the
+     * provided scan or its ID is null, or an entry with the same ID already exists,
+     * the method does nothing.
      *
      * @param s the completed scan to be inserted. It must contain a non-null ID.
-     * @throws IOException if an error occurs while writing to the registry file.
+     * @throws IOException if an error occurs while writing to the registry store.
      */
     public synchronized void insert(CompletedScan s) throws IOException {
         if (s == null || s.id() == null) return;
-        RegistryFile rf = safeLoad();
-        if (rf.items == null) rf.items = new ArrayList<>();
+        Map<String, CompletedScanEntry> map = entries();
         // no duplicates by id
-        boolean exists = false;
-        for (CompletedScanEntry e : rf.items) {
-            if (e != null && s.id().equals(e.id)) {
-                exists = true;
-                break;
-            }
-        }
-        if (!exists) rf.items.add(fromRuntime(s));
-        writeAtomically(rf);
+        if (map.containsKey(s.id())) return;
+        CompletedScanEntry e = fromRuntime(s);
+        store.commit(Collections.singletonList(e), Collections.emptyList());
+        map.put(e.id, e);
+        index(e);
+        store.maintain(map.values());
     }
 
     /**
      * Removes a completed scan entry from the registry based on its unique identifier.
-     * This operation is thread-safe and updates the registry file atomically. If the
-     * provided ID is null, the method does nothing. If the registry is empty or does not
-     * contain the specified entry, the operation ensures the registry file is still
-     * rewritten deterministically.
+     * This operation is thread-safe and persists a single mutation. If the
+     * provided ID is null or unknown, the method does nothing.
      *
      * @param id the unique identifier of the completed scan to be removed; must not be null.
-     * @throws IOException if an error occurs while writing to the registry file.
+     * @throws IOException if an error occurs while writing to the registry store.
      */
     public synchronized void remove(String id) throws IOException {
         if (id == null) return;
-        RegistryFile rf = safeLoad();
-        if (rf.items == null || rf.items.isEmpty()) {
-            // still rewrite an empty index deterministically
-            rf.items = new ArrayList<>();
-            writeAtomically(rf);
-            return;
+        Map<String, CompletedScanEntry> map = entries();
+        CompletedScanEntry old = map.get(id);
+        if (old == null) return;
+        store.commit(Collections.emptyList(), Collections.singletonList(id));
+        map.remove(id);
+        unindex(old);
+        store.maintain(map.values());
+    }
+
+    /**
+     * Collects mutations inside {@link #runBatch}. Reads see the changes staged so far. Only valid while
+     * the batch callback runs.
+     */
+    public final class Batch {
+        // id -> new entry, or null if removed
+        private final Map<String, CompletedScanEntry> staged = new LinkedHashMap<>();
+        private boolean open = true;
+
+        private Batch() {
+        }
+
+        /**
+         * @return the scan as it will be after the batch, or null if absent
+         */
+        public CompletedScan get(String id) {
+            CompletedScanEntry e = current(id);
+            return e != null ? toRuntime(e) : null;
+        }
+
+        /**
+         * Stages an insert; ignored if the id already exists (as with {@link CompletedScansRegistry#insert}).
+         */
+        public Batch insert(CompletedScan s) {
+            checkOpen();
+            if (s == null || s.id() == null || current(s.id()) != null) return this;
+            staged.put(s.id(), fromRuntime(s));
+            return this;
+        }
+
+        /**
+         * Stages a removal; ignored if the id is unknown.
+         */
+        public Batch remove(String id) {
+            checkOpen();
+            if (id == null || current(id) == null) return this;
+            staged.put(id, null);
+            return this;
+        }
+
+        /**
+         * Stages an update; see {@link CompletedScansRegistry#update}.
+         */
+        public Batch update(String id, UnaryOperator<CompletedScan> mutator) {
+            checkOpen();
+            CompletedScanEntry cur = id != null ? current(id) : null;
+            if (cur == null || mutator == null) return this;
+            CompletedScan next = mutator.apply(toRuntime(cur));
+            if (next == null) return this;
+            if (!id.equals(next.id())) throw new IllegalArgumentException("update must not change the id");
+            staged.put(id, fromRuntime(next));
+            return this;
+        }
+
+        private CompletedScanEntry current(String id) {
+            return staged.containsKey(id) ? staged.get(id) : entries.get(id);
+        }
+
+        private void checkOpen() {
+            if (!open) throw new IllegalStateException("batch already committed");
+        }
+    }
+
+    /**
+     * Applies the mutations staged by {@code ops} atomically: they are written in one store commit with a
+     * single sync and become visible together. If {@code ops} throws or the write fails, nothing is applied.
+     *
+     * @param ops stages mutations on the given batch
+     * @return the number of scans changed
+     * @throws IOException if an error occurs while writing to the registry store
+     */
+    public synchronized int runBatch(Consumer<Batch> ops) throws IOException {
+        Map<String, CompletedScanEntry> map = entries();
+        Batch batch = new Batch();
+        try {
+            ops.accept(batch);
+        } finally {
+            batch.open = false;
         }
-        List<CompletedScanEntry> next = new ArrayList<>();
-        for (CompletedScanEntry e : rf.items) {
-            if (e == null) continue;
-            if (!id.equals(e.id)) next.add(e);
+        if (batch.staged.isEmpty()) return 0;
+        List<CompletedScanEntry> puts = new ArrayList<>();
+        List<String> removes = new ArrayList<>();
+        for (Map.Entry<String, CompletedScanEntry> it : batch.staged.entrySet()) {
+            if (it.getValue() != null) puts.add(it.getValue());
+            else removes.add(it.getKey());
+        }
+        store.commit(puts, removes);
+        for (Map.Entry<String, CompletedScanEntry> it : batch.staged.entrySet()) {
+            CompletedScanEntry old = map.get(it.getKey());
+            if (old != null) unindex(old);
+            if (it.getValue() != null) {
+                map.put(it.getKey(), it.getValue());
+                index(it.getValue());
+            } else {
+                map.remove(it.getKey());
+            }
+        }
+        store.maintain(map.values());
+        return batch.staged.size();
+    }
+
+    /**
+     * Rewrites the store into its most compact form; for the JSON registry this folds the journal into the
+     * snapshot file. Called automatically when needed; may be called after bulk work.
+     *
+     * @throws IOException if the store cannot be written
+     */
+    public synchronized void compact() throws IOException {
+        store.compact(entries().values());
+    }
+
+    /**
+     * Replaces the searchable OCR text of a scan. Ignored for unknown ids and by registries without a text
+     * index.
+     *
+     * @param id   the scan id
+     * @param text the recognized text; null or empty removes the scan from search results
+     * @throws IOException if the text index cannot be written
+     */
+    public synchronized void setOcrText(String id, String text) throws IOException {
+        if (id == null || !entries().containsKey(id)) return;
+        store.setText(id, text);
+    }
+
+    /**
+     * Finds the scans whose OCR text contains all words of {@code query}; the last word also matches as a
+     * prefix. Served from the full-text index without opening any scan files.
+     *
+     * @param query free text typed by the user
+     * @param limit maximum number of results
+     * @return matching scans, newest first; empty if nothing matches or the registry has no text index
+     */
+    public synchronized List<CompletedScan> search(String query, int limit) {
+        if (query == null || limit <= 0) return Collections.emptyList();
+        Map<String, CompletedScanEntry> map = entries();
+        List<CompletedScan> out = new ArrayList<>();
+        for (String id : store.search(query, limit)) {
+            CompletedScanEntry e = map.get(id);
+            if (e != null) out.add(toRuntime(e));
         }
-        rf.items = next;
-        writeAtomically(rf);
+        return out;
     }
 
     /**
@@ -181,104 +442,35 @@ public final class CompletedScansRegistry {
 
     // ===== Persistence =====
 
-    private RegistryFile safeLoad() {
-        try {
-            return load();
-        } catch (Exception e) {
-            System.err.println(TAG + ": safeLoad: treating as empty due to error: " + e.getMessage());
-            RegistryFile rf = new RegistryFile();
-            rf.version = 1;
-            rf.items = new ArrayList<>();
-            return rf;
-        }
-    }
-
-    private RegistryFile load() throws IOException {
-        if (!indexFile.exists()) {
-            RegistryFile rf = new RegistryFile();
-            rf.version = 1;
-            rf.items = new ArrayList<>();
-            return rf;
-        }
-        try (FileInputStream fis = new FileInputStream(indexFile)) {
-            byte[] buf = readAllBytesCompat(fis);
-            String json = new String(buf, StandardCharsets.UTF_8);
-            RegistryFile rf = gson.fromJson(json, RegistryFile.class);
-            if (rf == null || rf.items == null) {
-                RegistryFile empty = new RegistryFile();
-                empty.version = 1;
-                empty.items = new ArrayList<>();
-                return empty;
-            }
-            return rf;
+    /**
+     * Returns the in-memory index, loading all entries from the store on first access.
+     */
+    private Map<String, CompletedScanEntry> entries() {
+        if (entries != null) return entries;
+        Map<String, CompletedScanEntry> map = new LinkedHashMap<>();
+        for (CompletedScanEntry e : store.loadAll()) {
+            if (e == null || e.id == null) continue;
+            map.put(e.id, e);
         }
-    }
-
-    private byte[] readAllBytesCompat(FileInputStream fis) throws IOException {
-        byte[] buffer = new byte[8192];
-        int read;
-        java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
-        while ((read = fis.read(buffer)) != -1) {
-            baos.write(buffer, 0, read);
+        entries = map;
+        byDate.clear();
+        byDate.addAll(map.values());
+        byDate.sort(BY_DATE);
+        try {
+            store.maintain(entries.values());
+        } catch (IOException e) {
+            System.err.println(TAG + ": maintenance after load failed: " + e.getMessage());
         }
-        return baos.toByteArray();
+        return entries;
     }
 
-    private void writeAtomically(RegistryFile rf) throws IOException {
-        File dir = indexFile.getParentFile();
-        if (dir != null && !dir.exists()) {
-            //noinspection ResultOfMethodCallIgnored
-            dir.mkdirs();
-        }
-        String json = gson.toJson(rf);
-        File tmp = new File(indexFile.getParentFile(), indexFile.getName() + ".tmp");
-        // Write
-        try (FileOutputStream fos = new FileOutputStream(tmp)) {
-            fos.write(json.getBytes(StandardCharsets.UTF_8));
-            fos.flush();
-            try {
-                fos.getFD().sync();
-            } catch (Throwable ignore) {
-            }
-        }
-        // Replace
-        if (indexFile.exists() && !indexFile.delete()) {
-            System.err.println(TAG + ": writeAtomically: failed to delete old index, attempting overwrite via rename");
-        }
-        boolean renamed = tmp.renameTo(indexFile);
-        if (!renamed) {
-            // Fallback: copy via channel
-            try (FileChannel in = new FileInputStream(tmp).getChannel();
-                 FileChannel out = new FileOutputStream(indexFile).getChannel()) {
-                long size = in.size();
-                long pos = 0;
-                while (pos < size) {
-                    pos += out.transferFrom(in, pos, size - pos);
-                }
-                out.force(true);
-            }
-            //noinspection ResultOfMethodCallIgnored
-            tmp.delete();
-        }
+    private void index(CompletedScanEntry e) {
+        int pos = Collections.binarySearch(byDate, e, BY_DATE);
+        byDate.add(pos < 0 ? -pos - 1 : pos, e);
     }
 
-    /**
-     * Represents the structure of the registry file used for storing completed scan entries.
-     * This class defines the version and the list of scan entries, enabling serialization
-     * and deserialization of registry data for persistent storage.
-     * <p>
-     * The registry file is internally managed by the containing class and serialized
-     * to a file using JSON format. The `version` field ensures backward compatibility
-     * for future updates, while the `items` list stores {@link CompletedScanEntry}
-     * objects representing individual completed scans.
-     * <p>
-     * Fields:
-     * - `version` (int): The version of the registry file format. Defaults to 1.
-     * - `items` (List<CompletedScanEntry>): A list of scan entries. Defaults to an empty list.
-     */
-    // Internal JSON layout
-    static class RegistryFile {
-        int version = 1;
-        List<CompletedScanEntry> items = Collections.emptyList();
+    private void unindex(CompletedScanEntry e) {
+        int pos = Collections.binarySearch(byDate, e, BY_DATE);
+        if (pos >= 0) byDate.remove(pos);
     }
 }
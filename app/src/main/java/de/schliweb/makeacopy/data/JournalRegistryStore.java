@@ -0,0 +1,339 @@
+package de.schliweb.makeacopy.data;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link RegistryStore} on top of a JSON snapshot file plus an append-only journal.
+ * <p>
+ * Mutations are appended as single JSON lines to a journal next to the snapshot file
+ * ({@code completed_scans.json.journal}) and synced, so an insert or remove costs one small append instead
+ * of rewriting the whole registry. When the journal has grown larger than the registry itself, it is
+ * compacted: the snapshot is rewritten atomically and the journal is deleted. On load, the journal is
+ * replayed over the snapshot; a torn last line from an interrupted append is ignored. A commit of several
+ * mutations is written as one batch record, which is dropped as a whole if it was interrupted.
+ * <p>
+ * This is the original registry format. It is the source for the one-time import into {@link ScanCatalog},
+ * and is opened read-only as a fallback when the catalog cannot be opened.
+ */
+final class JournalRegistryStore implements RegistryStore {
+    private static final String TAG = "JournalRegistryStore";
+
+    /**
+     * Journal records below which no compaction happens, regardless of the registry size.
+     */
+    static final int COMPACT_MIN_RECORDS = 128;
+
+    private static final String OP_PUT = "put";
+    private static final String OP_REMOVE = "remove";
+    private static final String OP_BATCH = "batch";
+
+    private final File indexFile;
+    private final File journalFile;
+    private final Gson gson;
+
+    private final boolean readOnly;
+
+    private int journalRecords;
+    private boolean snapshotStale;
+
+    /**
+     * @param indexFile the snapshot file; the journal is kept next to it
+     */
+    JournalRegistryStore(File indexFile) {
+        this(indexFile, journalFileFor(indexFile), false);
+    }
+
+    /**
+     * @param indexFile   the snapshot file
+     * @param journalFile the journal replayed over the snapshot
+     * @param readOnly    if true, commits fail and the files are never rewritten
+     */
+    JournalRegistryStore(File indexFile, File journalFile, boolean readOnly) {
+        this.indexFile = indexFile;
+        this.journalFile = journalFile;
+        this.readOnly = readOnly;
+        this.gson = new GsonBuilder().disableHtmlEscaping().create();
+    }
+
+    /**
+     * @return the journal belonging to the given snapshot file
+     */
+    static File journalFileFor(File indexFile) {
+        return new File(indexFile.getParentFile(), indexFile.getName() + ".journal");
+    }
+
+    @Override
+    public List<CompletedScanEntry> loadAll() {
+        Map<String, CompletedScanEntry> map = new LinkedHashMap<>();
+        RegistryFile rf = safeLoad();
+        if (rf.items != null) {
+            for (CompletedScanEntry e : rf.items) {
+                if (e == null || e.id == null) continue;
+                map.put(e.id, e);
+            }
+        }
+        journalRecords = replayJournal(map);
+        return new ArrayList<>(map.values());
+    }
+
+    @Override
+    public void commit(List<CompletedScanEntry> puts, List<String> removes) throws IOException {
+        if (readOnly) throw new IOException(TAG + ": registry is read-only");
+        List<JournalRecord> records = new ArrayList<>(puts.size() + removes.size());
+        for (CompletedScanEntry e : puts) records.add(JournalRecord.put(e));
+        for (String id : removes) records.add(JournalRecord.remove(id));
+        if (records.isEmpty()) return;
+        append(records.size() == 1 ? records.get(0) : JournalRecord.batch(records));
+    }
+
+    /**
+     * Compacts once the journal outgrows the registry (amortized O(1) per mutation), or right away if the
+     * snapshot or journal could not be read cleanly.
+     */
+    @Override
+    public void maintain(Collection<CompletedScanEntry> current) throws IOException {
+        if (readOnly) return;
+        if (snapshotStale
+                || (journalRecords > COMPACT_MIN_RECORDS && journalRecords > current.size())) {
+            compact(current);
+        }
+    }
+
+    /**
+     * Folds the journal into the snapshot file: rewrites the snapshot atomically from {@code current} and
+     * deletes the journal.
+     */
+    @Override
+    public void compact(Collection<CompletedScanEntry> current) throws IOException {
+        if (readOnly) return;
+        RegistryFile rf = new RegistryFile();
+        rf.version = 1;
+        rf.items = new ArrayList<>(current);
+        writeAtomically(rf);
+        // Snapshot is durable; a crash before this delete only replays idempotent records
+        if (journalFile.exists() && !journalFile.delete()) {
+            System.err.println(TAG + ": compact: failed to delete journal");
+        }
+        journalRecords = 0;
+        snapshotStale = false;
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Applies the journal records to {@code map} in order.
+     *
+     * @return the number of mutations read (a batch counts each of its operations)
+     */
+    private int replayJournal(Map<String, CompletedScanEntry> map) {
+        if (!journalFile.exists()) return 0;
+        int n = 0;
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(new FileInputStream(journalFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                JournalRecord rec;
+                try {
+                    rec = gson.fromJson(line, JournalRecord.class);
+                } catch (RuntimeException e) {
+                    // torn write of the last record; anything after it was never acknowledged
+                    System.err.println(TAG + ": replayJournal: skipping unreadable record: " + e.getMessage());
+                    snapshotStale = true;
+                    continue;
+                }
+                if (rec == null) continue;
+                if (OP_BATCH.equals(rec.op)) {
+                    if (rec.ops == null) continue;
+                    for (JournalRecord op : rec.ops) apply(map, op);
+                    n += rec.ops.size();
+                } else {
+                    apply(map, rec);
+                    n++;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println(TAG + ": replayJournal: " + e.getMessage());
+            snapshotStale = true;
+        }
+        return n;
+    }
+
+    private static void apply(Map<String, CompletedScanEntry> map, JournalRecord rec) {
+        if (rec == null) return;
+        if (OP_PUT.equals(rec.op) && rec.entry != null && rec.entry.id != null) {
+            map.put(rec.entry.id, rec.entry);
+        } else if (OP_REMOVE.equals(rec.op) && rec.id != null) {
+            map.remove(rec.id);
+        }
+    }
+
+    /**
+     * Appends one record to the journal and syncs it.
+     */
+    private void append(JournalRecord rec) throws IOException {
+        byte[] line = (gson.toJson(rec) + "\n").getBytes(StandardCharsets.UTF_8);
+        try (FileOutputStream fos = new FileOutputStream(journalFile, true)) {
+            fos.write(line);
+            fos.flush();
+            try {
+                fos.getFD().sync();
+            } catch (Throwable ignore) {
+            }
+        }
+        journalRecords += rec.ops != null ? rec.ops.size() : 1;
+    }
+
+    private RegistryFile safeLoad() {
+        try {
+            return load();
+        } catch (Exception e) {
+            System.err.println(TAG + ": safeLoad: treating as empty due to error: " + e.getMessage());
+            snapshotStale = true;
+            RegistryFile rf = new RegistryFile();
+            rf.version = 1;
+            rf.items = new ArrayList<>();
+            return rf;
+        }
+    }
+
+    private RegistryFile load() throws IOException {
+        if (!indexFile.exists()) {
+            RegistryFile rf = new RegistryFile();
+            rf.version = 1;
+            rf.items = new ArrayList<>();
+            return rf;
+        }
+        try (FileInputStream fis = new FileInputStream(indexFile)) {
+            byte[] buf = readAllBytesCompat(fis);
+            String json = new String(buf, StandardCharsets.UTF_8);
+            RegistryFile rf = gson.fromJson(json, RegistryFile.class);
+            if (rf == null || rf.items == null) {
+                RegistryFile empty = new RegistryFile();
+                empty.version = 1;
+                empty.items = new ArrayList<>();
+                return empty;
+            }
+            return rf;
+        }
+    }
+
+    private byte[] readAllBytesCompat(FileInputStream fis) throws IOException {
+        byte[] buffer = new byte[8192];
+        int read;
+        java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
+        while ((read = fis.read(buffer)) != -1) {
+            baos.write(buffer, 0, read);
+        }
+        return baos.toByteArray();
+    }
+
+    private void writeAtomically(RegistryFile rf) throws IOException {
+        File dir = indexFile.getParentFile();
+        if (dir != null && !dir.exists()) {
+            //noinspection ResultOfMethodCallIgnored
+            dir.mkdirs();
+        }
+        String json = gson.toJson(rf);
+        File tmp = new File(indexFile.getParentFile(), indexFile.getName() + ".tmp");
+        // Write
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            fos.write(json.getBytes(StandardCharsets.UTF_8));
+            fos.flush();
+            try {
+                fos.getFD().sync();
+            } catch (Throwable ignore) {
+            }
+        }
+        // Replace
+        if (indexFile.exists() && !indexFile.delete()) {
+            System.err.println(TAG + ": writeAtomically: failed to delete old index, attempting overwrite via rename");
+        }
+        boolean renamed = tmp.renameTo(indexFile);
+        if (!renamed) {
+            // Fallback: copy via channel
+            try (FileChannel in = new FileInputStream(tmp).getChannel();
+                 FileChannel out = new FileOutputStream(indexFile).getChannel()) {
+                long size = in.size();
+                long pos = 0;
+                while (pos < size) {
+                    pos += out.transferFrom(in, pos, size - pos);
+                }
+                out.force(true);
+            }
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+        }
+    }
+
+    /**
+     * Represents the structure of the registry file used for storing completed scan entries.
+     * This class defines the version and the list of scan entries, enabling serialization
+     * and deserialization of registry data for persistent storage.
+     * <p>
+     * The registry file is internally managed by the containing class and serialized
+     * to a file using JSON format. The `version` field ensures backward compatibility
+     * for future updates, while the `items` list stores {@link CompletedScanEntry}
+     * objects representing individual completed scans.
+     * <p>
+     * Fields:
+     * - `version` (int): The version of the registry file format. Defaults to 1.
+     * - `items` (List<CompletedScanEntry>): A list of scan entries. Defaults to an empty list.
+     */
+    // Internal JSON layout
+    static class RegistryFile {
+        int version = 1;
+        List<CompletedScanEntry> items = Collections.emptyList();
+    }
+
+    /**
+     * One journal line: {@code {"op":"put","entry":{...}}}, {@code {"op":"remove","id":"..."}} or
+     * {@code {"op":"batch","ops":[...]}}. Records are blind writes keyed by id, so replaying them over a
+     * snapshot that already contains their effect is harmless.
+     */
+    static class JournalRecord {
+        String op;
+        String id;
+        CompletedScanEntry entry;
+        List<JournalRecord> ops;
+
+        static JournalRecord put(CompletedScanEntry e) {
+            JournalRecord r = new JournalRecord();
+            r.op = OP_PUT;
+            r.entry = e;
+            return r;
+        }
+
+        static JournalRecord remove(String id) {
+            JournalRecord r = new JournalRecord();
+            r.op = OP_REMOVE;
+            r.id = id;
+            return r;
+        }
+
+        static JournalRecord batch(List<JournalRecord> ops) {
+            JournalRecord r = new JournalRecord();
+            r.op = OP_BATCH;
+            r.ops = ops;
+            return r;
+        }
+    }
+}
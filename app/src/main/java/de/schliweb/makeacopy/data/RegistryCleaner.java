@@ -2,11 +2,17 @@ package de.schliweb.makeacopy.data;
 
 import android.content.Context;
 import de.schliweb.makeacopy.ui.export.session.CompletedScan;
+import de.schliweb.makeacopy.utils.ScanPersister;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 /**
@@ -81,99 +87,128 @@ public final class RegistryCleaner {
     /**
      * Performs on-demand cleanup:
      * - Removes registry entries whose primary filePath is missing; also deletes their scan directory if present.
-     * - Deletes orphaned scan directories (files/scans/<id>) not referenced by the registry.
+     * - Normalizes file/thumb paths to the canonical files/scans/&lt;id&gt;/page.jpg and thumb.jpg if present.
+     * - Deletes orphaned scan directories (files/scans/&lt;id&gt;) not referenced by the registry, except those of
+     * scans that {@link ScanPersister} is still writing.
+     * <p>
+     * The file system is read in one pass over files/scans, the changes are computed in memory and
+     * committed to the registry as a single batch before any directory is deleted. Nothing is done while the
+     * registry is read-only.
      */
     public static CleanupReport cleanupOrphans(Context ctx) {
         CleanupReport rep = new CleanupReport();
         if (ctx == null) return rep;
 
         CompletedScansRegistry reg = CompletedScansRegistry.get(ctx);
-        List<CompletedScan> items = reg.listAllOrderedByDateDesc();
+        if (reg.isReadOnly()) {
+            // A fallback registry may be incomplete; its view must not decide what is orphaned
+            System.err.println(TAG + ": cleanupOrphans: registry is read-only, skipping");
+            return rep;
+        }
+        File scansBase = new File(ctx.getFilesDir(), "scans");
+        Map<String, Set<String>> onDisk = listScanDirs(scansBase);
+        String basePrefix = scansBase.getAbsolutePath() + File.separator;
+        // Taken after listing and before reading the registry: a directory listed above belongs to a scan that
+        // is either still pending here or already committed when the registry is read
+        Set<String> pending = ScanPersister.pendingIds();
+
         Set<String> ids = new HashSet<>();
-        for (CompletedScan s : items) {
+        List<String> missing = new ArrayList<>();
+        List<CompletedScan> normalized = new ArrayList<>();
+        for (CompletedScan s : reg.listAllOrderedByDateDesc()) {
             if (s == null || s.id() == null) continue;
             ids.add(s.id());
             // Check primary filePath; if missing, prune entry and delete its directory
-            String filePath = s.filePath();
-            boolean missing = (filePath == null) || !new File(filePath).exists();
-            if (missing) {
-                // Delete its directory (best-effort)
-                File dir = new File(ctx.getFilesDir(), "scans/" + s.id());
-                rep.deletedFilesInRemove += deleteDirectoryRecursively(dir);
-                try {
-                    reg.remove(s.id());
-                    rep.prunedMissingEntries++;
-                } catch (IOException e) {
-                    System.err.println(TAG + ": cleanupOrphans: failed to remove missing entry id=" + s.id() + ": " + e.getMessage());
-                }
-            } else {
-                // Normalize paths to canonical post-crop outputs if available
-                try {
-                    boolean updated = false;
-                    File canonicalDir = new File(ctx.getFilesDir(), "scans/" + s.id());
-                    File canonicalPage = new File(canonicalDir, "page.jpg");
-                    File canonicalThumb = new File(canonicalDir, "thumb.jpg");
+            if (!exists(s.filePath(), basePrefix, onDisk)) {
+                missing.add(s.id());
+                continue;
+            }
+            // Normalize paths to canonical post-crop outputs if available
+            Set<String> files = onDisk.get(s.id());
+            if (files == null) continue;
+            String newFilePath = s.filePath();
+            if (files.contains("page.jpg")) newFilePath = basePrefix + s.id() + File.separator + "page.jpg";
+            String newThumbPath = s.thumbPath();
+            if (files.contains("thumb.jpg")) newThumbPath = basePrefix + s.id() + File.separator + "thumb.jpg";
+            if (!newFilePath.equals(s.filePath()) || !Objects.equals(newThumbPath, s.thumbPath())) {
+                normalized.add(new CompletedScan(
+                        s.id(),
+                        newFilePath,
+                        s.rotationDeg(),
+                        s.ocrTextPath(),
+                        s.ocrFormat(),
+                        newThumbPath,
+                        s.createdAt(),
+                        s.widthPx(),
+                        s.heightPx(),
+                        null
+                ));
+            }
+        }
 
-                    String newFilePath = s.filePath();
-                    if (canonicalPage.exists() && canonicalPage.isFile()) {
-                        String canon = canonicalPage.getAbsolutePath();
-                        if (!canon.equals(newFilePath)) {
-                            newFilePath = canon;
-                            updated = true;
-                        }
-                    }
-                    String newThumbPath = s.thumbPath();
-                    if (canonicalThumb.exists() && canonicalThumb.isFile()) {
-                        String canonT = canonicalThumb.getAbsolutePath();
-                        if (!canonT.equals(newThumbPath)) {
-                            newThumbPath = canonT;
-                            updated = true;
-                        }
-                    }
-                    if (updated) {
-                        CompletedScan normalized = new CompletedScan(
-                                s.id(),
-                                newFilePath,
-                                s.rotationDeg(),
-                                s.ocrTextPath(),
-                                s.ocrFormat(),
-                                newThumbPath,
-                                s.createdAt(),
-                                s.widthPx(),
-                                s.heightPx(),
-                                s.inMemoryBitmap()
-                        );
-                        try {
-                            reg.remove(s.id());
-                        } catch (IOException ignore) {
-                        }
-                        try {
-                            reg.insert(normalized);
-                        } catch (IOException ignore) {
-                        }
-                    }
-                } catch (Throwable t) {
-                    // ignore normalization errors to keep cleanup best-effort
-                }
+        boolean committed = true;
+        if (!missing.isEmpty() || !normalized.isEmpty()) {
+            try {
+                reg.runBatch(batch -> {
+                    for (String id : missing) batch.remove(id);
+                    for (CompletedScan n : normalized) batch.update(n.id(), cur -> n);
+                });
+                rep.prunedMissingEntries = missing.size();
+            } catch (IOException e) {
+                committed = false;
+                System.err.println(TAG + ": cleanupOrphans: failed to commit " + missing.size() + " removals and "
+                        + normalized.size() + " path updates: " + e.getMessage());
             }
         }
 
-        // Remove orphan directories not referenced by registry
-        File scansBase = new File(ctx.getFilesDir(), "scans");
-        File[] children = scansBase.listFiles();
-        if (children != null) {
-            for (File child : children) {
-                if (child == null || !child.isDirectory()) continue;
-                String name = child.getName();
-                if (!ids.contains(name)) {
-                    int deleted = deleteDirectoryRecursively(child);
-                    if (deleted > 0) rep.deletedOrphanDirs++;
-                }
+        // Delete directories of pruned entries (only once the registry no longer references them)
+        // and orphan directories not referenced by the registry
+        if (committed) {
+            for (String id : missing) {
+                if (onDisk.containsKey(id)) rep.deletedFilesInRemove += deleteDirectoryRecursively(new File(scansBase, id));
             }
         }
+        for (String id : onDisk.keySet()) {
+            if (ids.contains(id) || pending.contains(id)) continue;
+            int deleted = deleteDirectoryRecursively(new File(scansBase, id));
+            if (deleted > 0) rep.deletedOrphanDirs++;
+        }
         return rep;
     }
 
+    /**
+     * Lists files/scans in one pass.
+     *
+     * @return scan id (directory name) -> names of the entries in that directory
+     */
+    private static Map<String, Set<String>> listScanDirs(File scansBase) {
+        Map<String, Set<String>> out = new HashMap<>();
+        File[] children = scansBase.listFiles(File::isDirectory);
+        if (children == null) return out;
+        for (File child : children) {
+            String[] names = child.list();
+            out.put(child.getName(), names != null ? new HashSet<>(Arrays.asList(names)) : new HashSet<>());
+        }
+        return out;
+    }
+
+    /**
+     * Checks a path against the directory listing if it lies directly in a scan directory; other paths
+     * (legacy locations) are probed individually.
+     */
+    private static boolean exists(String path, String basePrefix, Map<String, Set<String>> onDisk) {
+        if (path == null) return false;
+        if (path.startsWith(basePrefix)) {
+            String rel = path.substring(basePrefix.length());
+            int sep = rel.indexOf(File.separatorChar);
+            if (sep > 0 && rel.indexOf(File.separatorChar, sep + 1) < 0) {
+                Set<String> files = onDisk.get(rel.substring(0, sep));
+                return files != null && files.contains(rel.substring(sep + 1));
+            }
+        }
+        return new File(path).exists();
+    }
+
     // Returns number of files deleted (best-effort). Directories count as 1.
     private static int deleteDirectoryRecursively(File dir) {
         if (dir == null || !dir.exists()) return 0;
@@ -0,0 +1,65 @@
+package de.schliweb.makeacopy.data;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Persistence backend of {@link CompletedScansRegistry}. The registry keeps its own in-memory indexes, reads
+ * everything once via {@link #loadAll} and then hands every mutation to {@link #commit}. All calls are made
+ * while holding the registry lock.
+ */
+interface RegistryStore {
+
+    /**
+     * @return all stored entries, in no particular order
+     */
+    List<CompletedScanEntry> loadAll();
+
+    /**
+     * Durably applies the given upserts and removals as one atomic unit. Ids are unique across both lists.
+     *
+     * @throws IOException if the change could not be persisted; nothing has been applied then
+     */
+    void commit(List<CompletedScanEntry> puts, List<String> removes) throws IOException;
+
+    /**
+     * Called after loading and after every commit with the current entries, so that a store can do
+     * amortized housekeeping.
+     */
+    default void maintain(Collection<CompletedScanEntry> current) throws IOException {
+    }
+
+    /**
+     * Rewrites the store into its most compact form.
+     */
+    default void compact(Collection<CompletedScanEntry> current) throws IOException {
+    }
+
+    /**
+     * Replaces the searchable OCR text of a stored scan; stores without a text index ignore it.
+     *
+     * @param id   id of an existing entry
+     * @param text the recognized text; null or empty clears it
+     */
+    default void setText(String id, String text) throws IOException {
+    }
+
+    /**
+     * @return true if commits always fail, e.g. because the store is a read-only fallback. Such a store may
+     * not hold every scan on disk, so nothing may be deleted based on its contents.
+     */
+    default boolean isReadOnly() {
+        return false;
+    }
+
+    /**
+     * Full-text search over the texts set with {@link #setText}.
+     *
+     * @return ids of matching scans, newest first; empty if the store has no text index
+     */
+    default List<String> search(String query, int limit) {
+        return Collections.emptyList();
+    }
+}
@@ -0,0 +1,370 @@
+package de.schliweb.makeacopy.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link RegistryStore} backed by an app-private SQLite database ({@code scan_catalog.db}) using the framework
+ * {@link SQLiteDatabase}.
+ * <p>
+ * Table {@code scans} holds one row per registry entry. The OCR text of each scan is kept in the FTS4 table
+ * {@code scan_text}, keyed by the scan's row id, so that "which page contains X" is answered by the full-text
+ * index instead of opening every {@code text.txt}. Commits run in a single transaction with
+ * {@code synchronous=FULL}, which gives the same durability as the synced JSON journal.
+ * <p>
+ * On first open, an existing JSON registry (snapshot and journal) is imported in one transaction and the
+ * files are renamed to {@code *.migrated}; the text index for the imported scans is then filled from their
+ * {@code text.txt} files on a low-priority background thread.
+ */
+final class ScanCatalog extends SQLiteOpenHelper implements RegistryStore {
+    private static final String TAG = "ScanCatalog";
+
+    static final String DB_NAME = "scan_catalog.db";
+    private static final int DB_VERSION = 1;
+
+    private static final String MIGRATED_SUFFIX = ".migrated";
+    private static final String META_LEGACY_IMPORT = "legacy_import";
+    private static final int BACKFILL_CHUNK = 32;
+
+    private static final String[] COLUMNS = {
+            "id", "file_path", "rotation_deg", "ocr_text_path", "ocr_format", "thumb_path",
+            "created_at", "width_px", "height_px"
+    };
+
+    private ScanCatalog(Context context, String dbName) {
+        super(context, dbName, null, DB_VERSION);
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    /**
+     * Opens the catalog and imports the JSON registry at {@code legacyIndex} if that has not happened yet.
+     *
+     * @param context     application context
+     * @param legacyIndex the JSON registry file used by earlier versions
+     * @return the open catalog
+     * @throws SQLException if the database cannot be opened or the import fails; the JSON files are untouched then
+     */
+    static ScanCatalog open(Context context, File legacyIndex) {
+        return open(context, legacyIndex, DB_NAME);
+    }
+
+    /**
+     * Variant of {@link #open(Context, File)} with a custom database name, so that tests do not touch the
+     * application's catalog.
+     */
+    @VisibleForTesting
+    static ScanCatalog open(Context context, File legacyIndex, String dbName) {
+        ScanCatalog catalog = new ScanCatalog(context, dbName);
+        SQLiteDatabase db = catalog.getWritableDatabase();
+        catalog.importLegacy(db, legacyIndex);
+        return catalog;
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        db.execSQL("PRAGMA synchronous = FULL");
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE scans ("
+                + "_id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "id TEXT NOT NULL UNIQUE, "
+                + "file_path TEXT, "
+                + "rotation_deg INTEGER NOT NULL DEFAULT 0, "
+                + "ocr_text_path TEXT, "
+                + "ocr_format TEXT, "
+                + "thumb_path TEXT, "
+                + "created_at INTEGER NOT NULL, "
+                + "width_px INTEGER NOT NULL DEFAULT 0, "
+                + "height_px INTEGER NOT NULL DEFAULT 0)");
+        db.execSQL("CREATE INDEX scans_created_at ON scans(created_at, id)");
+        db.execSQL("CREATE TABLE meta (key TEXT PRIMARY KEY, value TEXT)");
+        try {
+            db.execSQL("CREATE VIRTUAL TABLE scan_text USING fts4(body, tokenize=unicode61)");
+        } catch (SQLException e) {
+            // Tokenizer not compiled in; the simple tokenizer only folds ASCII case
+            System.err.println(TAG + ": unicode61 unavailable, using simple tokenizer: " + e.getMessage());
+            db.execSQL("CREATE VIRTUAL TABLE scan_text USING fts4(body)");
+        }
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // first schema version
+    }
+
+    @Override
+    public List<CompletedScanEntry> loadAll() {
+        List<CompletedScanEntry> out = new ArrayList<>();
+        try (Cursor c = getReadableDatabase().query("scans", COLUMNS, null, null, null, null, null)) {
+            while (c.moveToNext()) {
+                out.add(new CompletedScanEntry(
+                        c.getString(0), c.getString(1), c.getInt(2), c.getString(3), c.getString(4),
+                        c.getString(5), c.getLong(6), c.getInt(7), c.getInt(8)));
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public void commit(List<CompletedScanEntry> puts, List<String> removes) throws IOException {
+        try {
+            SQLiteDatabase db = getWritableDatabase();
+            db.beginTransaction();
+            try {
+                for (String id : removes) {
+                    db.execSQL("DELETE FROM scan_text WHERE docid IN (SELECT _id FROM scans WHERE id = ?)", new Object[]{id});
+                    db.delete("scans", "id = ?", new String[]{id});
+                }
+                for (CompletedScanEntry e : puts) {
+                    // no UPSERT before SQLite 3.24; REPLACE would assign a new row id and orphan the text
+                    ContentValues cv = toValues(e);
+                    if (db.update("scans", cv, "id = ?", new String[]{e.id}) == 0) {
+                        db.insertOrThrow("scans", null, cv);
+                    }
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } catch (SQLException e) {
+            throw new IOException(TAG + ": commit failed", e);
+        }
+    }
+
+    @Override
+    public void setText(String id, String text) throws IOException {
+        try {
+            SQLiteDatabase db = getWritableDatabase();
+            db.beginTransaction();
+            try {
+                writeText(db, id, text, true);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } catch (SQLException e) {
+            throw new IOException(TAG + ": setText failed", e);
+        }
+    }
+
+    @Override
+    public List<String> search(String query, int limit) {
+        String match = matchQuery(query);
+        if (match == null || limit <= 0) return Collections.emptyList();
+        List<String> ids = new ArrayList<>();
+        try (Cursor c = getReadableDatabase().rawQuery(
+                "SELECT s.id FROM scan_text JOIN scans s ON s._id = scan_text.docid"
+                        + " WHERE scan_text MATCH ? ORDER BY s.created_at DESC, s.id DESC LIMIT " + limit,
+                new String[]{match})) {
+            while (c.moveToNext()) ids.add(c.getString(0));
+        } catch (SQLException e) {
+            System.err.println(TAG + ": search failed: " + e.getMessage());
+        }
+        return ids;
+    }
+
+    /**
+     * Turns free text into an FTS query: every run of letters and digits becomes a quoted term, so operators
+     * and punctuation typed by the user are never interpreted; the last term also matches as a prefix.
+     *
+     * @return the MATCH expression, or null if the query contains no searchable term
+     */
+    static String matchQuery(String query) {
+        if (query == null) return null;
+        List<String> terms = new ArrayList<>();
+        for (String t : query.split("[^\\p{L}\\p{M}\\p{N}]+")) {
+            if (!t.isEmpty()) terms.add(t);
+        }
+        if (terms.isEmpty()) return null;
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < terms.size(); i++) {
+            if (i > 0) sb.append(' ');
+            sb.append('"').append(terms.get(i));
+            if (i == terms.size() - 1) sb.append('*');
+            sb.append('"');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Replaces (or, if {@code replace} is false, only adds) the text of scan {@code id}.
+     *
+     * @return true if a text row was written
+     */
+    private static boolean writeText(SQLiteDatabase db, String id, String text, boolean replace) {
+        Long rowId = null;
+        try (Cursor c = db.rawQuery("SELECT _id FROM scans WHERE id = ?", new String[]{id})) {
+            if (c.moveToFirst()) rowId = c.getLong(0);
+        }
+        if (rowId == null) return false;
+        if (!replace) {
+            try (Cursor c = db.rawQuery("SELECT 1 FROM scan_text WHERE docid = ?", new String[]{String.valueOf(rowId)})) {
+                if (c.moveToFirst()) return false;
+            }
+        }
+        db.execSQL("DELETE FROM scan_text WHERE docid = ?", new Object[]{rowId});
+        if (text == null || text.trim().isEmpty()) return false;
+        db.execSQL("INSERT INTO scan_text(docid, body) VALUES (?, ?)", new Object[]{rowId, text});
+        return true;
+    }
+
+    private static ContentValues toValues(CompletedScanEntry e) {
+        ContentValues cv = new ContentValues();
+        cv.put("id", e.id);
+        cv.put("file_path", e.filePath);
+        cv.put("rotation_deg", e.rotationDeg);
+        cv.put("ocr_text_path", e.ocrTextPath);
+        cv.put("ocr_format", e.ocrFormat);
+        cv.put("thumb_path", e.thumbPath);
+        cv.put("created_at", e.createdAt);
+        cv.put("width_px", e.widthPx);
+        cv.put("height_px", e.heightPx);
+        return cv;
+    }
+
+    // ===== Import of the JSON registry =====
+
+    /**
+     * Copies the entries of the JSON registry into the catalog. The import is recorded in the same transaction,
+     * so it happens exactly once even if renaming the old files fails afterwards.
+     */
+    private void importLegacy(SQLiteDatabase db, File legacyIndex) {
+        File journal = JournalRegistryStore.journalFileFor(legacyIndex);
+        if (!legacyIndex.exists() && !journal.exists()) return;
+        try (Cursor c = db.rawQuery("SELECT 1 FROM meta WHERE key = ?", new String[]{META_LEGACY_IMPORT})) {
+            if (c.moveToFirst()) {
+                retire(legacyIndex);
+                retire(journal);
+                return;
+            }
+        }
+        List<CompletedScanEntry> items = new JournalRegistryStore(legacyIndex).loadAll();
+        db.beginTransaction();
+        try {
+            for (CompletedScanEntry e : items) {
+                if (e.id == null) continue;
+                db.insertWithOnConflict("scans", null, toValues(e), SQLiteDatabase.CONFLICT_IGNORE);
+            }
+            ContentValues meta = new ContentValues();
+            meta.put("key", META_LEGACY_IMPORT);
+            meta.put("value", String.valueOf(System.currentTimeMillis()));
+            db.insertOrThrow("meta", null, meta);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        System.err.println(TAG + ": imported " + items.size() + " scans from " + legacyIndex.getName());
+        retire(legacyIndex);
+        retire(journal);
+        startTextBackfill(items);
+    }
+
+    /**
+     * Opens the JSON registry read-only for use while the catalog cannot be opened: the live files if they
+     * still exist (not imported yet, or not yet renamed), otherwise the {@code *.migrated} copies. After the
+     * import these lack newer changes, which is why writes and orphan cleanup are disabled.
+     *
+     * @param legacyIndex the JSON registry file used by earlier versions
+     * @return a read-only store
+     */
+    static RegistryStore readOnlyFallback(File legacyIndex) {
+        File journal = JournalRegistryStore.journalFileFor(legacyIndex);
+        if (legacyIndex.exists() || journal.exists()) {
+            return new JournalRegistryStore(legacyIndex, journal, true);
+        }
+        return new JournalRegistryStore(migratedFile(legacyIndex), migratedFile(journal), true);
+    }
+
+    private static File migratedFile(File f) {
+        return new File(f.getParentFile(), f.getName() + MIGRATED_SUFFIX);
+    }
+
+    private static void retire(File f) {
+        if (!f.exists()) return;
+        File target = migratedFile(f);
+        //noinspection ResultOfMethodCallIgnored
+        target.delete();
+        if (!f.renameTo(target)) {
+            System.err.println(TAG + ": failed to retire " + f.getName());
+        }
+    }
+
+    private void startTextBackfill(List<CompletedScanEntry> items) {
+        if (items.isEmpty()) return;
+        Thread t = new Thread(() -> backfillText(items), "scan-catalog-backfill");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        t.start();
+    }
+
+    /**
+     * Indexes the {@code text.txt} of imported scans in chunks. Texts set meanwhile by new OCR results are
+     * not overwritten, and scans removed meanwhile are skipped.
+     */
+    private void backfillText(List<CompletedScanEntry> items) {
+        int indexed = 0;
+        List<String> ids = new ArrayList<>(BACKFILL_CHUNK);
+        List<String> texts = new ArrayList<>(BACKFILL_CHUNK);
+        for (int i = 0; i < items.size(); i++) {
+            CompletedScanEntry e = items.get(i);
+            File txt = textFileOf(e);
+            if (e.id != null && txt != null && txt.isFile()) {
+                try {
+                    texts.add(new String(Files.readAllBytes(txt.toPath()), StandardCharsets.UTF_8));
+                    ids.add(e.id);
+                } catch (Throwable t) {
+                    System.err.println(TAG + ": backfill: cannot read text of " + e.id + ": " + t.getMessage());
+                }
+            }
+            if (ids.size() == BACKFILL_CHUNK || (i == items.size() - 1 && !ids.isEmpty())) {
+                try {
+                    SQLiteDatabase db = getWritableDatabase();
+                    db.beginTransaction();
+                    try {
+                        for (int k = 0; k < ids.size(); k++) {
+                            if (writeText(db, ids.get(k), texts.get(k), false)) indexed++;
+                        }
+                        db.setTransactionSuccessful();
+                    } finally {
+                        db.endTransaction();
+                    }
+                } catch (Throwable t) {
+                    System.err.println(TAG + ": backfill failed: " + t.getMessage());
+                    return;
+                }
+                ids.clear();
+                texts.clear();
+            }
+        }
+        System.err.println(TAG + ": backfill indexed " + indexed + " texts");
+    }
+
+    /**
+     * @return the plain text file of a scan: its OCR path for plain text, otherwise {@code text.txt} in the
+     * scan directory
+     */
+    private static File textFileOf(CompletedScanEntry e) {
+        if (e.ocrTextPath != null && (e.ocrFormat == null || "plain".equals(e.ocrFormat))) {
+            return new File(e.ocrTextPath);
+        }
+        String anchor = e.ocrTextPath != null ? e.ocrTextPath : e.filePath;
+        if (anchor == null) return null;
+        File dir = new File(anchor).getParentFile();
+        return dir != null ? new File(dir, "text.txt") : null;
+    }
+}
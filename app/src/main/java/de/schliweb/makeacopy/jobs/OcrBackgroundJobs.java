@@ -1,5 +1,6 @@
 package de.schliweb.makeacopy.jobs;
 
+import android.app.ActivityManager;
 import android.content.Context;
 import android.content.Intent;
 import android.graphics.Bitmap;
@@ -9,21 +10,33 @@ import de.schliweb.makeacopy.data.CompletedScansRegistry;
 import de.schliweb.makeacopy.ui.export.session.CompletedScan;
 import de.schliweb.makeacopy.utils.OCRHelper;
 import de.schliweb.makeacopy.utils.OCRUtils;
-import de.schliweb.makeacopy.utils.RecognizedWord;
+import de.schliweb.makeacopy.utils.SessionOcrUpdater;
 
-import java.io.File;
-import java.io.FileOutputStream;
-import java.nio.charset.StandardCharsets;
-import java.util.Collections;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Minimal background OCR job runner without external dependencies.
- * Ensures only one OCR job per page id runs at a time.
- * After success/failure, broadcasts ACTION_OCR_UPDATED with extras.
+ * Background OCR job scheduler without external dependencies.
+ * <p>
+ * Jobs are kept in a priority queue and executed by a small worker pool:
+ * - Priority: explicitly requested pages ({@link #PRIORITY_FOREGROUND}) run before pages currently
+ * visible in the export filmstrip ({@link #PRIORITY_VISIBLE}), which run before everything else.
+ * Within a priority, jobs run in submission order.
+ * - Coalescing: at most one job per page id is queued or running; repeated requests update the
+ * queued job (language, higher priority) instead of adding another one.
+ * - Cancellation: {@link #cancel(String)} drops a queued job and discards the result of a running one.
+ * - Metrics: {@link #getMetrics()} reports queue length, throughput and average job duration.
+ * <p>
+ * After success/failure, broadcasts ACTION_OCR_UPDATED with extras. Cancelled jobs do not broadcast.
  */
 public final class OcrBackgroundJobs {
     private static final String TAG = "OcrBackgroundJobs";
@@ -32,12 +45,76 @@ public final class OcrBackgroundJobs {
     public static final String EXTRA_PAGE_ID = "page_id";
     public static final String EXTRA_SUCCESS = "success";
 
-    private static final ExecutorService EXEC = Executors.newSingleThreadExecutor();
-    private static final Set<String> running = Collections.synchronizedSet(new HashSet<>());
+    /**
+     * Page explicitly requested by the user or shown in the preview.
+     */
+    public static final int PRIORITY_FOREGROUND = 0;
+    /**
+     * Page currently visible in the page list.
+     */
+    public static final int PRIORITY_VISIBLE = 1;
+    /**
+     * Default priority for batch and reprocessing work.
+     */
+    public static final int PRIORITY_NORMAL = 2;
+
+    private static final int MAX_WORKERS = 2;
+
+    private static final Object LOCK = new Object();
+    private static final PriorityQueue<Job> queue = new PriorityQueue<>();
+    private static final Map<String, Job> queuedById = new HashMap<>();
+    private static final Map<String, Job> runningById = new HashMap<>();
+    private static final Set<String> visiblePages = new HashSet<>();
+    private static long nextSeq = 0;
+    private static ExecutorService exec;
+
+    // Metrics (guarded by LOCK)
+    private static long completed = 0;
+    private static long failed = 0;
+    private static long cancelled = 0;
+    private static long totalJobNanos = 0;
+    private static long firstStartMs = 0;
+    private static long lastEndMs = 0;
 
     private OcrBackgroundJobs() {
     }
 
+    /**
+     * Snapshot of the scheduler state and throughput.
+     *
+     * @param queued         jobs waiting to run
+     * @param running        jobs currently running
+     * @param completed      successfully finished jobs since process start
+     * @param failed         failed jobs since process start
+     * @param cancelled      cancelled jobs since process start
+     * @param avgJobMs       average duration of finished jobs in milliseconds
+     * @param pagesPerMinute finished jobs per minute between the first start and the last finish
+     */
+    public record Metrics(int queued, int running, long completed, long failed, long cancelled,
+                          double avgJobMs, double pagesPerMinute) {
+    }
+
+    private static final class Job implements Comparable<Job> {
+        final String pageId;
+        volatile String language;
+        int priority;
+        long seq;
+        volatile boolean cancelled;
+
+        Job(String pageId, String language, int priority, long seq) {
+            this.pageId = pageId;
+            this.language = language;
+            this.priority = priority;
+            this.seq = seq;
+        }
+
+        @Override
+        public int compareTo(Job o) {
+            if (priority != o.priority) return Integer.compare(priority, o.priority);
+            return Long.compare(seq, o.seq);
+        }
+    }
+
     /**
      * Enqueues a background reprocessing task for Optical Character Recognition (OCR)
      * on a scanned page. The method will attempt to generate and store OCR results
@@ -49,85 +126,191 @@ public final class OcrBackgroundJobs {
      *                    If null or empty, a default language will be used.
      */
     public static void enqueueReprocess(Context ctx, String pageId, String languageOpt) {
+        enqueueReprocess(ctx, pageId, languageOpt, PRIORITY_NORMAL);
+    }
+
+    /**
+     * Enqueues a background OCR job with the given priority. If a job for the page is already queued,
+     * it is updated (language, and priority if higher) instead of queuing a duplicate; if one is
+     * already running, the request is dropped.
+     *
+     * @param ctx         The application context used for accessing system resources.
+     * @param pageId      The unique identifier of the scanned page to be reprocessed.
+     * @param languageOpt Optional language code; if null or empty, a default language will be used.
+     * @param priority    one of {@link #PRIORITY_FOREGROUND}, {@link #PRIORITY_VISIBLE}, {@link #PRIORITY_NORMAL}
+     */
+    public static void enqueueReprocess(Context ctx, String pageId, String languageOpt, int priority) {
         if (ctx == null || pageId == null) return;
         final Context app = ctx.getApplicationContext();
-        synchronized (running) {
-            if (running.contains(pageId)) {
+        synchronized (LOCK) {
+            if (runningById.containsKey(pageId)) {
                 Log.d(TAG, "Job already running for pageId=" + pageId);
                 return;
             }
-            running.add(pageId);
+            int effPriority = visiblePages.contains(pageId) ? Math.min(priority, PRIORITY_VISIBLE) : priority;
+            Job queued = queuedById.get(pageId);
+            if (queued != null) {
+                queued.language = languageOpt;
+                if (effPriority < queued.priority) reprioritizeLocked(queued, effPriority);
+                Log.d(TAG, "Coalesced request for pageId=" + pageId + " priority=" + queued.priority);
+                return;
+            }
+            Job job = new Job(pageId, languageOpt, effPriority, nextSeq++);
+            queue.add(job);
+            queuedById.put(pageId, job);
+            executorLocked(app).execute(() -> runNext(app));
         }
-        EXEC.execute(() -> {
-            boolean success = false;
-            try {
-                CompletedScansRegistry reg = CompletedScansRegistry.get(app);
-                CompletedScan s = null;
-                for (CompletedScan it : reg.listAllOrderedByDateDesc()) {
-                    if (it != null && pageId.equals(it.id())) {
-                        s = it;
-                        break;
-                    }
-                }
-                if (s == null) throw new RuntimeException("Entry not found in registry: " + pageId);
-                Bitmap bmp = null;
-                if (s.filePath() != null) bmp = BitmapFactory.decodeFile(s.filePath());
-                if (bmp == null && s.thumbPath() != null) bmp = BitmapFactory.decodeFile(s.thumbPath());
-                if (bmp == null) throw new RuntimeException("No bitmap available for OCR");
-
-                OCRHelper helper = new OCRHelper(app);
-                // Determine effective language: use provided, else map from system locale
-                String effLang = OCRUtils.resolveEffectiveLanguage(languageOpt);
-                try {
-                    // Set desired language before init to avoid immediate re-init
-                    if (effLang != null && !effLang.trim().isEmpty()) {
-                        helper.setLanguage(effLang);
-                    }
-                } catch (Throwable ignore) {
-                }
-                if (!helper.initTesseract()) throw new RuntimeException("Tesseract init failed");
-                OCRHelper.OcrResultWords res = helper.runOcrWithWords(bmp);
-                String text = (res != null && res.text != null) ? res.text : "";
-
-                File dir = new File(app.getFilesDir(), "scans/" + s.id());
-                if (!dir.exists()) //noinspection ResultOfMethodCallIgnored
-                    dir.mkdirs();
-
-                // Write plain text as fallback
-                File txt = new File(dir, "text.txt");
-                try (FileOutputStream fos = new FileOutputStream(txt)) {
-                    fos.write(text.getBytes(StandardCharsets.UTF_8));
-                    fos.flush();
-                }
-                // Write words.json
-                File wordsFile = new File(dir, "words.json");
-                try (FileOutputStream wos = new FileOutputStream(wordsFile)) {
-                    String json = de.schliweb.makeacopy.utils.WordsJson.toWordsJson(res != null ? res.words : null);
-                    wos.write(json.getBytes(StandardCharsets.UTF_8));
-                    wos.flush();
-                }
+    }
 
-                // Update registry to prefer words_json
-                CompletedScan updated = new CompletedScan(
-                        s.id(), s.filePath(), s.rotationDeg(), wordsFile.getAbsolutePath(), "words_json",
-                        s.thumbPath(), s.createdAt(), s.widthPx(), s.heightPx(), s.inMemoryBitmap());
-                try {
-                    reg.remove(s.id());
-                } catch (Throwable ignore) {
-                }
-                try {
-                    reg.insert(updated);
-                } catch (Throwable e) {
-                    Log.w(TAG, "Failed to insert updated OCR entry", e);
+    /**
+     * Declares which pages are currently visible. Queued jobs for these pages are moved ahead of
+     * normal-priority work; pages that are no longer visible keep their position.
+     *
+     * @param pageIds ids of the visible pages (may be empty)
+     */
+    public static void setVisiblePages(Collection<String> pageIds) {
+        synchronized (LOCK) {
+            visiblePages.clear();
+            if (pageIds == null) return;
+            for (String id : pageIds) {
+                if (id == null) continue;
+                visiblePages.add(id);
+                Job queued = queuedById.get(id);
+                if (queued != null && queued.priority > PRIORITY_VISIBLE) reprioritizeLocked(queued, PRIORITY_VISIBLE);
+            }
+        }
+    }
+
+    /**
+     * Moves a queued job for the given page to the front of the queue, e.g. when the page is opened in the preview.
+     *
+     * @param pageId the page id
+     */
+    public static void prioritize(String pageId) {
+        if (pageId == null) return;
+        synchronized (LOCK) {
+            Job queued = queuedById.get(pageId);
+            if (queued != null && queued.priority > PRIORITY_FOREGROUND) reprioritizeLocked(queued, PRIORITY_FOREGROUND);
+        }
+    }
+
+    /**
+     * Cancels the job for the given page: a queued job is removed; a running job finishes its current
+     * recognition step but its result is discarded and neither files nor the registry are updated.
+     *
+     * @param pageId the page id
+     * @return true if a queued or running job was cancelled
+     */
+    public static boolean cancel(String pageId) {
+        if (pageId == null) return false;
+        synchronized (LOCK) {
+            Job queued = queuedById.remove(pageId);
+            if (queued != null) {
+                queue.remove(queued);
+                cancelled++;
+                Log.d(TAG, "Cancelled queued job for pageId=" + pageId);
+                return true;
+            }
+            Job running = runningById.get(pageId);
+            if (running != null && !running.cancelled) {
+                running.cancelled = true;
+                Log.d(TAG, "Cancelling running job for pageId=" + pageId);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * @return true if a job for the given page is queued or running
+     */
+    public static boolean isPending(String pageId) {
+        if (pageId == null) return false;
+        synchronized (LOCK) {
+            return queuedById.containsKey(pageId) || runningById.containsKey(pageId);
+        }
+    }
+
+    /**
+     * @return a snapshot of queue state and throughput
+     */
+    public static Metrics getMetrics() {
+        synchronized (LOCK) {
+            long finished = completed + failed;
+            double avg = finished > 0 ? (totalJobNanos / 1_000_000.0) / finished : 0.0;
+            long spanMs = lastEndMs - firstStartMs;
+            double perMinute = (finished > 0 && spanMs > 0) ? finished * 60_000.0 / spanMs : 0.0;
+            return new Metrics(queue.size(), runningById.size(), completed, failed, cancelled, avg, perMinute);
+        }
+    }
+
+    private static void reprioritizeLocked(Job job, int priority) {
+        queue.remove(job);
+        job.priority = priority;
+        queue.add(job);
+    }
+
+    /**
+     * Executor with one token per queued job; each token runs whichever job has the highest priority
+     * at the time a worker becomes free.
+     */
+    private static ExecutorService executorLocked(Context app) {
+        if (exec == null) {
+            int workers = computeWorkerCount(app);
+            AtomicInteger n = new AtomicInteger();
+            ThreadPoolExecutor tpe = new ThreadPoolExecutor(workers, workers, 30, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), r -> {
+                Thread t = new Thread(r, "ocr-job-" + n.incrementAndGet());
+                t.setDaemon(true);
+                t.setPriority(Thread.NORM_PRIORITY - 1);
+                return t;
+            });
+            tpe.allowCoreThreadTimeOut(true);
+            exec = tpe;
+            Log.i(TAG, "OCR job pool started with " + workers + " worker(s)");
+        }
+        return exec;
+    }
+
+    private static int computeWorkerCount(Context app) {
+        int workers = Math.max(1, Math.min(MAX_WORKERS, Runtime.getRuntime().availableProcessors() / 2));
+        try {
+            ActivityManager am = (ActivityManager) app.getSystemService(Context.ACTIVITY_SERVICE);
+            if (am != null && am.isLowRamDevice()) workers = 1;
+        } catch (Throwable ignore) {
+        }
+        return workers;
+    }
+
+    private static void runNext(Context app) {
+        Job job;
+        synchronized (LOCK) {
+            job = queue.poll();
+            if (job == null) return; // coalesced or cancelled
+            queuedById.remove(job.pageId);
+            runningById.put(job.pageId, job);
+            if (firstStartMs == 0) firstStartMs = System.currentTimeMillis();
+        }
+        long t0 = System.nanoTime();
+        boolean success = false;
+        try {
+            success = runJob(app, job);
+        } finally {
+            synchronized (LOCK) {
+                runningById.remove(job.pageId);
+                if (job.cancelled) {
+                    cancelled++;
+                } else {
+                    if (success) completed++;
+                    else failed++;
+                    totalJobNanos += System.nanoTime() - t0;
+                    lastEndMs = System.currentTimeMillis();
                 }
-                success = true;
-            } catch (Throwable t) {
-                Log.e(TAG, "Background OCR failed", t);
-            } finally {
-                running.remove(pageId);
+            }
+            if (!job.cancelled) {
                 // Notify UI (if alive)
                 Intent intent = new Intent(ACTION_OCR_UPDATED);
-                intent.putExtra(EXTRA_PAGE_ID, pageId);
+                intent.putExtra(EXTRA_PAGE_ID, job.pageId);
                 intent.putExtra(EXTRA_SUCCESS, success);
                 try {
                     intent.setPackage(app.getPackageName()); // keep broadcast within app
@@ -135,7 +318,69 @@ public final class OcrBackgroundJobs {
                 } catch (Throwable ignore) {
                 }
             }
-        });
+            Log.d(TAG, "Job finished pageId=" + job.pageId + " success=" + success + " cancelled=" + job.cancelled + " " + getMetrics());
+        }
     }
 
+    private static boolean runJob(Context app, Job job) {
+        final String pageId = job.pageId;
+        OCRHelper helper = null;
+        try {
+            CompletedScan s = CompletedScansRegistry.get(app).getById(pageId);
+            if (s == null) throw new RuntimeException("Entry not found in registry: " + pageId);
+            if (job.cancelled) return false;
+            // Determine effective language: use provided, else map from system locale
+            String effLang = OCRUtils.resolveEffectiveLanguage(job.language);
+
+            // An unchanged page recognized with the same settings before: reuse the stored result
+            OCRHelper.OcrResultWords cached = SessionOcrUpdater.lookupCachedOcr(app, s, effLang);
+            if (cached != null) {
+                if (job.cancelled) return false;
+                SessionOcrUpdater.persistOcrResult(app, s, cached);
+                Log.d(TAG, "Reused cached OCR result for pageId=" + pageId);
+                return true;
+            }
+
+            Bitmap bmp = null;
+            boolean fromPage = false;
+            if (s.filePath() != null) {
+                bmp = BitmapFactory.decodeFile(s.filePath());
+                fromPage = bmp != null;
+            }
+            if (bmp == null && s.thumbPath() != null) bmp = BitmapFactory.decodeFile(s.thumbPath());
+            if (bmp == null) throw new RuntimeException("No bitmap available for OCR");
+
+            helper = new OCRHelper(app);
+            // Cached below under the page file's hash, which avoids hashing the decoded pixels
+            helper.setResultCacheEnabled(false);
+            try {
+                // Set desired language before init to avoid immediate re-init
+                if (effLang != null && !effLang.trim().isEmpty()) {
+                    helper.setLanguage(effLang);
+                }
+            } catch (Throwable ignore) {
+            }
+            if (!helper.initTesseract()) throw new RuntimeException("Tesseract init failed");
+            if (job.cancelled) return false;
+            OCRHelper.OcrResultWords res = helper.runOcrWithWords(bmp);
+            if (job.cancelled) {
+                Log.d(TAG, "Discarding OCR result of cancelled job pageId=" + pageId);
+                return false;
+            }
+            SessionOcrUpdater.persistOcrResult(app, s, res);
+            if (fromPage && res.meanConfidence != null) SessionOcrUpdater.storeCachedOcr(app, s, effLang, res);
+            return true;
+        } catch (Throwable t) {
+            Log.e(TAG, "Background OCR failed", t);
+            return false;
+        } finally {
+            // Return the engine to the pool so the next job starts warm
+            if (helper != null) {
+                try {
+                    helper.shutdown();
+                } catch (Throwable ignore) {
+                }
+            }
+        }
+    }
 }
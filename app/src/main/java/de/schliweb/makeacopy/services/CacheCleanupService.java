@@ -10,6 +10,9 @@ import android.os.IBinder;
 import android.os.Looper;
 import android.util.Log;
 import androidx.annotation.Nullable;
+import de.schliweb.makeacopy.utils.DerivedPageCache;
+import de.schliweb.makeacopy.utils.OcrResultCache;
+import de.schliweb.makeacopy.utils.TessEnginePool;
 
 import java.io.File;
 import java.util.Arrays;
@@ -304,6 +307,11 @@ public class CacheCleanupService extends Service {
             boolean shouldCleanupByTime = timeSinceLastCleanup >= cleanupIntervalMs;
             boolean shouldCleanupByMemory = isMemoryUsageHigh();
 
+            if (shouldCleanupByMemory) {
+                // Warm OCR engines hold tens of MB per language; drop the idle ones first
+                TessEnginePool.releaseIdle();
+            }
+
             if (shouldCleanupByTime || shouldCleanupByMemory) {
                 Log.i(TAG, String.format("Cleanup triggered: byTime=%b, byMemory=%b", shouldCleanupByTime, shouldCleanupByMemory));
                 performComprehensiveCleanup();
@@ -377,6 +385,8 @@ public class CacheCleanupService extends Service {
             int debugFilesCleanup = cleanupDebugImages();
             int cameraFilesCleanup = cleanupOldCameraImages();
             int tempFilesCleanup = cleanupTempFiles();
+            int variantsCleanup = DerivedPageCache.trim(this);
+            int ocrCleanup = OcrResultCache.trim(this);
 
             // Force garbage collection
             System.gc();
@@ -386,8 +396,8 @@ public class CacheCleanupService extends Service {
 
             long duration = System.currentTimeMillis() - startTime;
 
-            Log.i(TAG, String.format("Cache cleanup completed in %dms. Files removed: debug=%d, camera=%d, temp=%d",
-                    duration, debugFilesCleanup, cameraFilesCleanup, tempFilesCleanup));
+            Log.i(TAG, String.format("Cache cleanup completed in %dms. Files removed: debug=%d, camera=%d, temp=%d, variants=%d, ocr=%d",
+                    duration, debugFilesCleanup, cameraFilesCleanup, tempFilesCleanup, variantsCleanup, ocrCleanup));
 
         } catch (Exception e) {
             Log.e(TAG, "Error during comprehensive cleanup", e);
@@ -680,6 +690,8 @@ public class CacheCleanupService extends Service {
             int debugFilesCleanup = cleanupDebugImagesDirect(context);
             int cameraFilesCleanup = cleanupOldCameraImagesDirect(context);
             int tempFilesCleanup = cleanupTempFilesDirect(context);
+            int variantsCleanup = DerivedPageCache.trim(context);
+            int ocrCleanup = OcrResultCache.trim(context);
 
             // Force garbage collection
             System.gc();
@@ -689,8 +701,8 @@ public class CacheCleanupService extends Service {
 
             long duration = System.currentTimeMillis() - startTime;
 
-            Log.i(TAG, String.format("Direct cache cleanup completed in %dms. Files removed: debug=%d, camera=%d, temp=%d",
-                    duration, debugFilesCleanup, cameraFilesCleanup, tempFilesCleanup));
+            Log.i(TAG, String.format("Direct cache cleanup completed in %dms. Files removed: debug=%d, camera=%d, temp=%d, variants=%d, ocr=%d",
+                    duration, debugFilesCleanup, cameraFilesCleanup, tempFilesCleanup, variantsCleanup, ocrCleanup));
 
         } catch (Exception e) {
             Log.e(TAG, "Error during direct cache cleanup", e);
@@ -858,6 +870,31 @@ public class CacheCleanupService extends Service {
         return deletedCount;
     }
 
+    /**
+     * Checks whether the current memory usage exceeds the configured threshold without requiring a
+     * running service instance. Used by memory-hungry caches (e.g. pooled OCR engines) to decide
+     * whether to keep resources around.
+     *
+     * @param context The context used to read the configured threshold from SharedPreferences.
+     * @return true if memory usage is above the configured threshold; false otherwise or on error.
+     */
+    public static boolean isMemoryUsageHighStatic(Context context) {
+        try {
+            int threshold = DEFAULT_MEMORY_THRESHOLD_PERCENT;
+            if (context != null) {
+                SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+                threshold = prefs.getInt(PREF_MEMORY_THRESHOLD_PERCENT, DEFAULT_MEMORY_THRESHOLD_PERCENT);
+            }
+            Runtime runtime = Runtime.getRuntime();
+            long usedMemory = runtime.totalMemory() - runtime.freeMemory();
+            double memoryUsagePercent = (double) usedMemory / runtime.maxMemory() * 100;
+            return memoryUsagePercent > threshold;
+        } catch (Exception e) {
+            Log.e(TAG, "Error checking memory usage", e);
+            return false;
+        }
+    }
+
     /**
      * Logs the memory usage including the used memory, maximum memory, and usage percentage.
      *
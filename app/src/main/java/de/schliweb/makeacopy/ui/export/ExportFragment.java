@@ -28,6 +28,7 @@ import de.schliweb.makeacopy.ui.ocr.OCRViewModel;
 import de.schliweb.makeacopy.utils.*;
 import de.schliweb.makeacopy.utils.jpeg.JpegExportOptions;
 import de.schliweb.makeacopy.utils.jpeg.JpegExporter;
+import de.schliweb.makeacopy.utils.jpeg.JpegZipExporter;
 
 import java.io.File;
 import java.io.OutputStream;
@@ -202,6 +203,11 @@ public class ExportFragment extends Fragment {
         pagesAdapter = new de.schliweb.makeacopy.ui.export.session.ExportPagesAdapter(new de.schliweb.makeacopy.ui.export.session.ExportPagesAdapter.Callbacks() {
             @Override
             public void onRemoveClicked(int position) {
+                List<de.schliweb.makeacopy.ui.export.session.CompletedScan> cur = exportSessionViewModel.getPages().getValue();
+                if (cur != null && position >= 0 && position < cur.size() && cur.get(position) != null) {
+                    // Page leaves the session: pending background OCR for it is no longer needed
+                    de.schliweb.makeacopy.jobs.OcrBackgroundJobs.cancel(cur.get(position).id());
+                }
                 exportSessionViewModel.removeAt(position);
             }
 
@@ -211,6 +217,7 @@ public class ExportFragment extends Fragment {
                 if (cur == null || position < 0 || position >= cur.size()) return;
                 de.schliweb.makeacopy.ui.export.session.CompletedScan sel = cur.get(position);
                 if (sel == null) return;
+                de.schliweb.makeacopy.jobs.OcrBackgroundJobs.prioritize(sel.id());
                 int[] sz = de.schliweb.makeacopy.utils.ViewSizeUtils.sizeOrDefault(binding != null ? binding.documentPreview : null, 2048, 2048);
                 int reqW = sz[0];
                 int reqH = sz[1];
@@ -259,6 +266,16 @@ public class ExportFragment extends Fragment {
                 }
             };
             new androidx.recyclerview.widget.ItemTouchHelper(cb).attachToRecyclerView(binding.pagesRecycler);
+
+            // Let background OCR work on the pages the user is looking at first
+            binding.pagesRecycler.addOnScrollListener(new androidx.recyclerview.widget.RecyclerView.OnScrollListener() {
+                @Override
+                public void onScrollStateChanged(@NonNull androidx.recyclerview.widget.RecyclerView recyclerView, int newState) {
+                    if (newState == androidx.recyclerview.widget.RecyclerView.SCROLL_STATE_IDLE) {
+                        updateVisibleOcrPages(lm);
+                    }
+                }
+            });
         }
         // Observe pages to update UI
         exportSessionViewModel.getPages().observe(getViewLifecycleOwner(), pages -> {
@@ -404,6 +421,12 @@ public class ExportFragment extends Fragment {
                         .setTitle(getString(R.string.confirm_clear_pages_title))
                         .setMessage(getString(R.string.confirm_clear_pages_message))
                         .setPositiveButton(R.string.confirm, (dialogInterface, which) -> {
+                            List<de.schliweb.makeacopy.ui.export.session.CompletedScan> old = exportSessionViewModel.getPages().getValue();
+                            if (old != null) {
+                                for (de.schliweb.makeacopy.ui.export.session.CompletedScan p : old) {
+                                    if (p != null) de.schliweb.makeacopy.jobs.OcrBackgroundJobs.cancel(p.id());
+                                }
+                            }
                             // Reset to initial single page
                             Bitmap bmp = exportViewModel.getDocumentBitmap().getValue();
                             de.schliweb.makeacopy.ui.export.session.CompletedScan one = null;
@@ -476,15 +499,11 @@ public class ExportFragment extends Fragment {
                                 de.schliweb.makeacopy.ui.export.picker.CompletedScansPickerFragment.RESULT_IDS);
                         if (ids == null || ids.isEmpty()) return;
                         // Resolve from registry
-                        java.util.List<de.schliweb.makeacopy.ui.export.session.CompletedScan> all =
-                                de.schliweb.makeacopy.data.CompletedScansRegistry.get(requireContext()).listAllOrderedByDateDesc();
-                        java.util.Map<String, de.schliweb.makeacopy.ui.export.session.CompletedScan> byId = new java.util.HashMap<>();
-                        for (de.schliweb.makeacopy.ui.export.session.CompletedScan s : all) {
-                            if (s != null && s.id() != null) byId.put(s.id(), s);
-                        }
+                        de.schliweb.makeacopy.data.CompletedScansRegistry reg =
+                                de.schliweb.makeacopy.data.CompletedScansRegistry.get(requireContext());
                         java.util.ArrayList<de.schliweb.makeacopy.ui.export.session.CompletedScan> picked = new java.util.ArrayList<>();
                         for (String id : ids) {
-                            de.schliweb.makeacopy.ui.export.session.CompletedScan s = byId.get(id);
+                            de.schliweb.makeacopy.ui.export.session.CompletedScan s = reg.getById(id);
                             if (s != null) picked.add(s);
                         }
                         if (!picked.isEmpty()) {
@@ -789,34 +808,13 @@ public class ExportFragment extends Fragment {
                 Uri exportUri;
                 if (isMulti) {
                     Log.d(TAG, "performExport: Creating PDF for multipage session");
-                    // Build lists
-                    final ArrayList<Bitmap> bitmaps = new ArrayList<>();
-                    final ArrayList<List<RecognizedWord>> perPage = new ArrayList<>();
+                    // Describe pages only; PdfCreator decodes them one at a time while streaming the PDF
+                    final ArrayList<PdfCreator.PageSource> sources = new ArrayList<>();
                     final Bitmap current = documentBitmap;
-                    final HashSet<Bitmap> toRecycle = new HashSet<>();
 
                     for (de.schliweb.makeacopy.ui.export.session.CompletedScan s : pages) {
                         if (s == null) {
-                            bitmaps.add(null);
-                            perPage.add(null);
-                            continue;
-                        }
-                        Bitmap pageBmp = s.inMemoryBitmap();
-                        boolean loadedFromFile = false;
-                        if (pageBmp == null) {
-                            String p = s.filePath();
-                            if (p != null) {
-                                try {
-                                    pageBmp = android.graphics.BitmapFactory.decodeFile(p);
-                                    loadedFromFile = (pageBmp != null);
-                                    if (loadedFromFile) toRecycle.add(pageBmp);
-                                } catch (Throwable ignore) {
-                                }
-                            }
-                        }
-                        if (pageBmp == null) {
-                            bitmaps.add(null);
-                            perPage.add(null);
+                            sources.add(null);
                             continue;
                         }
                         int deg = 0;
@@ -824,56 +822,42 @@ public class ExportFragment extends Fragment {
                             deg = s.rotationDeg();
                         } catch (Throwable ignore) {
                         }
-                        if (deg % 360 != 0) {
-                            try {
-                                android.graphics.Matrix m = new android.graphics.Matrix();
-                                m.postRotate(deg);
-                                Bitmap rotated = android.graphics.Bitmap.createBitmap(pageBmp, 0, 0, pageBmp.getWidth(), pageBmp.getHeight(), m, true);
-                                if (rotated != pageBmp) {
-                                    if (loadedFromFile) {
-                                        try {
-                                            pageBmp.recycle();
-                                        } catch (Throwable ignore) {
-                                        }
-                                        toRecycle.remove(pageBmp);
-                                    }
-                                    pageBmp = rotated;
-                                    toRecycle.add(pageBmp);
-                                }
-                            } catch (Throwable t) { /* keep original */ }
-                        }
-                        bitmaps.add(pageBmp);
 
-                        // Prefer registry-backed per-page words if available (ocrFormat=="words_json");
+                        // Prefer registry-backed per-page words if available (ocrFormat "words_bin" or "words_json");
                         // otherwise, fallback to current page's in-memory words (legacy behavior).
-                        List<RecognizedWord> pageWords = null;
+                        File wordsFile = null;
                         try {
                             String fmt = s.ocrFormat();
                             String path = s.ocrTextPath();
-                            if ("words_json".equalsIgnoreCase(fmt) && path != null) {
+                            if (WordsBinary.isWordsFormat(fmt) && path != null) {
                                 File f = new File(path);
-                                if (f.exists() && f.isFile()) {
-                                    pageWords = de.schliweb.makeacopy.utils.WordsJson.parseFile(f);
-                                    if (pageWords != null && pageWords.isEmpty()) pageWords = null;
-                                }
+                                if (f.exists() && f.isFile()) wordsFile = f;
                             }
                         } catch (Throwable ignore) {
                         }
-                        if (pageWords == null && s.inMemoryBitmap() == current && recognizedWords != null && !recognizedWords.isEmpty()) {
+                        List<RecognizedWord> pageWords = null;
+                        if (wordsFile == null && s.inMemoryBitmap() == current && recognizedWords != null && !recognizedWords.isEmpty()) {
                             pageWords = recognizedWords;
                         }
-                        perPage.add(pageWords);
+
+                        Bitmap inMemory = s.inMemoryBitmap();
+                        if (inMemory != null) {
+                            sources.add(PdfCreator.PageSource.ofBitmap(inMemory, deg, wordsFile, pageWords));
+                        } else if (s.filePath() != null) {
+                            sources.add(PdfCreator.PageSource.ofFile(s.filePath(), deg, wordsFile, pageWords));
+                        } else {
+                            sources.add(null);
+                        }
                     }
                     // Setup progress for multi-page export
-                    final int totalPages = (bitmaps == null) ? 0 : bitmaps.size();
+                    final int totalPages = sources.size();
                     postToUiSafe(() -> {
                         exportViewModel.setExportProgressMax(totalPages);
                         exportViewModel.setExportProgress(0);
                     });
-                    exportUri = PdfCreator.createSearchablePdf(
+                    exportUri = PdfCreator.createSearchablePdfStreaming(
                             appContext,
-                            bitmaps,
-                            perPage,
+                            sources,
                             selectedLocation,
                             jpegQuality,
                             convertGrayEffective,
@@ -882,22 +866,6 @@ public class ExportFragment extends Fragment {
                             (pageIndex, total) -> postToUiSafe(() ->
                                     exportViewModel.setExportProgress(Math.max(0, Math.min(pageIndex, total))))
                     );
-                    // Recycle any temporary bitmaps we created (those not part of the session's in-memory references)
-                    try {
-                        final HashSet<Bitmap> sessionBitmaps = new HashSet<>();
-                        for (de.schliweb.makeacopy.ui.export.session.CompletedScan s2 : pages) {
-                            if (s2 != null && s2.inMemoryBitmap() != null) sessionBitmaps.add(s2.inMemoryBitmap());
-                        }
-                        for (Bitmap b : bitmaps) {
-                            if (b != null && !sessionBitmaps.contains(b)) {
-                                try {
-                                    b.recycle();
-                                } catch (Throwable ignore) {
-                                }
-                            }
-                        }
-                    } catch (Throwable ignore) {
-                    }
 
                 } else {
                     Log.d(TAG, "performExport: Creating PDF for single page session");
@@ -1145,7 +1113,7 @@ public class ExportFragment extends Fragment {
 
         final JpegExportOptions.Mode finalMode = mode;
         new Thread(() -> {
-            java.util.zip.ZipOutputStream zos = null;
+            OutputStream os = null;
             // Initialize progress for ZIP multi-image export
             final int totalPages = (pages == null) ? 0 : pages.size();
             postToUiSafe(() -> {
@@ -1162,64 +1130,26 @@ public class ExportFragment extends Fragment {
                 JpegExportOptions options = new JpegExportOptions();
                 options.mode = finalMode;
 
-                OutputStream os = requireContext().getContentResolver().openOutputStream(selectedLocation, "w");
-                if (os == null) throw new RuntimeException("Failed to open ZIP output stream");
-                zos = new java.util.zip.ZipOutputStream(os);
-
-                int idx = 1;
+                final ArrayList<JpegZipExporter.Page> sources = new ArrayList<>(totalPages);
                 for (de.schliweb.makeacopy.ui.export.session.CompletedScan s : pages) {
                     if (s == null) continue;
-                    String name = String.format(Locale.getDefault(), "page_%03d.jpg", idx);
-                    java.util.zip.ZipEntry entry = new java.util.zip.ZipEntry(name);
-                    zos.putNextEntry(entry);
-                    Bitmap pageBmp = s.inMemoryBitmap();
-                    if (pageBmp == null) {
-                        String p = s.filePath();
-                        if (p != null) {
-                            try {
-                                pageBmp = android.graphics.BitmapFactory.decodeFile(p);
-                            } catch (Throwable ignore) {
-                            }
-                        }
-                    }
-                    if (pageBmp == null) {
-                        // Nothing to write for this page
-                        zos.closeEntry();
-                        idx++;
-                        continue;
-                    }
                     int deg = 0;
                     try {
                         deg = s.rotationDeg();
                     } catch (Throwable ignore) {
                     }
-                    if (deg % 360 != 0) {
-                        try {
-                            android.graphics.Matrix m = new android.graphics.Matrix();
-                            m.postRotate(deg);
-                            Bitmap rotated = android.graphics.Bitmap.createBitmap(pageBmp, 0, 0, pageBmp.getWidth(), pageBmp.getHeight(), m, true);
-                            if (rotated != pageBmp) pageBmp = rotated;
-                        } catch (Throwable t) {
-                            // keep original pageBmp
-                        }
-                    }
-                    boolean ok = JpegExporter.exportToStream(appContext, pageBmp, options, zos);
-                    zos.closeEntry();
-                    if (!ok) throw new RuntimeException("Failed to encode " + name);
-                    // Recycle if this bitmap was not the session's in-memory reference
-                    if (s.inMemoryBitmap() != pageBmp) {
-                        try {
-                            pageBmp.recycle();
-                        } catch (Throwable ignore) {
-                        }
+                    Bitmap inMemory = s.inMemoryBitmap();
+                    if (inMemory != null) {
+                        sources.add(JpegZipExporter.Page.ofBitmap(inMemory, deg));
+                    } else {
+                        sources.add(JpegZipExporter.Page.ofFile(s.filePath(), deg));
                     }
-                    // Update progress after each page
-                    final int done = idx;
-                    postToUiSafe(() -> exportViewModel.setExportProgress(done));
-                    idx++;
                 }
-                zos.finish();
-                zos.flush();
+
+                os = appContext.getContentResolver().openOutputStream(selectedLocation, "w");
+                if (os == null) throw new RuntimeException("Failed to open ZIP output stream");
+                JpegZipExporter.export(appContext, sources, options, os,
+                        (done, total) -> postToUiSafe(() -> exportViewModel.setExportProgress(done)));
 
                 Uri exportUri = selectedLocation;
                 postToUiSafe(() -> {
@@ -1246,9 +1176,9 @@ public class ExportFragment extends Fragment {
                     UIUtils.showToast(appContext, "Error during ZIP export: " + e.getMessage(), Toast.LENGTH_SHORT);
                 });
             } finally {
-                if (zos != null) {
+                if (os != null) {
                     try {
-                        zos.close();
+                        os.close();
                     } catch (Exception ignore) {
                     }
                 }
@@ -1340,7 +1270,7 @@ public class ExportFragment extends Fragment {
                         pageText = readAllUtf8(f);
                     }
                 } else if (p != null && !isPlain) {
-                    // Fallback: if not plain, try sibling text.txt next to words_json/hocr/alto
+                    // Fallback: if not plain, try sibling text.txt next to words_bin/words_json/hocr/alto
                     try {
                         java.io.File f = new java.io.File(p);
                         java.io.File dir = f.getParentFile();
@@ -1405,42 +1335,40 @@ public class ExportFragment extends Fragment {
         // Capture current in-memory OCR text/words at call time unless Skip OCR is enabled
         final String ocrTextAtCall = skipOcrPref ? null : getOcrTextFromState();
         final java.util.List<de.schliweb.makeacopy.utils.RecognizedWord> ocrWordsAtCall = skipOcrPref ? null : getOcrWordsFromState();
-        new Thread(() -> {
-            try {
-                // Persist scan (page.jpg, thumb.jpg, and optional OCR artifacts) and insert into registry
-                de.schliweb.makeacopy.ui.export.session.CompletedScan persisted =
-                        de.schliweb.makeacopy.utils.ScanPersister.persist(appContext, s, ocrTextAtCall, ocrWordsAtCall);
-
-                // Update current session item so the filmstrip badge reflects OCR immediately
-                final String finalOcrPath = persisted.ocrTextPath();
-                final String finalOcrFormat = persisted.ocrFormat();
-                postToUiSafe(() -> {
-                    List<de.schliweb.makeacopy.ui.export.session.CompletedScan> cur = exportSessionViewModel.getPages().getValue();
-                    if (cur == null) return;
-                    for (int i = 0; i < cur.size(); i++) {
-                        de.schliweb.makeacopy.ui.export.session.CompletedScan it = cur.get(i);
-                        if (it != null && id.equals(it.id())) {
-                            de.schliweb.makeacopy.ui.export.session.CompletedScan updated = new de.schliweb.makeacopy.ui.export.session.CompletedScan(
-                                    it.id(),
-                                    persisted.filePath(),
-                                    it.rotationDeg(),
-                                    finalOcrPath,
-                                    finalOcrFormat,
-                                    it.thumbPath() != null ? it.thumbPath() : persisted.thumbPath(),
-                                    it.createdAt(),
-                                    it.widthPx(),
-                                    it.heightPx(),
-                                    it.inMemoryBitmap()
-                            );
-                            exportSessionViewModel.updateAt(i, updated);
-                            break;
+        // Persist scan (page.jpg, thumb.jpg, and optional OCR artifacts) and insert into registry
+        de.schliweb.makeacopy.utils.ScanPersister.persistAsync(appContext, s, ocrTextAtCall, ocrWordsAtCall)
+                .thenAccept(persisted -> {
+                    // Update current session item so the filmstrip badge reflects OCR immediately
+                    final String finalOcrPath = persisted.ocrTextPath();
+                    final String finalOcrFormat = persisted.ocrFormat();
+                    postToUiSafe(() -> {
+                        List<de.schliweb.makeacopy.ui.export.session.CompletedScan> cur = exportSessionViewModel.getPages().getValue();
+                        if (cur == null) return;
+                        for (int i = 0; i < cur.size(); i++) {
+                            de.schliweb.makeacopy.ui.export.session.CompletedScan it = cur.get(i);
+                            if (it != null && id.equals(it.id())) {
+                                de.schliweb.makeacopy.ui.export.session.CompletedScan updated = new de.schliweb.makeacopy.ui.export.session.CompletedScan(
+                                        it.id(),
+                                        persisted.filePath(),
+                                        it.rotationDeg(),
+                                        finalOcrPath,
+                                        finalOcrFormat,
+                                        it.thumbPath() != null ? it.thumbPath() : persisted.thumbPath(),
+                                        it.createdAt(),
+                                        it.widthPx(),
+                                        it.heightPx(),
+                                        it.inMemoryBitmap()
+                                );
+                                exportSessionViewModel.updateAt(i, updated);
+                                break;
+                            }
                         }
-                    }
+                    });
+                })
+                .exceptionally(t -> {
+                    Log.w(TAG, "Persist scan failed", t);
+                    return null;
                 });
-            } catch (Throwable t) {
-                Log.w(TAG, "Persist scan failed", t);
-            }
-        }).start();
     }
 
     /**
@@ -1480,7 +1408,28 @@ public class ExportFragment extends Fragment {
         if (lang == null || lang.trim().isEmpty()) {
             lang = de.schliweb.makeacopy.utils.OCRUtils.resolveEffectiveLanguage(lang);
         }
-        de.schliweb.makeacopy.jobs.OcrBackgroundJobs.enqueueReprocess(requireContext().getApplicationContext(), s.id(), lang);
+        // The job reuses a cached result of an unchanged page before running the engine
+        de.schliweb.makeacopy.jobs.OcrBackgroundJobs.enqueueReprocess(requireContext().getApplicationContext(), s.id(), lang,
+                de.schliweb.makeacopy.jobs.OcrBackgroundJobs.PRIORITY_FOREGROUND);
+    }
+
+    /**
+     * Reports the page ids currently visible in the filmstrip to the background OCR scheduler.
+     *
+     * @param lm the layout manager of the pages recycler
+     */
+    private void updateVisibleOcrPages(androidx.recyclerview.widget.LinearLayoutManager lm) {
+        List<de.schliweb.makeacopy.ui.export.session.CompletedScan> cur = exportSessionViewModel.getPages().getValue();
+        if (lm == null || cur == null) return;
+        int first = lm.findFirstVisibleItemPosition();
+        int last = lm.findLastVisibleItemPosition();
+        if (first < 0 || last < first) return;
+        List<String> ids = new ArrayList<>();
+        for (int i = first; i <= last && i < cur.size(); i++) {
+            de.schliweb.makeacopy.ui.export.session.CompletedScan p = cur.get(i);
+            if (p != null) ids.add(p.id());
+        }
+        de.schliweb.makeacopy.jobs.OcrBackgroundJobs.setVisiblePages(ids);
     }
 
 
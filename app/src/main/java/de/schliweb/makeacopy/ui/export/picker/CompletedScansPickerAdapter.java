@@ -71,6 +71,18 @@ class CompletedScansPickerAdapter extends RecyclerView.Adapter<CompletedScansPic
         notifyDataSetChanged();
     }
 
+    /**
+     * Appends the next page of completed scans to the end of the list.
+     *
+     * @param more the scans to append; null or empty is ignored
+     */
+    public void appendItems(List<CompletedScan> more) {
+        if (more == null || more.isEmpty()) return;
+        int start = items.size();
+        items.addAll(more);
+        notifyItemRangeInserted(start, more.size());
+    }
+
     /**
      * Creates a new {@link VH} instance by inflating the layout for an individual item in the RecyclerView.
      *
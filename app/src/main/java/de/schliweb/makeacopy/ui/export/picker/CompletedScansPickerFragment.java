@@ -39,6 +39,11 @@ public class CompletedScansPickerFragment extends Fragment implements CompletedS
     public static final String RESULT_IDS = "selected_ids";
     public static final String ARG_ALREADY_SELECTED_IDS = "already_selected_ids";
 
+    /**
+     * Number of scans loaded from the registry at a time; further pages are loaded while scrolling.
+     */
+    private static final int PAGE_SIZE = 50;
+
     private RecyclerView recyclerView;
     private ProgressBar progressBar;
     private TextView emptyView;
@@ -52,6 +57,8 @@ public class CompletedScansPickerFragment extends Fragment implements CompletedS
     private final Set<String> disabledIds = new HashSet<>();
     private final List<CompletedScan> currentItems = new ArrayList<>();
     private CompletedScansPickerAdapter adapter;
+    private boolean hasMore;
+    private boolean loadingMore;
 
     @Nullable
     @Override
@@ -78,6 +85,19 @@ public class CompletedScansPickerFragment extends Fragment implements CompletedS
 
         adapter = new CompletedScansPickerAdapter(this);
         recyclerView.setAdapter(adapter);
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView rv, int dx, int dy) {
+                if (dy <= 0 || !hasMore || loadingMore) return;
+                RecyclerView.LayoutManager lm = rv.getLayoutManager();
+                if (lm instanceof LinearLayoutManager
+                        && ((LinearLayoutManager) lm).findLastVisibleItemPosition() >= currentItems.size() - PAGE_SIZE / 2) {
+                    loadingMore = true;
+                    // Adapter changes are not allowed inside a scroll callback
+                    rv.post(() -> loadNextPage());
+                }
+            }
+        });
 
         buttonBack.setOnClickListener(v -> navigateBackWithoutResult());
         buttonDelete.setOnClickListener(v -> deleteSelectedAndRefresh());
@@ -99,8 +119,11 @@ public class CompletedScansPickerFragment extends Fragment implements CompletedS
             de.schliweb.makeacopy.data.RegistryCleaner.cleanupOrphans(requireContext().getApplicationContext());
         } catch (Throwable ignore) {
         }
-        // Load synchronously for v1 simplicity; list is small
-        List<CompletedScan> items = CompletedScansRegistry.get(requireContext()).listAllOrderedByDateDesc();
+        // First page only; served from the registry's in-memory index, further pages follow on scroll
+        List<CompletedScan> items = CompletedScansRegistry.get(requireContext())
+                .list(0, PAGE_SIZE, CompletedScansRegistry.SortOrder.CREATED_DESC);
+        hasMore = items.size() == PAGE_SIZE;
+        loadingMore = false;
 
         progressBar.setVisibility(View.GONE);
         currentItems.clear();
@@ -117,6 +140,18 @@ public class CompletedScansPickerFragment extends Fragment implements CompletedS
         updateDoneEnabled();
     }
 
+    private void loadNextPage() {
+        loadingMore = false;
+        if (!hasMore || !isAdded() || currentItems.isEmpty()) return;
+        // Continue after the last shown scan, so that scans added or removed meanwhile do not shift the page
+        CompletedScan last = currentItems.get(currentItems.size() - 1);
+        List<CompletedScan> more = CompletedScansRegistry.get(requireContext())
+                .listAfter(last.createdAt(), last.id(), PAGE_SIZE, CompletedScansRegistry.SortOrder.CREATED_DESC);
+        hasMore = more.size() == PAGE_SIZE;
+        currentItems.addAll(more);
+        adapter.appendItems(more);
+    }
+
     private void updateDoneEnabled() {
         boolean hasSelection = !selectedIds.isEmpty();
         if (buttonDone != null) buttonDone.setEnabled(hasSelection);
@@ -186,7 +221,7 @@ public class CompletedScansPickerFragment extends Fragment implements CompletedS
     }
 
     /**
-     * Selects or deselects all eligible items in the current list based on the given parameter.
+     * Selects or deselects all eligible items based on the given parameter, including pages not loaded yet.
      * If selecting, only items that are not disabled and are not missing are added to the selection.
      * If deselecting, the selection is cleared entirely. The UI is updated accordingly.
      *
@@ -202,14 +237,21 @@ public class CompletedScansPickerFragment extends Fragment implements CompletedS
             return;
         }
         // Select all items that are not disabled and not missing
-        for (CompletedScan s : currentItems) {
-            String id = s.id();
-            boolean hasThumb = s.thumbPath() != null && new java.io.File(s.thumbPath()).exists();
-            boolean hasFile = s.filePath() != null && new java.io.File(s.filePath()).exists();
-            boolean missing = !hasThumb && !hasFile;
-            if (!disabledIds.contains(id) && !missing) {
-                selectedIds.add(id);
+        CompletedScansRegistry reg = CompletedScansRegistry.get(requireContext());
+        List<CompletedScan> page = reg.list(0, PAGE_SIZE, CompletedScansRegistry.SortOrder.CREATED_DESC);
+        while (true) {
+            for (CompletedScan s : page) {
+                String id = s.id();
+                boolean hasThumb = s.thumbPath() != null && new java.io.File(s.thumbPath()).exists();
+                boolean hasFile = s.filePath() != null && new java.io.File(s.filePath()).exists();
+                boolean missing = !hasThumb && !hasFile;
+                if (!disabledIds.contains(id) && !missing) {
+                    selectedIds.add(id);
+                }
             }
+            if (page.size() < PAGE_SIZE) break;
+            CompletedScan last = page.get(page.size() - 1);
+            page = reg.listAfter(last.createdAt(), last.id(), PAGE_SIZE, CompletedScansRegistry.SortOrder.CREATED_DESC);
         }
         adapter.notifyDataSetChanged();
         updateDoneEnabled();
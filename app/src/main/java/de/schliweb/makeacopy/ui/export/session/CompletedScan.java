@@ -41,7 +41,7 @@ public record CompletedScan(String id, @Nullable String filePath, int rotationDe
      * @param filePath       An optional file path pointing to the scanned document. May be null if not available.
      * @param rotationDeg    The rotation angle of the scanned document, specified in degrees. Valid values are 0, 90, 180, or 270.
      * @param ocrTextPath    An optional file path pointing to the OCR payload for the scan. May be null if not available.
-     * @param ocrFormat      Optional string describing the OCR payload format (e.g., "plain", "hocr", "alto", "words_json"). May be null to imply "plain" for backward compatibility.
+     * @param ocrFormat      Optional string describing the OCR payload format (e.g., "plain", "hocr", "alto", "words_bin", "words_json"). May be null to imply "plain" for backward compatibility.
      * @param thumbPath      An optional file path pointing to a thumbnail version of the scan. May be null if not available.
      * @param createdAt      The timestamp when the scan was created, specified in milliseconds since the Unix epoch.
      * @param widthPx        The width of the scanned image, measured in pixels.
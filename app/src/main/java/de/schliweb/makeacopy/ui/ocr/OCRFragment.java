@@ -39,6 +39,10 @@ import java.util.stream.IntStream;
  */
 public class OCRFragment extends Fragment {
     private static final String TAG = "OCRFragment";
+    // Recognize at a reduced resolution when the text is large enough (see TextScaleEstimator)
+    private static final boolean ADAPTIVE_OCR_SCALE = true;
+    // Only downscale below the A4 fit if it saves a meaningful amount of work
+    private static final float MIN_ADAPTIVE_REDUCTION = 0.85f;
 
     private FragmentOcrBinding binding;
     private OCRViewModel ocrViewModel;
@@ -250,20 +254,30 @@ public class OCRFragment extends Fragment {
                         src = rotateBitmap(src, userDeg);
                     }
 
-                    Log.d(TAG, "performOCR: Pre-scaling image to A4 dimensions before OCR");
-                    Bitmap scaledBitmap = ImageScaler.scaleToA4(src);
-                    // Optional robustness: feed immutable ARGB_8888 copy to Tesseract
-                    Bitmap inputForOcr = scaledBitmap.copy(Bitmap.Config.ARGB_8888, /*mutable*/ false);
-
-                    // Build transform (used for word boxes mapping); do not write scaled bitmap back to Crop VM
+                    // Word boxes are reported in the A4 @ 300 DPI space (see OcrTransform) regardless of the
+                    // resolution actually used for recognition
+                    float a4Scale = ImageScaler.fitA4Scale(src.getWidth(), src.getHeight());
+                    int dstW = Math.round(src.getWidth() * a4Scale);
+                    int dstH = Math.round(src.getHeight() * a4Scale);
                     OCRViewModel.OcrTransform tx = new OCRViewModel.OcrTransform(
                             src.getWidth(), src.getHeight(),
-                            scaledBitmap.getWidth(), scaledBitmap.getHeight(),
-                            scaledBitmap.getWidth() / (float) src.getWidth(),
-                            scaledBitmap.getHeight() / (float) src.getHeight(),
+                            dstW, dstH,
+                            dstW / (float) src.getWidth(),
+                            dstH / (float) src.getHeight(),
                             0, 0
                     );
 
+                    // Adaptive resolution: large print does not need A4 @ 300 DPI; recognize at the smallest
+                    // scale that keeps the x-height in Tesseract's preferred range
+                    float ocrScale = ADAPTIVE_OCR_SCALE ? TextScaleEstimator.chooseOcrScale(src, a4Scale) : a4Scale;
+                    if (ocrScale > a4Scale * MIN_ADAPTIVE_REDUCTION) ocrScale = a4Scale;
+                    Log.d(TAG, "performOCR: scaling image for OCR, a4Scale=" + a4Scale + ", ocrScale=" + ocrScale);
+                    Bitmap inputForOcr = (ocrScale == a4Scale)
+                            ? ImageScaler.scaleToA4(src)
+                            : Bitmap.createScaledBitmap(src,
+                            Math.max(1, Math.round(src.getWidth() * ocrScale)),
+                            Math.max(1, Math.round(src.getHeight() * ocrScale)), true);
+
                     // Push transform to VM on UI thread
                     runOnUiThreadSafe(() -> ocrViewModel.setTransform(tx));
 
@@ -272,7 +286,7 @@ public class OCRFragment extends Fragment {
                         return;
                     }
 
-                    // Fresh Tesseract per job
+                    // Per-job helper; the engine itself is leased warm from the shared pool
                     localHelper = new OCRHelper(requireContext().getApplicationContext());
 
                     String lang = ocrViewModel.getLanguage().getValue();
@@ -289,6 +303,8 @@ public class OCRFragment extends Fragment {
                         postError("Engine not initialized");
                         return;
                     }
+                    // Interactive OCR: spread the page's text blocks over several engines when resources allow
+                    localHelper.setParallelRegions(true);
 
                     // OCR with words
                     OCRHelper.OcrResultWords r = localHelper.runOcrWithWords(inputForOcr);
@@ -302,7 +318,7 @@ public class OCRFragment extends Fragment {
                     String finalText = (r.text == null || r.text.trim().isEmpty())
                             ? getString(R.string.ocr_results_will_appear_here)
                             : r.text;
-                    List<RecognizedWord> words = (r.words != null) ? r.words : new ArrayList<>();
+                    List<RecognizedWord> words = mapWordsToTransform(r.words, inputForOcr, tx);
 
                     runOnUiThreadSafe(() -> {
                         ocrViewModel.setWords(words);
@@ -312,7 +328,7 @@ public class OCRFragment extends Fragment {
                 } catch (Throwable e) {
                     postError(e.getMessage() != null ? e.getMessage() : e.toString());
                 } finally {
-                    // Release Tesseract in the same thread that used it
+                    // Return the engine to the pool from the same thread that used it
                     try {
                         if (localHelper != null) localHelper.shutdown();
                     } catch (Throwable ignored) {
@@ -325,6 +341,22 @@ public class OCRFragment extends Fragment {
         }
     }
 
+    /**
+     * Maps word boxes from the OCR input bitmap to the destination space of {@code tx}.
+     */
+    private static List<RecognizedWord> mapWordsToTransform(List<RecognizedWord> words, Bitmap ocrInput,
+                                                            OCRViewModel.OcrTransform tx) {
+        if (words == null) return new ArrayList<>();
+        if (ocrInput.getWidth() == tx.dstW() && ocrInput.getHeight() == tx.dstH()) return words;
+        float sx = tx.dstW() / (float) ocrInput.getWidth();
+        float sy = tx.dstH() / (float) ocrInput.getHeight();
+        List<RecognizedWord> out = new ArrayList<>(words.size());
+        for (RecognizedWord w : words) {
+            out.add(w.transform(sx, sy, 0f, 0f).clipTo(tx.dstW(), tx.dstH()));
+        }
+        return out;
+    }
+
     private void postError(String msg) {
         runOnUiThreadSafe(() -> {
             ocrViewModel.finishError(msg);
@@ -0,0 +1,148 @@
+package de.schliweb.makeacopy.utils;
+
+import android.util.Log;
+import org.opencv.core.CvException;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.MatOfFloat;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.Point;
+import org.opencv.core.Size;
+import org.opencv.core.TermCriteria;
+import org.opencv.video.Video;
+
+/**
+ * Cheap frame-to-frame tracking of previously detected document corners.
+ * <p>
+ * Instead of running the full ONNX + contour detection on every frame, the four corners are followed
+ * from the previous grayscale frame into the current one with sparse pyramidal Lucas-Kanade optical flow
+ * ({@code calcOpticalFlowPyrLK}). A corner is only accepted if the flow reports it as found, its window
+ * matches the previous frame closely, and tracking it back into the previous frame lands where it
+ * started (forward-backward check). The resulting quadrilateral is then checked against the previous one.
+ * <p>
+ * If the native library lacks the optical flow bindings, tracking is reported as unavailable
+ * ({@link #isAvailable}) for the rest of the process instead of failing on every frame.
+ * <p>
+ * This class is not intended to be instantiated.
+ */
+public final class CornerTracker {
+    private static final String TAG = "CornerTracker";
+
+    private static final Size WINDOW = new Size(21, 21);
+    private static final int MAX_PYRAMID_LEVEL = 3;
+    /**
+     * Largest accepted distance in pixels between a corner and its forward-backward tracked position.
+     */
+    private static final double MAX_FB_ERROR = 1.5;
+    /**
+     * Largest accepted mean absolute intensity difference between the matched windows.
+     */
+    private static final float MAX_MATCH_ERROR = 30f;
+    private static final double MIN_AREA_RATIO = 0.8;
+    private static final double MAX_AREA_RATIO = 1.25;
+
+    private static volatile boolean available = true;
+
+    private CornerTracker() {
+    }
+
+    /**
+     * @return false once a call to {@link #track} found the optical flow bindings missing from the native library
+     */
+    public static boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * Tracks four corners from the previous frame into the current frame.
+     *
+     * @param prevGray   the previous frame as a CV_8UC1 Mat; only read
+     * @param gray       the current frame as a CV_8UC1 Mat of the same size (may be a view); only read
+     * @param prev       the corners (TL, TR, BR, BL) in {@code prevGray}
+     * @param confidence an optional array of length >= 1 that receives the tracking confidence in [0,1]
+     *                   of the worst corner: 1 means a perfect match that tracks back exactly, 0 means
+     *                   tracking failed
+     * @return the tracked corners in the same order, or {@code null} if any corner was lost or the
+     * tracked quadrilateral deviates too much from the previous one
+     */
+    public static Point[] track(Mat prevGray, Mat gray, Point[] prev, float[] confidence) {
+        if (confidence != null && confidence.length > 0) confidence[0] = 0f;
+        if (prevGray == null || gray == null || prevGray.empty() || gray.empty() || prev == null || prev.length != 4) {
+            return null;
+        }
+        if (prevGray.cols() != gray.cols() || prevGray.rows() != gray.rows()) return null;
+
+        MatOfPoint2f p0 = new MatOfPoint2f(prev);
+        MatOfPoint2f p1 = new MatOfPoint2f();
+        MatOfPoint2f back = new MatOfPoint2f();
+        MatOfByte status = new MatOfByte();
+        MatOfByte backStatus = new MatOfByte();
+        MatOfFloat err = new MatOfFloat();
+        MatOfFloat backErr = new MatOfFloat();
+        try {
+            TermCriteria criteria = new TermCriteria(TermCriteria.COUNT + TermCriteria.EPS, 20, 0.03);
+            Video.calcOpticalFlowPyrLK(prevGray, gray, p0, p1, status, err, WINDOW, MAX_PYRAMID_LEVEL, criteria);
+            Video.calcOpticalFlowPyrLK(gray, prevGray, p1, back, backStatus, backErr, WINDOW, MAX_PYRAMID_LEVEL, criteria);
+
+            Point[] out = p1.toArray();
+            Point[] returned = back.toArray();
+            byte[] found = status.toArray();
+            byte[] foundBack = backStatus.toArray();
+            float[] matchErr = err.toArray();
+            if (out.length != 4 || returned.length != 4) return null;
+
+            double minScore = 1.0;
+            for (int i = 0; i < 4; i++) {
+                if (found[i] == 0 || foundBack[i] == 0) return null;
+                if (out[i].x < 0 || out[i].y < 0 || out[i].x >= gray.cols() || out[i].y >= gray.rows()) return null;
+                double fb = Math.hypot(returned[i].x - prev[i].x, returned[i].y - prev[i].y);
+                if (fb > MAX_FB_ERROR || matchErr[i] > MAX_MATCH_ERROR) return null;
+                double score = (1.0 - fb / MAX_FB_ERROR) * (1.0 - matchErr[i] / MAX_MATCH_ERROR);
+                minScore = Math.min(minScore, score);
+            }
+
+            if (!isConvexClockwise(out)) return null;
+            double prevArea = quadArea(prev);
+            double ratio = prevArea > 0 ? quadArea(out) / prevArea : 0;
+            if (ratio < MIN_AREA_RATIO || ratio > MAX_AREA_RATIO) return null;
+
+            if (confidence != null && confidence.length > 0) confidence[0] = (float) Math.max(0.0, minScore);
+            return out;
+        } catch (CvException e) {
+            return null;
+        } catch (LinkageError e) {
+            if (available) {
+                available = false;
+                Log.w(TAG, "Optical flow not available in the native library, tracking disabled", e);
+            }
+            return null;
+        } finally {
+            p0.release();
+            p1.release();
+            back.release();
+            status.release();
+            backStatus.release();
+            err.release();
+            backErr.release();
+        }
+    }
+
+    private static boolean isConvexClockwise(Point[] q) {
+        for (int i = 0; i < 4; i++) {
+            Point a = q[i], b = q[(i + 1) % 4], c = q[(i + 2) % 4];
+            double cross = (b.x - a.x) * (c.y - b.y) - (b.y - a.y) * (c.x - b.x);
+            // Image coordinates (y down): TL → TR → BR → BL turns clockwise, i.e. positive cross products.
+            if (cross <= 0) return false;
+        }
+        return true;
+    }
+
+    private static double quadArea(Point[] q) {
+        double area = 0;
+        for (int i = 0; i < 4; i++) {
+            Point a = q[i], b = q[(i + 1) % 4];
+            area += (a.x * b.y - b.x * a.y);
+        }
+        return Math.abs(area) * 0.5;
+    }
+}
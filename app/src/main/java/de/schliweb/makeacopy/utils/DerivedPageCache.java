@@ -0,0 +1,259 @@
+package de.schliweb.makeacopy.utils;
+
+import android.content.Context;
+import android.util.Log;
+import de.schliweb.makeacopy.utils.jpeg.JpegExportOptions;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * On-disk cache of derived page images (resized, grayscale, B/W, rotated, re-encoded) produced during export.
+ * <p>
+ * Entries live next to their source in {@code files/scans/<id>/variants/} and are keyed by the export variant
+ * (rotation, PDF quality preset or JPEG export mode, and long edge). Every file name also carries a signature
+ * of the source page (size and modification time), so an entry becomes invalid as soon as page.jpg changes
+ * and is deleted on the next lookup. Removing a scan directory removes its variants with it.
+ * <p>
+ * The total size across all scans is bounded: when it exceeds {@link #MAX_BYTES} the least recently used
+ * entries are evicted. Hits refresh the entry's modification time, which serves as the LRU timestamp.
+ * {@link de.schliweb.makeacopy.services.CacheCleanupService} calls {@link #trim(Context)} during its regular
+ * cleanup runs.
+ * <p>
+ * This class is not intended to be instantiated.
+ */
+public final class DerivedPageCache {
+    private static final String TAG = "DerivedPageCache";
+
+    static final String SCANS_DIR = "scans";
+    static final String VARIANTS_DIR = "variants";
+
+    /**
+     * Upper bound for the total size of all cached variants.
+     */
+    public static final long MAX_BYTES = 96L * 1024 * 1024;
+
+    /**
+     * Entries not used for this long are dropped by {@link #trim(Context)} regardless of the size bound.
+     */
+    static final long MAX_IDLE_MS = 14L * 24 * 60 * 60 * 1000;
+
+    // Approximate total size of all variants; -1 until the first scan of the directory tree.
+    private static final AtomicLong totalBytes = new AtomicLong(-1);
+
+    private DerivedPageCache() {
+    }
+
+    /**
+     * Variant key for a PDF page prepared with the given settings.
+     *
+     * @param rotationDeg page rotation in degrees
+     * @param jpegQuality JPEG quality of the embedded image
+     * @param gray        whether the page is converted to grayscale
+     * @param bw          whether the page is converted to black and white
+     * @param targetDpi   target DPI, which determines the long edge on an A4 page
+     * @return the variant key
+     */
+    public static String pdfVariant(int rotationDeg, int jpegQuality, boolean gray, boolean bw, int targetDpi) {
+        int dpi = targetDpi <= 0 ? 300 : targetDpi;
+        int longEdge = Math.round(11.69f * dpi);
+        String color = bw ? "bw" : (gray ? "gray" : "color");
+        return String.format(Locale.ROOT, "pdf.r%d.q%d.%s.le%d", normalizeRotation(rotationDeg), jpegQuality, color, longEdge);
+    }
+
+    /**
+     * Variant key for a JPEG export with the given options.
+     *
+     * @param rotationDeg page rotation in degrees
+     * @param options     JPEG export options (mode, quality, long edge, grayscale)
+     * @return the variant key
+     */
+    public static String jpegVariant(int rotationDeg, JpegExportOptions options) {
+        JpegExportOptions o = options != null ? options : new JpegExportOptions();
+        int longEdge = o.longEdgePx;
+        if (o.maxLongEdgeGuardPx > 0) {
+            longEdge = longEdge > 0 ? Math.min(longEdge, o.maxLongEdgeGuardPx) : o.maxLongEdgeGuardPx;
+        }
+        return String.format(Locale.ROOT, "jpg.r%d.%s.q%d.%s.le%d%s",
+                normalizeRotation(rotationDeg), o.mode.name().toLowerCase(Locale.ROOT), o.quality,
+                o.forceGrayscaleJpeg ? "gray" : "color", longEdge, o.roundResizeToMultipleOf8 ? ".m8" : "");
+    }
+
+    /**
+     * Returns the cached bytes of {@code variant} for the given source page, or null on a miss.
+     * Stale entries of the same variant (from an older version of the source) are deleted.
+     *
+     * @param source  the source page file (files/scans/&lt;id&gt;/page.jpg)
+     * @param variant the variant key
+     * @return the cached data, or null if absent or the source is not a persisted scan page
+     */
+    public static byte[] get(File source, String variant) {
+        File dir = variantsDirFor(source);
+        if (dir == null || variant == null) return null;
+        File entry = new File(dir, entryName(source, variant));
+        deleteStale(dir, variant, entry.getName());
+        if (!entry.isFile()) return null;
+        try {
+            byte[] data = java.nio.file.Files.readAllBytes(entry.toPath());
+            //noinspection ResultOfMethodCallIgnored
+            entry.setLastModified(System.currentTimeMillis());
+            return data;
+        } catch (IOException e) {
+            Log.w(TAG, "Reading cached variant failed: " + e.getMessage());
+            //noinspection ResultOfMethodCallIgnored
+            entry.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Stores {@code data} as {@code variant} of the given source page. Best-effort: failures are logged
+     * and otherwise ignored. Evicts least recently used entries when the size bound is exceeded.
+     *
+     * @param source  the source page file (files/scans/&lt;id&gt;/page.jpg)
+     * @param variant the variant key
+     * @param data    the encoded variant
+     */
+    public static void put(File source, String variant, byte[] data) {
+        File dir = variantsDirFor(source);
+        if (dir == null || variant == null || data == null || data.length == 0) return;
+        if (data.length > MAX_BYTES / 4) return;
+        if (!dir.isDirectory() && !dir.mkdirs()) return;
+        File entry = new File(dir, entryName(source, variant));
+        File tmp = new File(dir, entry.getName() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            fos.write(data);
+            fos.flush();
+        } catch (IOException e) {
+            Log.w(TAG, "Writing cached variant failed: " + e.getMessage());
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            return;
+        }
+        long previous = entry.isFile() ? entry.length() : 0;
+        if (!tmp.renameTo(entry)) {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            return;
+        }
+        deleteStale(dir, variant, entry.getName());
+        File scansBase = dir.getParentFile().getParentFile();
+        long known = totalBytes.get();
+        if (known < 0) {
+            totalBytes.compareAndSet(-1, sizeOf(scansBase));
+        } else {
+            totalBytes.addAndGet(data.length - previous);
+        }
+        if (totalBytes.get() > MAX_BYTES) {
+            trim(scansBase, MAX_BYTES * 3 / 4, Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Drops all cached variants of a scan, e.g. after its page was rewritten.
+     *
+     * @param scanDir the scan directory (files/scans/&lt;id&gt;)
+     */
+    public static void invalidate(File scanDir) {
+        if (scanDir == null) return;
+        File dir = new File(scanDir, VARIANTS_DIR);
+        File[] files = dir.listFiles();
+        if (files == null) return;
+        long freed = 0;
+        for (File f : files) {
+            long len = f.length();
+            if (f.delete()) freed += len;
+        }
+        //noinspection ResultOfMethodCallIgnored
+        dir.delete();
+        if (totalBytes.get() >= 0) totalBytes.addAndGet(-freed);
+    }
+
+    /**
+     * Applies the size bound and drops entries idle for longer than {@link #MAX_IDLE_MS}.
+     *
+     * @param context any context
+     * @return the number of deleted entries
+     */
+    public static int trim(Context context) {
+        if (context == null) return 0;
+        return trim(new File(context.getFilesDir(), SCANS_DIR), MAX_BYTES, MAX_IDLE_MS);
+    }
+
+    private static synchronized int trim(File scansBase, long maxBytes, long maxIdleMs) {
+        List<File> entries = listEntries(scansBase);
+        long total = 0;
+        for (File f : entries) total += f.length();
+        entries.sort(Comparator.comparingLong(File::lastModified));
+        long cutoff = maxIdleMs == Long.MAX_VALUE ? Long.MIN_VALUE : System.currentTimeMillis() - maxIdleMs;
+        int deleted = 0;
+        for (File f : entries) {
+            if (total <= maxBytes && f.lastModified() >= cutoff) break;
+            long len = f.length();
+            if (f.delete()) {
+                total -= len;
+                deleted++;
+            }
+        }
+        totalBytes.set(total);
+        if (deleted > 0) {
+            Log.d(TAG, "Evicted " + deleted + " cached variants, " + (total / 1024) + " KB remaining");
+        }
+        return deleted;
+    }
+
+    /**
+     * Resolves files/scans/&lt;id&gt;/variants for a source page; null if {@code source} is not inside a scan directory.
+     */
+    private static File variantsDirFor(File source) {
+        if (source == null || !source.isFile()) return null;
+        File scanDir = source.getParentFile();
+        if (scanDir == null) return null;
+        File scansBase = scanDir.getParentFile();
+        if (scansBase == null || !SCANS_DIR.equals(scansBase.getName())) return null;
+        return new File(scanDir, VARIANTS_DIR);
+    }
+
+    private static String entryName(File source, String variant) {
+        long signature = source.length() * 31 + source.lastModified();
+        return variant + "-" + Long.toHexString(signature) + ".bin";
+    }
+
+    private static void deleteStale(File dir, String variant, String currentName) {
+        String prefix = variant + "-";
+        File[] stale = dir.listFiles((d, name) -> name.startsWith(prefix) && !name.equals(currentName));
+        if (stale == null) return;
+        for (File f : stale) {
+            long len = f.length();
+            if (f.delete() && totalBytes.get() >= 0) totalBytes.addAndGet(-len);
+        }
+    }
+
+    private static List<File> listEntries(File scansBase) {
+        List<File> out = new ArrayList<>();
+        File[] scans = scansBase != null ? scansBase.listFiles(File::isDirectory) : null;
+        if (scans == null) return out;
+        for (File scan : scans) {
+            File[] files = new File(scan, VARIANTS_DIR).listFiles(File::isFile);
+            if (files == null) continue;
+            for (File f : files) out.add(f);
+        }
+        return out;
+    }
+
+    private static long sizeOf(File scansBase) {
+        long total = 0;
+        for (File f : listEntries(scansBase)) total += f.length();
+        return total;
+    }
+
+    private static int normalizeRotation(int deg) {
+        return ((deg % 360) + 360) % 360;
+    }
+}
@@ -0,0 +1,208 @@
+package de.schliweb.makeacopy.utils;
+
+import android.graphics.RectF;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Incremental tokenizer for hOCR that emits the words ({@code ocrx_word}/{@code ocr_word} spans)
+ * to a {@link WordSink} while reading.
+ * <p>
+ * The input is scanned tag by tag; only the current tag and the text of the current word are
+ * buffered, both bounded, so memory stays constant regardless of the document size. Nested markup
+ * inside a word (e.g. {@code <strong>} or another {@code <span>}) is stripped and basic entities are resolved. Words without a
+ * bounding box or with empty text are skipped.
+ * <p>
+ * This class is not intended to be instantiated.
+ */
+public final class HocrWords {
+
+    private static final int MAX_TAG_CHARS = 4096;
+    private static final int MAX_WORD_CHARS = 1024;
+
+    private static final Pattern WORD_CLASS_PATTERN = Pattern.compile("ocrx?_word", Pattern.CASE_INSENSITIVE);
+    private static final Pattern BBOX_PATTERN = Pattern.compile(
+            "bbox\\s+(\\d+)\\s+(\\d+)\\s+(\\d+)\\s+(\\d+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern XWCONF_PATTERN = Pattern.compile("x_wconf\\s+(\\d+)", Pattern.CASE_INSENSITIVE);
+
+    private HocrWords() {
+    }
+
+    /**
+     * Parses hOCR from {@code in} and passes every word to {@code sink} as soon as its closing tag is read.
+     *
+     * @param in          hOCR input, read one character at a time (wrap streams in a buffered reader); not closed
+     * @param defaultConf confidence for words without {@code x_wconf}; null for 0
+     * @param sink        receives the words in document order
+     * @return the number of emitted words
+     * @throws IOException if reading fails or the sink throws
+     */
+    public static int parse(Reader in, Integer defaultConf, WordSink sink) throws IOException {
+        StringBuilder tag = new StringBuilder(128);
+        StringBuilder text = new StringBuilder(64);
+        String title = null; // title of the word being read, null outside of a word
+        int depth = 0; // spans opened inside the current word
+        int count = 0;
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c != '<') {
+                if (title != null && text.length() < MAX_WORD_CHARS) text.append((char) c);
+                continue;
+            }
+            readTag(in, tag);
+            if (title == null) {
+                if (isStartTag(tag, "span")) {
+                    String cls = attribute(tag, "class");
+                    String t = attribute(tag, "title");
+                    if (cls != null && t != null && WORD_CLASS_PATTERN.matcher(cls).find()) {
+                        title = t;
+                        depth = 0;
+                        text.setLength(0);
+                    }
+                }
+            } else if (isStartTag(tag, "span") && tag.charAt(tag.length() - 1) != '/') {
+                depth++;
+            } else if (isEndTag(tag, "span") && depth > 0) {
+                depth--;
+            } else if (isEndTag(tag, "span")) {
+                RecognizedWord w = toWord(title, text, defaultConf);
+                title = null;
+                if (w != null) {
+                    sink.accept(w);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Reads the rest of a tag after {@code '<'} into {@code tag} (without the angle brackets).
+     * Quoted attribute values may contain {@code '>'}. Tags longer than {@link #MAX_TAG_CHARS} are truncated.
+     */
+    private static void readTag(Reader in, StringBuilder tag) throws IOException {
+        tag.setLength(0);
+        char quote = 0;
+        int c;
+        while ((c = in.read()) != -1) {
+            if (quote != 0) {
+                if (c == quote) quote = 0;
+            } else if (c == '"' || c == '\'') {
+                quote = (char) c;
+            } else if (c == '>') {
+                return;
+            }
+            if (tag.length() < MAX_TAG_CHARS) tag.append((char) c);
+        }
+    }
+
+    private static boolean isStartTag(CharSequence tag, String name) {
+        return tag.length() > name.length()
+                && regionMatches(tag, 0, name)
+                && Character.isWhitespace(tag.charAt(name.length()));
+    }
+
+    private static boolean isEndTag(CharSequence tag, String name) {
+        if (tag.length() < name.length() + 1 || tag.charAt(0) != '/') return false;
+        if (!regionMatches(tag, 1, name)) return false;
+        for (int i = name.length() + 1; i < tag.length(); i++) {
+            if (!Character.isWhitespace(tag.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private static boolean regionMatches(CharSequence s, int offset, String name) {
+        if (s.length() < offset + name.length()) return false;
+        for (int i = 0; i < name.length(); i++) {
+            if (Character.toLowerCase(s.charAt(offset + i)) != name.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the value of attribute {@code name} (lower case) in a start tag, or null.
+     */
+    private static String attribute(CharSequence tag, String name) {
+        int n = tag.length();
+        int i = 0;
+        // skip tag name
+        while (i < n && !Character.isWhitespace(tag.charAt(i))) i++;
+        while (i < n) {
+            while (i < n && (Character.isWhitespace(tag.charAt(i)) || tag.charAt(i) == '/')) i++;
+            int nameStart = i;
+            while (i < n && tag.charAt(i) != '=' && !Character.isWhitespace(tag.charAt(i))) i++;
+            int nameEnd = i;
+            while (i < n && Character.isWhitespace(tag.charAt(i))) i++;
+            String value = null;
+            if (i < n && tag.charAt(i) == '=') {
+                i++;
+                while (i < n && Character.isWhitespace(tag.charAt(i))) i++;
+                if (i < n && (tag.charAt(i) == '"' || tag.charAt(i) == '\'')) {
+                    char q = tag.charAt(i++);
+                    int vs = i;
+                    while (i < n && tag.charAt(i) != q) i++;
+                    value = tag.subSequence(vs, i).toString();
+                    i++;
+                } else {
+                    int vs = i;
+                    while (i < n && !Character.isWhitespace(tag.charAt(i))) i++;
+                    value = tag.subSequence(vs, i).toString();
+                }
+            }
+            if (nameEnd > nameStart && nameEnd - nameStart == name.length() && regionMatches(tag, nameStart, name)) {
+                return value;
+            }
+            if (nameEnd == nameStart) i++; // stray character
+        }
+        return null;
+    }
+
+    private static RecognizedWord toWord(String title, CharSequence html, Integer defaultConf) {
+        Matcher bboxM = BBOX_PATTERN.matcher(title);
+        if (!bboxM.find()) return null;
+        try {
+            float left = Float.parseFloat(bboxM.group(1));
+            float top = Float.parseFloat(bboxM.group(2));
+            float right = Float.parseFloat(bboxM.group(3));
+            float bottom = Float.parseFloat(bboxM.group(4));
+
+            float conf = (defaultConf != null) ? defaultConf : 0f;
+            Matcher confM = XWCONF_PATTERN.matcher(title);
+            if (confM.find()) {
+                try {
+                    conf = Float.parseFloat(confM.group(1));
+                } catch (Throwable ignore) {
+                }
+            }
+
+            String text = cleanText(html);
+            if (text.isEmpty()) return null;
+            return new RecognizedWord(text, new RectF(left, top, right, bottom), conf);
+        } catch (Throwable ignore) {
+            return null; // skip malformed entries
+        }
+    }
+
+    /**
+     * Resolves basic HTML entities, trims and collapses runs of whitespace into a single space.
+     * Markup has already been removed by the tokenizer.
+     */
+    static String cleanText(CharSequence html) {
+        String t = html.toString();
+        if (t.indexOf('&') >= 0) {
+            t = t.replace("&nbsp;", " ")
+                    .replace("&lt;", "<")
+                    .replace("&gt;", ">")
+                    .replace("&quot;", "\"")
+                    .replace("&apos;", "'")
+                    .replace("&#39;", "'")
+                    .replace("&amp;", "&");
+        }
+        t = t.trim();
+        if (t.length() > 1) t = t.replaceAll("\\s{2,}", " ");
+        return t;
+    }
+}
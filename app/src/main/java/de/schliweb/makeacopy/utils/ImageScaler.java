@@ -20,6 +20,19 @@ public class ImageScaler {
     public static final int A4_HEIGHT_300DPI = 3508;
     private static final String TAG = "ImageScaler";
 
+    /**
+     * Returns the factor that {@link #scaleToA4(Bitmap)} applies to an image of the given size:
+     * the largest scale that fits the image within A4 at 300 DPI, but never more than 1.
+     *
+     * @param width  image width in pixels
+     * @param height image height in pixels
+     * @return the scale factor in (0, 1]
+     */
+    public static float fitA4Scale(int width, int height) {
+        if (width <= A4_WIDTH_300DPI && height <= A4_HEIGHT_300DPI) return 1.0f;
+        return Math.min((float) A4_WIDTH_300DPI / width, (float) A4_HEIGHT_300DPI / height);
+    }
+
     /**
      * Scales a given bitmap image to fit within A4 dimensions at 300 DPI while maintaining the aspect ratio.
      * If the original bitmap is already smaller than or equal to A4 dimensions, no scaling is performed.
@@ -35,12 +48,8 @@ public class ImageScaler {
         }
 
         // Calculate scaling factor to fit the image within A4 dimensions
-        float scale = 1.0f;
-        if (originalBitmap.getWidth() > A4_WIDTH_300DPI || originalBitmap.getHeight() > A4_HEIGHT_300DPI) {
-            float scaleWidth = (float) A4_WIDTH_300DPI / originalBitmap.getWidth();
-            float scaleHeight = (float) A4_HEIGHT_300DPI / originalBitmap.getHeight();
-            scale = Math.min(scaleWidth, scaleHeight);
-
+        float scale = fitA4Scale(originalBitmap.getWidth(), originalBitmap.getHeight());
+        if (scale < 1.0f) {
             Log.d(TAG, "scaleToA4: Scaling image from " + originalBitmap.getWidth() + "x" + originalBitmap.getHeight() + " to fit within A4 dimensions (" + A4_WIDTH_300DPI + "x" + A4_HEIGHT_300DPI + ") with scale factor " + scale);
         } else {
             Log.d(TAG, "scaleToA4: Image already fits within A4 dimensions, no scaling needed");
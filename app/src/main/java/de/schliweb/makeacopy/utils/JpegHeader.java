@@ -0,0 +1,101 @@
+package de.schliweb.makeacopy.utils;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Minimal JPEG header reader that extracts the frame dimensions and component count from the
+ * SOF marker without decoding any pixel data.
+ * <p>
+ * Used to decide whether an already encoded JPEG can be embedded into a PDF as-is
+ * (DCTDecode passthrough) instead of being decoded and re-encoded.
+ */
+public final class JpegHeader {
+    public final int width;
+    public final int height;
+    public final int components;
+    public final boolean progressive;
+
+    JpegHeader(int width, int height, int components, boolean progressive) {
+        this.width = width;
+        this.height = height;
+        this.components = components;
+        this.progressive = progressive;
+    }
+
+    /**
+     * Reads the header of the given JPEG file.
+     *
+     * @param file the file to inspect
+     * @return the parsed header, or null if the file is not a readable baseline/progressive JPEG
+     */
+    public static JpegHeader read(File file) {
+        if (file == null || !file.isFile()) return null;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), 8 * 1024)) {
+            return read(in);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads a JPEG header from the start of {@code stream}. The stream is consumed up to and
+     * including the first SOF segment; it is not closed.
+     *
+     * @param stream the JPEG data
+     * @return the parsed header, or null if no supported SOF marker precedes the image data
+     * @throws IOException if reading fails
+     */
+    public static JpegHeader read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        try {
+            if (in.readUnsignedByte() != 0xFF || in.readUnsignedByte() != 0xD8) return null; // SOI
+            while (true) {
+                int b = in.readUnsignedByte();
+                if (b != 0xFF) return null;
+                int marker = in.readUnsignedByte();
+                while (marker == 0xFF) marker = in.readUnsignedByte(); // fill bytes
+                if (marker == 0xD8 || (marker >= 0xD0 && marker <= 0xD7) || marker == 0x01) continue; // no length
+                if (marker == 0xD9 || marker == 0xDA) return null; // EOI / SOS before any SOF
+                int length = in.readUnsignedShort();
+                if (length < 2) return null;
+                if (isSof(marker)) {
+                    in.readUnsignedByte(); // sample precision
+                    int height = in.readUnsignedShort();
+                    int width = in.readUnsignedShort();
+                    int components = in.readUnsignedByte();
+                    if (width <= 0 || height <= 0) return null;
+                    return new JpegHeader(width, height, components, marker == 0xC2);
+                }
+                skipFully(in, length - 2);
+            }
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Huffman-coded baseline, extended and progressive frames. Lossless and arithmetic-coded
+     * variants are not supported by common PDF viewers and are therefore rejected.
+     */
+    private static boolean isSof(int marker) {
+        return marker == 0xC0 || marker == 0xC1 || marker == 0xC2;
+    }
+
+    private static void skipFully(DataInputStream in, int n) throws IOException {
+        int remaining = n;
+        while (remaining > 0) {
+            int skipped = in.skipBytes(remaining);
+            if (skipped <= 0) {
+                in.readUnsignedByte();
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+}
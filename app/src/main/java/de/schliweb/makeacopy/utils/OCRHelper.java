@@ -1,17 +1,25 @@
 package de.schliweb.makeacopy.utils;
 
+import android.app.ActivityManager;
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.graphics.Rect;
 import android.graphics.RectF;
 import android.util.Log;
+import com.googlecode.leptonica.android.Pixa;
+import com.googlecode.tesseract.android.ResultIterator;
 import com.googlecode.tesseract.android.TessBaseAPI;
 
 import java.io.*;
 import java.util.ArrayList;
-import java.util.LinkedHashSet;
+import java.util.Arrays;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * OCRHelper is a utility class used for Optical Character Recognition (OCR)
@@ -20,20 +28,30 @@ import java.util.regex.Pattern;
  */
 public class OCRHelper {
     private static final String TAG = "OCRHelper";
-    private static final String TESSDATA_DIR = "tessdata";
     private static final String DEFAULT_LANGUAGE = "eng";
-    private static final String TRAINEDDATA_EXT = ".traineddata";
     private static final String DEFAULT_DPI = "300";
+    private static final int MAX_PARALLEL_ENGINES = 4;
+    // Below this size the layout analysis and fan-out overhead outweighs the gain
+    private static final int MIN_PARALLEL_PIXELS = 1_500_000;
+    private static final int REGION_PADDING_PX = 4;
 
     private final Context context;
     private final String dataPath;
     private TessBaseAPI tessBaseAPI;
+    private TessEnginePool.Lease lease;
     private String language;
     private boolean isInitialized = false;
     // Use a fixed Page Segmentation Mode by default to stabilize OCR results
     private int pageSegMode = TessBaseAPI.PageSegMode.PSM_SINGLE_BLOCK;
-    // Option to reinitialize Tesseract engine per OCR run to avoid internal state carry-over
+    // Option to reset the (pooled) Tesseract engine before each OCR run to avoid internal state carry-over
     private boolean reinitPerRun = true;
+    // Optional region-parallel recognition on several pooled engines (see setParallelRegions)
+    private boolean parallelRegions = false;
+    // Reuse results for unchanged input and settings (see OcrResultCache)
+    private boolean resultCacheEnabled = true;
+    private File resultCacheDir;
+    // Variables set via setVariable(), latest value per name; part of the cache key in name order
+    private final Map<String, String> customVariables = new TreeMap<>();
 
     /**
      * Constructs an instance of the OCRHelper class.
@@ -52,8 +70,9 @@ public class OCRHelper {
 
     /**
      * Initializes the Tesseract OCR engine for the specified language and prepares it for processing.
-     * This method ensures that the required language data is available, sets default configurations,
-     * and initializes the underlying Tesseract API.
+     * This method ensures that the required language data is available, leases an engine for the
+     * language from the process-wide {@link TessEnginePool} (reusing a warm one when available)
+     * and applies the default configuration.
      *
      * @return true if the Tesseract engine is successfully initialized; false otherwise
      */
@@ -61,14 +80,14 @@ public class OCRHelper {
         if (isInitialized) return true;
         try {
             ensureLanguageDataPresent(language);
-            tessBaseAPI = new TessBaseAPI();
-            boolean ok = tessBaseAPI.init(dataPath, language);
-            if (!ok) {
+            lease = TessEnginePool.acquire(context, dataPath, language);
+            if (lease == null) {
                 Log.e(TAG, "Tesseract initialization failed");
                 return false;
             }
-            applyDefaultsForLanguage(language);
+            tessBaseAPI = lease.api();
             isInitialized = true;
+            applyDefaultsForLanguage(language);
             Log.i(TAG, "Tesseract initialized: lang=" + language + ", psm=" + pageSegMode + ", dpi=" + DEFAULT_DPI);
             return true;
         } catch (Exception e) {
@@ -78,20 +97,20 @@ public class OCRHelper {
     }
 
     /**
-     * Releases resources associated with the Tesseract OCR engine and resets the state of the OCRHelper.
+     * Releases the Tesseract OCR engine and resets the state of the OCRHelper.
      * <p>
-     * This method ensures that the Tesseract OCR engine is properly shut down and memory is released.
-     * If the engine has been initialized, its resources are recycled and the associated instance is set to null.
-     * The state of OCRHelper is also updated to indicate that it is no longer initialized.
+     * The engine is returned to the {@link TessEnginePool}, which keeps it warm for later runs or recycles
+     * it (idle timeout, memory pressure). Must be called from the thread that used the engine.
      */
     public void shutdown() {
-        if (tessBaseAPI != null) {
+        if (lease != null) {
             try {
-                tessBaseAPI.recycle();
+                lease.close();
             } catch (Throwable ignore) {
             }
-            tessBaseAPI = null;
+            lease = null;
         }
+        tessBaseAPI = null;
         isInitialized = false;
     }
 
@@ -104,6 +123,25 @@ public class OCRHelper {
         return isInitialized;
     }
 
+    /**
+     * Deterministic reset between runs: drops image and recognition results of the previous run and
+     * re-applies the configured variables, without reloading the traineddata.
+     */
+    private void resetEngine() {
+        try {
+            tessBaseAPI.clear();
+        } catch (Throwable t) {
+            Log.w(TAG, "resetEngine: clear failed, reinitializing", t);
+            if (lease != null) lease.discard();
+            lease = null;
+            tessBaseAPI = null;
+            isInitialized = false;
+            initTesseract();
+            return;
+        }
+        applyDefaultsForLanguage(language);
+    }
+
     /* ==================== Language / Data ==================== */
 
     public int getPageSegMode() {
@@ -111,7 +149,8 @@ public class OCRHelper {
     }
 
     /**
-     * Enables/disables reinitialization of Tesseract before each OCR run.
+     * Enables/disables resetting Tesseract before each OCR run. The reset clears previous results and
+     * re-applies the language defaults on the warm engine instead of reloading the traineddata.
      * Default is true to reduce variability across runs.
      */
     public void setReinitPerRun(boolean enable) {
@@ -119,6 +158,66 @@ public class OCRHelper {
         Log.i(TAG, "setReinitPerRun: " + enable);
     }
 
+    /**
+     * Enables/disables region-parallel OCR. When enabled, {@link #runOcrWithWords(Bitmap)} runs layout
+     * analysis once, recognizes the detected text blocks concurrently on several pooled engines and merges
+     * the words back into page coordinates in reading order. The degree of parallelism is bounded by the
+     * number of cores and the available memory; on low-RAM devices, under memory pressure, for small images
+     * or pages with a single block, the regular single-engine path is used. Default is false.
+     */
+    public void setParallelRegions(boolean enable) {
+        this.parallelRegions = enable;
+        Log.i(TAG, "setParallelRegions: " + enable);
+    }
+
+    /**
+     * Enables/disables the {@link OcrResultCache} for {@link #runOcrWithWords(Bitmap)}. When enabled, the input
+     * bitmap is hashed together with the engine settings and a stored result for the same key is returned
+     * without running recognition. Default is true.
+     */
+    public void setResultCacheEnabled(boolean enable) {
+        this.resultCacheEnabled = enable;
+    }
+
+    /**
+     * Sets the directory for cached results, e.g. the cache directory of a persisted scan
+     * ({@link OcrResultCache#scanCacheDir(File)}). Defaults to the shared cache for transient images.
+     */
+    public void setResultCacheDir(File dir) {
+        this.resultCacheDir = dir;
+    }
+
+    /**
+     * Settings descriptor for cache keys of an OCRHelper with default configuration (single engine,
+     * default page segmentation mode) and the given language spec.
+     *
+     * @param langSpec language spec such as "deu+eng"
+     * @return the descriptor for {@link OcrResultCache#keyFor}
+     */
+    public static String defaultCacheSettings(String langSpec) {
+        return cacheSettings(langSpec != null && !langSpec.isEmpty() ? langSpec : DEFAULT_LANGUAGE,
+                TessBaseAPI.PageSegMode.PSM_SINGLE_BLOCK, false, "");
+    }
+
+    private static String cacheSettings(String langSpec, int psm, boolean parallel, String customVars) {
+        boolean isChinese = langSpec != null && langSpec.toLowerCase().contains("chi_");
+        String whitelist = isChinese ? "" : OCRWhitelist.getWhitelistForLangSpec(langSpec);
+        String mode = (parallel ? "regions" : "single") + (customVars.isEmpty() ? "" : ";" + customVars);
+        return OcrResultCache.settings(langSpec, isChinese ? TessBaseAPI.PageSegMode.PSM_AUTO : psm, whitelist, mode);
+    }
+
+    /**
+     * @return the custom variables as "name=value;" pairs in name order, so the key does not depend on the
+     * order or repetition of setVariable() calls
+     */
+    private String customVariablesKey() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> e : customVariables.entrySet()) {
+            sb.append(e.getKey()).append('=').append(e.getValue()).append(';');
+        }
+        return sb.toString();
+    }
+
     /**
      * Sets the language for the OCR engine. If the specified language is null or empty,
      * a default language value is used. If the given language differs from the currently
@@ -139,15 +238,10 @@ public class OCRHelper {
         ensureLanguageDataPresent(language);
 
         if (isInitialized) {
-            tessBaseAPI.recycle();
-            tessBaseAPI = new TessBaseAPI();
-            boolean ok = tessBaseAPI.init(dataPath, language);
-            if (!ok) {
-                isInitialized = false;
+            shutdown();
+            if (!initTesseract()) {
                 Log.e(TAG, "Failed to reinit Tesseract with language: " + language);
-                return;
             }
-            applyDefaultsForLanguage(language);
         }
     }
 
@@ -155,7 +249,8 @@ public class OCRHelper {
      * Applies default configuration settings for the specified language or language specification
      * within the OCR engine. This method ensures that the OCR engine is configured with optimal
      * settings such as page segmentation mode, DPI, interword space preservation, and character
-     * whitelists based on the given language specification.
+     * whitelists based on the given language specification. Adaptive learning is switched off, so that a
+     * reused engine produces the same result for the same input.
      *
      * @param langSpec The language specification provided as a string (e.g., "eng", "deu+eng").
      *                 This is used to configure the character whitelist and other language-specific
@@ -163,6 +258,21 @@ public class OCRHelper {
      */
     public void applyDefaultsForLanguage(String langSpec) {
         if (!isInitialized) return;
+        applyDefaults(tessBaseAPI, langSpec);
+    }
+
+    /**
+     * For Chinese, prefer AUTO segmentation; otherwise keep the configured PSM.
+     */
+    private int effectivePageSegMode(String langSpec) {
+        String ls = (langSpec == null) ? "" : langSpec.toLowerCase();
+        return ls.contains("chi_") ? TessBaseAPI.PageSegMode.PSM_AUTO : pageSegMode;
+    }
+
+    /**
+     * Applies the defaults described in {@link #applyDefaultsForLanguage(String)} to the given engine.
+     */
+    private void applyDefaults(TessBaseAPI api, String langSpec) {
         boolean isChinese = false;
         try {
             String ls = (langSpec == null) ? "" : langSpec.toLowerCase();
@@ -170,23 +280,27 @@ public class OCRHelper {
         } catch (Throwable ignore) {
         }
         try {
-            // For Chinese, prefer AUTO segmentation; otherwise keep configured PSM
-            int psm = isChinese ? com.googlecode.tesseract.android.TessBaseAPI.PageSegMode.PSM_AUTO : pageSegMode;
-            tessBaseAPI.setPageSegMode(psm);
+            api.setPageSegMode(effectivePageSegMode(langSpec));
+        } catch (Throwable ignored) {
+        }
+        try {
+            api.setVariable("user_defined_dpi", DEFAULT_DPI);
         } catch (Throwable ignored) {
         }
         try {
-            tessBaseAPI.setVariable("user_defined_dpi", DEFAULT_DPI);
+            // Keep results independent of earlier pages on a reused engine
+            api.setVariable("classify_enable_learning", "0");
         } catch (Throwable ignored) {
         }
         try {
             // In CJK, interword spaces are not meaningful; let Tesseract decide spacing
-            tessBaseAPI.setVariable("preserve_interword_spaces", isChinese ? "0" : "1");
+            api.setVariable("preserve_interword_spaces", isChinese ? "0" : "1");
         } catch (Throwable ignored) {
         }
         try {
-            // Do NOT enforce Latin whitelist for Chinese; otherwise compose whitelist from spec
-            if (!isChinese) setWhitelist(OCRWhitelist.getWhitelistForLangSpec(langSpec));
+            // Do NOT enforce Latin whitelist for Chinese (clear any whitelist left on a pooled engine);
+            // otherwise compose whitelist from spec
+            api.setVariable("tessedit_char_whitelist", isChinese ? "" : OCRWhitelist.getWhitelistForLangSpec(langSpec));
         } catch (Throwable ignored) {
         }
         Log.i(TAG, "applyDefaultsForLanguage: langSpec=" + langSpec + (isChinese ? " (CJK)" : "") + ", psm=" + (isChinese ? "AUTO" : String.valueOf(pageSegMode)) + ", dpi=" + DEFAULT_DPI);
@@ -196,6 +310,7 @@ public class OCRHelper {
      * Ensures that the required language data files are available for the specified language specification.
      * This method processes the language specification, which may consist of one or more language codes
      * separated by a "+" symbol, and ensures that data files for each language are present.
+     * Extraction is delegated to {@link TessDataManager}, which usually has done it in the background already.
      *
      * @param langSpec The language specification string (e.g., "eng", "deu+eng").
      *                 Each language part should correspond to a valid language code for which
@@ -205,44 +320,7 @@ public class OCRHelper {
     private void ensureLanguageDataPresent(String langSpec) throws IOException {
         for (String part : langSpec.split("\\+")) {
             String lang = part.trim();
-            if (!lang.isEmpty()) copyLanguageDataFileSingle(lang);
-        }
-    }
-
-    /**
-     * Copies a single language data file for the Tesseract OCR engine to the appropriate directory.
-     * If the file already exists and is non-empty, the method does nothing. Otherwise, it attempts to
-     * extract the file from the application's assets and saves it to the target location.
-     *
-     * @param lang The language code specifying the language data file to copy (e.g., "eng" for English).
-     * @throws IOException If an error occurs while creating the directory or copying the file.
-     */
-    private void copyLanguageDataFileSingle(String lang) throws IOException {
-        File dir = new File(dataPath + "/" + TESSDATA_DIR);
-        if (!dir.exists() && !dir.mkdirs()) throw new IOException("Failed to create tessdata dir: " + dir);
-
-        String filename = lang + TRAINEDDATA_EXT;
-        File target = new File(dir, filename);
-        if (target.exists() && target.length() > 0) return;
-
-        try (InputStream in = context.getAssets().open(TESSDATA_DIR + "/" + filename)) {
-            File tmp = File.createTempFile(lang + ".", ".tmp", dir);
-            try (OutputStream out = new FileOutputStream(tmp)) {
-                byte[] buf = new byte[8192];
-                int n;
-                while ((n = in.read(buf)) != -1) out.write(buf, 0, n);
-                out.flush();
-            }
-            if (!tmp.renameTo(target)) {
-                try (InputStream rin = new FileInputStream(tmp);
-                     OutputStream rout = new FileOutputStream(target)) {
-                    byte[] buf = new byte[8192];
-                    int n;
-                    while ((n = rin.read(buf)) != -1) rout.write(buf, 0, n);
-                }
-                //noinspection ResultOfMethodCallIgnored
-                tmp.delete();
-            }
+            if (!lang.isEmpty()) TessDataManager.ensureLanguage(context, lang);
         }
     }
 
@@ -255,25 +333,8 @@ public class OCRHelper {
      */
     public String[] getAvailableLanguages() {
         try {
-            LinkedHashSet<String> langs = new LinkedHashSet<>();
-
-            String[] assetFiles = context.getAssets().list(TESSDATA_DIR);
-            if (assetFiles != null) {
-                for (String f : assetFiles)
-                    if (f.endsWith(TRAINEDDATA_EXT))
-                        langs.add(f.substring(0, f.length() - TRAINEDDATA_EXT.length()));
-            }
-
-            File localDir = new File(dataPath + "/" + TESSDATA_DIR);
-            File[] local = localDir.listFiles((d, name) -> name.endsWith(TRAINEDDATA_EXT));
-            if (local != null) {
-                for (File f : local) {
-                    String n = f.getName();
-                    langs.add(n.substring(0, n.length() - TRAINEDDATA_EXT.length()));
-                }
-            }
-            return langs.toArray(new String[0]);
-        } catch (IOException e) {
+            return TessDataManager.getAvailableLanguages(context);
+        } catch (Throwable e) {
             Log.e(TAG, "Error listing languages", e);
             return new String[0];
         }
@@ -289,17 +350,7 @@ public class OCRHelper {
      * or local directory; false otherwise.
      */
     public boolean isLanguageAvailable(String lang) {
-        String filename = lang + TRAINEDDATA_EXT;
-        try {
-            String[] assetFiles = context.getAssets().list(TESSDATA_DIR);
-            if (assetFiles != null) {
-                for (String a : assetFiles) if (a.equals(filename)) return true;
-            }
-        } catch (IOException e) {
-            Log.e(TAG, "Error checking assets", e);
-        }
-        File f = new File(dataPath + "/" + TESSDATA_DIR + "/" + filename);
-        return f.exists() && f.length() > 0;
+        return TessDataManager.isLanguageAvailable(context, lang);
     }
 
     /* ==================== OCR-Options ==================== */
@@ -346,7 +397,9 @@ public class OCRHelper {
             Log.e(TAG, "Tesseract not initialized");
             return false;
         }
-        return tessBaseAPI.setVariable(var, value);
+        customVariables.put(var, value);
+        // Through the lease, so that the pool does not hand a customized engine to other users
+        return lease != null ? lease.setVariable(var, value) : tessBaseAPI.setVariable(var, value);
     }
 
     /**
@@ -403,6 +456,10 @@ public class OCRHelper {
      * Performs Optical Character Recognition (OCR) on the given bitmap and retrieves the recognized text
      * along with additional details such as recognition confidence and word-level information.
      * This method uses Tesseract OCR and processes the input image to extract text.
+     * <p>
+     * Words are collected in a single pass over Tesseract's result iterator and the plain text is
+     * rebuilt from them, so neither a separate text extraction nor an hOCR document is produced.
+     * If the iterator is unavailable, the hOCR path ({@link #runOcrWithWordsViaHocr(Bitmap)}) is used.
      *
      * @param bitmap The input image as a {@link Bitmap} object. The image should be clear and
      *               appropriately oriented for optimal OCR results.
@@ -411,18 +468,54 @@ public class OCRHelper {
      * is not initialized, the result will contain empty text and default values.
      */
     public OcrResultWords runOcrWithWords(Bitmap bitmap) {
+        return recognize(bitmap, true);
+    }
+
+    /**
+     * Legacy variant of {@link #runOcrWithWords(Bitmap)} that extracts the plain text via
+     * {@code getUTF8Text()} and the words by parsing {@code getHOCRText(0)}. Kept as fallback and
+     * as baseline for benchmarks.
+     *
+     * @param bitmap The input image
+     * @return the OCR result, see {@link #runOcrWithWords(Bitmap)}
+     */
+    public OcrResultWords runOcrWithWordsViaHocr(Bitmap bitmap) {
+        return recognize(bitmap, false);
+    }
+
+    private OcrResultWords recognize(Bitmap bitmap, boolean useIterator) {
         if (bitmap == null) {
             Log.e(TAG, "runOcrWithWords: bitmap is null");
             return new OcrResultWords("", null, new ArrayList<>());
         }
+        File cacheDir = null;
+        String cacheKey = null;
+        if (useIterator && resultCacheEnabled) {
+            cacheDir = resultCacheDir != null ? resultCacheDir : OcrResultCache.sharedCacheDir(context);
+            cacheKey = OcrResultCache.keyFor(bitmap, cacheSettings(language, pageSegMode, parallelRegions, customVariablesKey()));
+            OcrResultWords cached = OcrResultCache.get(cacheDir, cacheKey);
+            if (cached != null) {
+                Log.i(TAG, "runOcrWithWords: cached result, words=" + cached.words.size());
+                return cached;
+            }
+        }
+        OcrResultWords res = recognizeUncached(bitmap, useIterator);
+        // Failed runs return empty text with no confidence; do not cache those
+        if (cacheKey != null && res.meanConfidence != null) {
+            OcrResultCache.put(cacheDir, cacheKey, res,
+                    resultCacheDir != null ? OcrResultCache.MAX_ENTRIES_PER_SCAN : OcrResultCache.MAX_SHARED_ENTRIES);
+        }
+        return res;
+    }
+
+    private OcrResultWords recognizeUncached(Bitmap bitmap, boolean useIterator) {
         try {
-            // Optionally reinitialize engine to avoid non-deterministic internal state
+            // Optionally reset engine to avoid non-deterministic internal state
             if (!isInitialized) {
                 initTesseract();
             } else if (reinitPerRun) {
-                Log.i(TAG, "runOcrWithWords: reinitializing engine per run");
-                shutdown();
-                initTesseract();
+                Log.i(TAG, "runOcrWithWords: resetting engine before run");
+                resetEngine();
             }
             if (!isInitialized) {
                 Log.e(TAG, "Tesseract not initialized after (re)init");
@@ -430,158 +523,544 @@ public class OCRHelper {
             }
 
             Bitmap src = bitmap.getConfig() == Bitmap.Config.ARGB_8888 ? bitmap : bitmap.copy(Bitmap.Config.ARGB_8888, false);
-            Log.i(TAG, "runOcrWithWords: start OCR lang=" + language + ", psm=" + pageSegMode + ", dpi=" + DEFAULT_DPI + ", img=" + src.getWidth() + "x" + src.getHeight());
+            Log.i(TAG, "runOcrWithWords: start OCR lang=" + language + ", psm=" + pageSegMode + ", dpi=" + DEFAULT_DPI + ", img=" + src.getWidth() + "x" + src.getHeight() + ", iterator=" + useIterator);
+
+            if (useIterator && parallelRegions && (long) src.getWidth() * src.getHeight() >= MIN_PARALLEL_PIXELS) {
+                int engines = computeParallelism();
+                if (engines > 1) {
+                    OcrResultWords parallel = recognizeRegionsParallel(src, engines);
+                    if (parallel != null) return parallel;
+                }
+            }
 
             tessBaseAPI.setImage(src);
-            String text = tessBaseAPI.getUTF8Text();
-            String hocr = null;
-            try {
-                hocr = tessBaseAPI.getHOCRText(0); // Seite 0
-            } catch (Throwable t) {
-                Log.w(TAG, "getHOCRText not available", t);
+            String text = null;
+            List<RecognizedWord> words = null;
+            Integer conf;
+            if (useIterator) {
+                // meanConfidence() runs recognition once; the iterator then reads its results
+                conf = getMeanConfidenceSafe();
+                words = new ArrayList<>();
+                text = collectWordsFromIterator(tessBaseAPI, words, conf);
+                if (text == null) words = null;
+            } else {
+                conf = null;
+            }
+            if (text == null) {
+                text = tessBaseAPI.getUTF8Text();
+                String hocr = null;
+                try {
+                    hocr = tessBaseAPI.getHOCRText(0); // Seite 0
+                } catch (Throwable t) {
+                    Log.w(TAG, "getHOCRText not available", t);
+                }
+                if (conf == null) conf = getMeanConfidenceSafe();
+                words = parseHocrWords(hocr, conf);
             }
-            Integer conf = getMeanConfidenceSafe();
             tessBaseAPI.clear();
 
-            List<RecognizedWord> words = parseHocrWords(hocr, conf);
             Log.i(TAG, "runOcrWithWords: done textLen=" + (text != null ? text.length() : 0) + ", words=" + (words != null ? words.size() : 0) + ", meanConf=" + conf);
             return new OcrResultWords(text, conf, words);
         } catch (Exception e) {
-            Log.e(TAG, "Error performing OCR with HOCR", e);
+            Log.e(TAG, "Error performing OCR with words", e);
             return new OcrResultWords("", null, new ArrayList<>());
         }
     }
 
-    /* ==================== HOCR-Parsing ==================== */
+    /* ==================== Batch OCR ==================== */
 
     /**
-     * A regular expression pattern used to match and extract specific HTML span elements
-     * related to OCR results. These span elements represent words extracted by OCR engines
-     * such as Tesseract and are associated with word-level metadata like bounding box
-     * coordinates and recognition confidence.
-     * <p>
-     * The pattern matches `<span>` elements with the following characteristics:
-     * - A class attribute that contains `ocrx_word` or `ocr_word`.
-     * - A title attribute that includes bounding box (`bbox`) information and confidence
-     * (`x_wconf`) values.
-     * <p>
-     * Capturing groups are used to extract:
-     * 1. Metadata information from the title attribute (e.g., bounding box data).
-     * 2. The text content enclosed within the span element.
-     * <p>
-     * This pattern is case-insensitive and supports matching across multiple lines.
+     * A page to recognize in {@link #runBatch(List, BatchListener)}: either an image file, which is decoded
+     * on a background thread while the previous page is being recognized, or an already decoded bitmap.
+     * If {@code outputDir} is set, the result is written there as {@code text.txt} and {@code words.bin}.
      */
-    private static final Pattern SPAN_PATTERN = Pattern.compile(
-            "<span[^>]*class=[\"'][^\"']*ocrx?_word[^\"']*[\"'][^>]*title=[\"']([^\"']+)[\"'][^>]*>(.*?)</span>",
-            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    public static final class BatchPage {
+        public final String id;
+        public final String path;
+        public final Bitmap bitmap;
+        public final File outputDir;
+
+        private BatchPage(String id, String path, Bitmap bitmap, File outputDir) {
+            this.id = id;
+            this.path = path;
+            this.bitmap = bitmap;
+            this.outputDir = outputDir;
+        }
+
+        public static BatchPage ofFile(String id, String path, File outputDir) {
+            return new BatchPage(id, path, null, outputDir);
+        }
+
+        public static BatchPage ofBitmap(String id, Bitmap bitmap, File outputDir) {
+            return new BatchPage(id, null, bitmap, outputDir);
+        }
+    }
 
     /**
-     * A regular expression pattern used to match bounding box data in text. This pattern
-     * identifies strings in the format "bbox x1 y1 x2 y2", where `x1`, `y1`, `x2`, and `y2`
-     * are integers representing the coordinates of a bounding box.
-     * <p>
-     * The pattern is case-insensitive and designed to capture four integer groups
-     * corresponding to the bounding box's corners.
+     * Receives per-page results of {@link #runBatch(List, BatchListener)}. Callbacks arrive in page order
+     * on a background thread, after the page's result files (if any) have been written.
      */
-    private static final Pattern BBOX_PATTERN = Pattern.compile(
-            "bbox\\s+(\\d+)\\s+(\\d+)\\s+(\\d+)\\s+(\\d+)",
-            Pattern.CASE_INSENSITIVE);
+    public interface BatchListener {
+        /**
+         * @param index     index of the page in the batch
+         * @param page      the page
+         * @param result    the OCR result
+         * @param wordsFile the written words.bin, or null if the page has no output directory
+         */
+        void onPageDone(int index, BatchPage page, OcrResultWords result, File wordsFile);
+
+        /**
+         * Called instead of {@link #onPageDone} if the page could not be decoded, recognized or written.
+         */
+        default void onPageFailed(int index, BatchPage page, Throwable error) {
+        }
+
+        /**
+         * Polled between pages; returning true stops the batch after the current page.
+         */
+        default boolean isCancelled() {
+            return false;
+        }
+    }
 
     /**
-     * A precompiled {@link Pattern} used to match and extract confidence (x_wconf) values
-     * from text, typically in the context of processing OCR-related data or structured
-     * output formats such as HOCR.
-     * <p>
-     * The pattern is constructed with the following properties:
-     * - It matches strings containing "x_wconf" followed by one or more digits.
-     * - The matching is case insensitive due to the use of {@link Pattern#CASE_INSENSITIVE}.
+     * Recognizes a list of pages on one warm engine. While page {@code i} is recognized, page {@code i+1}
+     * is decoded and the result of page {@code i-1} is written on a single I/O thread, so that for longer
+     * documents the total time approaches the pure recognition time. At most two decoded pages are held
+     * in memory; bitmaps decoded from files are recycled after recognition.
      * <p>
-     * Capturing groups:
-     * - Captures the numeric component immediately following "x_wconf".
-     * <p>
-     * This pattern is likely used to parse and extract confidence levels associated with
-     * OCR-recognized words or regions.
+     * Must be called from a background thread; the engine is initialized if necessary and stays
+     * initialized afterwards (call {@link #shutdown()} when done).
+     *
+     * @param pages    the pages in order
+     * @param listener receives per-page results; may be null
+     * @return the number of successfully recognized pages
+     */
+    public int runBatch(List<BatchPage> pages, BatchListener listener) {
+        if (pages == null || pages.isEmpty()) return 0;
+        if (!initTesseract()) {
+            Log.e(TAG, "runBatch: Tesseract init failed");
+            Throwable err = new IllegalStateException("Tesseract init failed");
+            for (int i = 0; i < pages.size(); i++) notifyFailed(listener, i, pages.get(i), err);
+            return 0;
+        }
+        ExecutorService io = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "ocr-batch-io");
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicInteger ok = new AtomicInteger();
+        long t0 = System.nanoTime();
+        long recognizeNanos = 0;
+        try {
+            Future<Bitmap> next = io.submit(() -> decodeBatchPage(pages.get(0)));
+            for (int i = 0; i < pages.size(); i++) {
+                final int index = i;
+                final BatchPage page = pages.get(i);
+                Bitmap bmp;
+                try {
+                    bmp = next.get();
+                } catch (Exception e) {
+                    bmp = null;
+                }
+                if (listener != null && listener.isCancelled()) {
+                    if (bmp != null && page.bitmap == null) bmp.recycle();
+                    Log.i(TAG, "runBatch: cancelled at page " + i + "/" + pages.size());
+                    break;
+                }
+                // Prefetch the next page while this one is recognized
+                if (i + 1 < pages.size()) {
+                    final BatchPage following = pages.get(i + 1);
+                    next = io.submit(() -> decodeBatchPage(following));
+                }
+                if (bmp == null) {
+                    io.execute(() -> notifyFailed(listener, index, page, new IOException("Could not decode page " + page.id)));
+                    continue;
+                }
+                long r0 = System.nanoTime();
+                final OcrResultWords res = runOcrWithWords(bmp);
+                recognizeNanos += System.nanoTime() - r0;
+                if (page.bitmap == null) bmp.recycle();
+                if (isFailedResult(res)) {
+                    // Keep the existing artifacts of the page; an empty result would overwrite them
+                    io.execute(() -> notifyFailed(listener, index, page, new IOException("Recognition failed for page " + page.id)));
+                    continue;
+                }
+                // Stream the result to disk and to the listener without blocking the engine
+                io.execute(() -> {
+                    File wordsFile;
+                    try {
+                        wordsFile = page.outputDir != null ? writeResultFiles(page.outputDir, res) : null;
+                    } catch (Throwable t) {
+                        Log.w(TAG, "runBatch: failed to store result of page " + page.id, t);
+                        notifyFailed(listener, index, page, t);
+                        return;
+                    }
+                    ok.incrementAndGet();
+                    if (listener != null) {
+                        try {
+                            listener.onPageDone(index, page, res, wordsFile);
+                        } catch (Throwable t) {
+                            Log.w(TAG, "runBatch: listener failed for page " + page.id, t);
+                        }
+                    }
+                });
+            }
+        } finally {
+            io.shutdown();
+            try {
+                //noinspection ResultOfMethodCallIgnored
+                io.awaitTermination(1, java.util.concurrent.TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        Log.i(TAG, "runBatch: pages=" + pages.size() + ", ok=" + ok.get() + ", total=" + (System.nanoTime() - t0) / 1_000_000L
+                + " ms, recognition=" + recognizeNanos / 1_000_000L + " ms");
+        return ok.get();
+    }
+
+    /**
+     * @return true for the placeholder returned by {@link #runOcrWithWords} when recognition failed (no
+     * confidence, no text, no words), as opposed to a recognized page that is simply blank
      */
-    private static final Pattern XWCONF_PATTERN = Pattern.compile(
-            "x_wconf\\s+(\\d+)",
-            Pattern.CASE_INSENSITIVE);
+    static boolean isFailedResult(OcrResultWords res) {
+        return res == null || (res.meanConfidence == null && res.text.isEmpty() && res.words.isEmpty());
+    }
 
     /**
-     * Parses the given hOCR (HTML for OCR) content to extract recognized words along
-     * with their bounding box coordinates and confidence levels. Each recognized word
-     * is represented as an instance of the RecognizedWord class.
+     * Writes an OCR result as {@code text.txt} (plain text fallback) and {@code words.bin} (see
+     * {@link WordsBinary}) into {@code dir}. A stale {@code words.json} from an earlier run is removed.
      *
-     * @param hocr        the hOCR content to be parsed, represented as a String. It contains
-     *                    structured OCR data with bounding box coordinates and confidence values.
-     * @param defaultConf the default confidence value to use if a specific confidence
-     *                    value is not available in the hOCR data.
-     * @return a list of recognized words extracted from the hOCR content. Each recognized
-     * word includes the text content, bounding box, and confidence level.
+     * @param dir the target directory; created if missing
+     * @param res the OCR result
+     * @return the words.bin file
+     * @throws IOException if writing fails
      */
-    private List<RecognizedWord> parseHocrWords(String hocr, Integer defaultConf) {
-        List<RecognizedWord> out = new ArrayList<>();
-        if (hocr == null || hocr.isEmpty()) return out;
+    public static File writeResultFiles(File dir, OcrResultWords res) throws IOException {
+        if (!dir.exists()) //noinspection ResultOfMethodCallIgnored
+            dir.mkdirs();
+        String text = (res != null && res.text != null) ? res.text : "";
+        try (FileOutputStream fos = new FileOutputStream(new File(dir, "text.txt"))) {
+            fos.write(text.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+            fos.flush();
+        }
+        File wordsFile = new File(dir, WordsBinary.FILE_NAME);
+        WordsBinary.write(wordsFile, res != null ? res.words : null);
+        //noinspection ResultOfMethodCallIgnored
+        new File(dir, "words.json").delete();
+        return wordsFile;
+    }
+
+    private static Bitmap decodeBatchPage(BatchPage page) {
+        if (page.bitmap != null) return page.bitmap;
+        if (page.path == null) return null;
+        try {
+            android.graphics.BitmapFactory.Options o = new android.graphics.BitmapFactory.Options();
+            o.inPreferredConfig = Bitmap.Config.ARGB_8888; // avoid a second copy in recognize()
+            return android.graphics.BitmapFactory.decodeFile(page.path, o);
+        } catch (Throwable t) {
+            Log.w(TAG, "runBatch: decode failed for " + page.path, t);
+            return null;
+        }
+    }
+
+    private static void notifyFailed(BatchListener listener, int index, BatchPage page, Throwable error) {
+        if (listener == null) return;
+        try {
+            listener.onPageFailed(index, page, error);
+        } catch (Throwable ignore) {
+        }
+    }
 
-        Matcher m = SPAN_PATTERN.matcher(hocr);
-        while (m.find()) {
-            String title = m.group(1);
-            String htmlText = m.group(2);
+    /* ==================== Region-parallel OCR ==================== */
 
-            if (title == null) continue;
-            Matcher bboxM = BBOX_PATTERN.matcher(title);
-            if (!bboxM.find()) continue;
+    /**
+     * Number of engines to use for region-parallel OCR: cores minus one (the UI keeps a core), at most
+     * {@link #MAX_PARALLEL_ENGINES}, and no more than half of the available system memory allows given
+     * the size of the loaded traineddata. Returns 1 on low-RAM devices or under memory pressure.
+     */
+    private int computeParallelism() {
+        int n = Math.min(MAX_PARALLEL_ENGINES, Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+        if (n <= 1) return 1;
+        try {
+            if (de.schliweb.makeacopy.services.CacheCleanupService.isMemoryUsageHighStatic(context)) return 1;
+            ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+            if (am != null) {
+                if (am.isLowRamDevice()) return 1;
+                ActivityManager.MemoryInfo mi = new ActivityManager.MemoryInfo();
+                am.getMemoryInfo(mi);
+                if (mi.lowMemory) return 1;
+                long budget = Math.max(0, (mi.availMem - mi.threshold) / 2);
+                n = (int) Math.min(n, Math.max(1, budget / estimateEngineBytes()));
+            }
+        } catch (Throwable t) {
+            Log.w(TAG, "computeParallelism: falling back to single engine", t);
+            return 1;
+        }
+        return n;
+    }
 
-            try {
-                float left = Float.parseFloat(bboxM.group(1));
-                float top = Float.parseFloat(bboxM.group(2));
-                float right = Float.parseFloat(bboxM.group(3));
-                float bottom = Float.parseFloat(bboxM.group(4));
+    /**
+     * Rough native memory footprint of one engine for the current language spec (traineddata is
+     * expanded in memory, plus working buffers for a page region).
+     */
+    private long estimateEngineBytes() {
+        long bytes = 16L * 1024 * 1024;
+        for (String part : language.split("\\+")) {
+            long size = TessDataManager.getLanguageSize(context, part.trim());
+            if (size > 0) bytes += 2 * size;
+        }
+        return bytes;
+    }
 
-                RectF box = new RectF(left, top, right, bottom);
+    /**
+     * Runs layout analysis on this helper's engine and recognizes the resulting blocks on up to
+     * {@code engines} engines concurrently: the calling thread uses this helper's engine, the other
+     * workers lease their own from {@link TessEnginePool}. Regions left over by a failed worker are
+     * recognized on the calling thread.
+     *
+     * @return the merged result, or null if the page has fewer than two blocks
+     */
+    private OcrResultWords recognizeRegionsParallel(Bitmap src, int engines) {
+        final List<Rect> regions = analyseLayout(src);
+        if (regions.size() < 2) return null;
+        final int workers = Math.min(engines, regions.size());
+        final RegionResult[] results = new RegionResult[regions.size()];
+        final AtomicInteger next = new AtomicInteger();
+        long t0 = System.nanoTime();
 
-                float conf = (defaultConf != null) ? defaultConf : 0f;
-                Matcher confM = XWCONF_PATTERN.matcher(title);
-                if (confM.find()) {
+        ExecutorService pool = Executors.newFixedThreadPool(workers - 1, r -> {
+            Thread t = new Thread(r, "ocr-region");
+            t.setDaemon(true);
+            return t;
+        });
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 1; i < workers; i++) {
+                futures.add(pool.submit(() -> {
+                    TessEnginePool.Lease workerLease = TessEnginePool.acquire(context, dataPath, language);
+                    if (workerLease == null) return;
+                    boolean ok = false;
                     try {
-                        conf = Float.parseFloat(confM.group(1));
-                    } catch (Throwable ignore) {
+                        applyDefaults(workerLease.api(), language);
+                        drainRegions(workerLease.api(), src, regions, results, next);
+                        ok = true;
+                    } finally {
+                        if (ok) workerLease.close();
+                        else workerLease.discard();
                     }
+                }));
+            }
+            drainRegions(tessBaseAPI, src, regions, results, next);
+            for (Future<?> f : futures) {
+                try {
+                    f.get();
+                } catch (Exception e) {
+                    Log.w(TAG, "recognizeRegionsParallel: worker failed", e);
                 }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) results[i] = recognizeRegion(tessBaseAPI, src, regions.get(i));
+        }
 
-                String text = cleanHtmlText(htmlText);
-                if (text.isEmpty()) continue;
+        // Merge in reading order (the block order reported by the layout analysis)
+        List<RecognizedWord> words = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        for (RegionResult rr : results) {
+            if (rr.words.isEmpty()) continue;
+            if (text.length() > 0) text.append('\n');
+            text.append(rr.text);
+            words.addAll(rr.words);
+        }
+        Integer conf = null;
+        if (!words.isEmpty()) {
+            float sum = 0f;
+            for (RecognizedWord w : words) sum += w.getConfidence();
+            conf = Math.round(sum / words.size());
+        }
+        Log.i(TAG, "recognizeRegionsParallel: regions=" + regions.size() + ", engines=" + workers + ", words=" + words.size() + ", " + (System.nanoTime() - t0) / 1_000_000L + " ms");
+        return new OcrResultWords(text.toString(), conf, words);
+    }
 
-                out.add(new RecognizedWord(text, box, conf));
+    /**
+     * Layout analysis only: returns the page's blocks (padded, clipped to the image) in reading order.
+     * <p>
+     * The configured page segmentation mode (by default {@code PSM_SINGLE_BLOCK}) skips layout analysis
+     * and would always report one block, so this pass runs with {@code PSM_AUTO_ONLY}; the previous mode
+     * is restored afterwards for the recognition of the individual blocks.
+     */
+    @androidx.annotation.VisibleForTesting
+    List<Rect> analyseLayout(Bitmap src) {
+        List<Rect> out = new ArrayList<>();
+        Pixa pixa = null;
+        int previousPsm = effectivePageSegMode(language);
+        try {
+            tessBaseAPI.setPageSegMode(TessBaseAPI.PageSegMode.PSM_AUTO_ONLY);
+            tessBaseAPI.setImage(src);
+            pixa = tessBaseAPI.getRegions();
+            if (pixa == null) return out;
+            for (Rect r : pixa.getBoxRects()) {
+                if (r == null || r.width() < 8 || r.height() < 8) continue;
+                Rect padded = new Rect(r.left - REGION_PADDING_PX, r.top - REGION_PADDING_PX,
+                        r.right + REGION_PADDING_PX, r.bottom + REGION_PADDING_PX);
+                if (padded.intersect(0, 0, src.getWidth(), src.getHeight())) out.add(padded);
+            }
+        } catch (Throwable t) {
+            Log.w(TAG, "analyseLayout failed", t);
+            out.clear();
+        } finally {
+            if (pixa != null) {
+                try {
+                    pixa.recycle();
+                } catch (Throwable ignore) {
+                }
+            }
+            try {
+                tessBaseAPI.clear();
+            } catch (Throwable ignore) {
+            }
+            try {
+                tessBaseAPI.setPageSegMode(previousPsm);
             } catch (Throwable ignore) {
-                // schluckt fehlerhafte Einträge
             }
         }
+        Log.d(TAG, "analyseLayout: " + out.size() + " block(s) on " + src.getWidth() + "x" + src.getHeight());
         return out;
     }
 
+    private static void drainRegions(TessBaseAPI api, Bitmap src, List<Rect> regions, RegionResult[] results, AtomicInteger next) {
+        int i;
+        while ((i = next.getAndIncrement()) < regions.size()) {
+            results[i] = recognizeRegion(api, src, regions.get(i));
+        }
+    }
+
+    /**
+     * Recognizes a single region on {@code api} and maps its words back into page coordinates.
+     */
+    private static RegionResult recognizeRegion(TessBaseAPI api, Bitmap src, Rect region) {
+        Bitmap crop = Bitmap.createBitmap(src, region.left, region.top, region.width(), region.height());
+        try {
+            api.setImage(crop);
+            Integer conf = api.meanConfidence(); // runs recognition
+            List<RecognizedWord> local = new ArrayList<>();
+            String text = collectWordsFromIterator(api, local, conf);
+            List<RecognizedWord> words = new ArrayList<>(local.size());
+            for (RecognizedWord w : local) words.add(w.transform(1f, 1f, region.left, region.top));
+            return new RegionResult(text != null ? text : "", words);
+        } finally {
+            try {
+                api.clear();
+            } catch (Throwable ignore) {
+            }
+            if (crop != src) crop.recycle();
+        }
+    }
+
+    private static final class RegionResult {
+        final String text;
+        final List<RecognizedWord> words;
+
+        RegionResult(String text, List<RecognizedWord> words) {
+            this.text = text;
+            this.words = words;
+        }
+    }
+
+    /* ==================== Result iterator ==================== */
+
+    /**
+     * Walks Tesseract's result iterator once at word level, appends a {@link RecognizedWord} per
+     * non-empty word to {@code out} and rebuilds the plain text from the words: words are joined by
+     * spaces, text lines by a line break and paragraphs by an empty line, like {@code getUTF8Text()}.
+     * Line and paragraph changes are detected via the bounding boxes of the enclosing layout elements.
+     *
+     * @param api         the engine holding the recognition results
+     * @param out         receives the recognized words
+     * @param defaultConf confidence to use when the iterator reports none
+     * @return the rebuilt plain text, or null if no result iterator is available
+     */
+    private static String collectWordsFromIterator(TessBaseAPI api, List<RecognizedWord> out, Integer defaultConf) {
+        ResultIterator it;
+        try {
+            it = api.getResultIterator();
+        } catch (Throwable t) {
+            Log.w(TAG, "Result iterator not available", t);
+            return null;
+        }
+        if (it == null) return null;
+        final int word = TessBaseAPI.PageIteratorLevel.RIL_WORD;
+        final int line = TessBaseAPI.PageIteratorLevel.RIL_TEXTLINE;
+        final int para = TessBaseAPI.PageIteratorLevel.RIL_PARA;
+        StringBuilder text = new StringBuilder();
+        int[] prevLine = null;
+        int[] prevPara = null;
+        try {
+            it.begin();
+            do {
+                String raw = it.getUTF8Text(word);
+                if (raw == null) continue;
+                String t = raw.trim();
+                if (t.isEmpty()) continue;
+                int[] bb = it.getBoundingBox(word);
+                if (bb == null || bb.length < 4) continue;
+
+                int[] lineBox = it.getBoundingBox(line);
+                int[] paraBox = it.getBoundingBox(para);
+                if (text.length() > 0) {
+                    if (!Arrays.equals(paraBox, prevPara)) {
+                        text.append("\n\n");
+                    } else if (!Arrays.equals(lineBox, prevLine)) {
+                        text.append('\n');
+                    } else {
+                        text.append(' ');
+                    }
+                }
+                prevLine = lineBox;
+                prevPara = paraBox;
+
+                float conf = it.confidence(word);
+                if (conf < 0) conf = (defaultConf != null) ? defaultConf : 0f;
+                out.add(new RecognizedWord(t, new RectF(bb[0], bb[1], bb[2], bb[3]), conf));
+                text.append(t);
+            } while (it.next(word));
+        } finally {
+            try {
+                it.delete();
+            } catch (Throwable ignore) {
+            }
+        }
+        if (text.length() > 0) text.append('\n');
+        return text.toString();
+    }
+
+    /* ==================== HOCR-Parsing ==================== */
+
     /**
-     * Cleans an HTML text string by removing HTML tags, resolving basic HTML entities,
-     * trimming whitespace, and normalizing multiple consecutive spaces into a single space.
+     * Parses the given hOCR (HTML for OCR) content to extract recognized words along
+     * with their bounding box coordinates and confidence levels, using the streaming
+     * tokenizer in {@link HocrWords}.
      *
-     * @param html the HTML text string to be cleaned; can be null
-     * @return the cleaned plain text string; returns an empty string if the input is null
-     */
-    private static String cleanHtmlText(String html) {
-        if (html == null) return "";
-        // Tags entfernen
-        String t = html.replaceAll("<[^>]+>", "");
-        // Grundlegende Entities auflösen
-        t = t.replace("&nbsp;", " ")
-                .replace("&amp;", "&")
-                .replace("&lt;", "<")
-                .replace("&gt;", ">")
-                .replace("&quot;", "\"")
-                .replace("&apos;", "'");
-        // trim & normalisieren
-        t = t.trim();
-        // Mehrfach-Leerzeichen → eins
-        t = t.replaceAll("\\s{2,}", " ");
-        return t;
+     * @param hocr        the hOCR content to be parsed, represented as a String. It contains
+     *                    structured OCR data with bounding box coordinates and confidence values.
+     * @param defaultConf the default confidence value to use if a specific confidence
+     *                    value is not available in the hOCR data.
+     * @return a list of recognized words extracted from the hOCR content. Each recognized
+     * word includes the text content, bounding box, and confidence level.
+     */
+    private List<RecognizedWord> parseHocrWords(String hocr, Integer defaultConf) {
+        List<RecognizedWord> out = new ArrayList<>();
+        if (hocr == null || hocr.isEmpty()) return out;
+        try {
+            HocrWords.parse(new java.io.StringReader(hocr), defaultConf, out::add);
+        } catch (IOException e) {
+            Log.w(TAG, "parseHocrWords: " + e.getMessage());
+        }
+        return out;
     }
 
     /* ==================== Metriken ==================== */
@@ -0,0 +1,302 @@
+package de.schliweb.makeacopy.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Log;
+import com.googlecode.tesseract.android.TessBaseAPI;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Content-addressed cache of OCR results.
+ * <p>
+ * The key is a SHA-256 over the OCR input (the pixels of the prepared bitmap, or the bytes of an image file
+ * that is decoded unchanged for OCR) and the engine settings: language spec, page segmentation mode, whitelist,
+ * recognition mode and Tesseract version. An unchanged page recognized with unchanged settings therefore
+ * maps to the same entry, and any change to the image or the settings yields a new key.
+ * <p>
+ * Entries are stored in a compact binary form (see {@link #write}): next to persisted scans in
+ * {@code files/scans/<id>/ocr/}, and for transient images in {@code cache/ocr-results/}. Both locations are
+ * bounded by entry count; the least recently used entries are evicted. Deleting a scan removes its entries.
+ * <p>
+ * This class is not intended to be instantiated.
+ */
+public final class OcrResultCache {
+    private static final String TAG = "OcrResultCache";
+
+    static final String SCAN_CACHE_DIR = "ocr";
+    static final String SHARED_CACHE_DIR = "ocr-results";
+    private static final String EXT = ".bin";
+    private static final int MAGIC = 0x4D4F4352; // "MOCR"
+    private static final int FORMAT_VERSION = 2;
+    private static final int NO_CONFIDENCE = Integer.MIN_VALUE;
+
+    /**
+     * Maximum entries kept per scan (e.g. one per language).
+     */
+    static final int MAX_ENTRIES_PER_SCAN = 4;
+
+    /**
+     * Maximum entries kept in the shared cache for transient images.
+     */
+    static final int MAX_SHARED_ENTRIES = 48;
+
+    private static volatile String engineVersion;
+
+    private OcrResultCache() {
+    }
+
+    /**
+     * Describes the engine settings that influence the result.
+     *
+     * @param langSpec  language spec, e.g. "deu+eng"
+     * @param psm       page segmentation mode
+     * @param whitelist character whitelist ("" for none)
+     * @param mode      recognition mode (e.g. single engine or region-parallel)
+     * @return the settings descriptor used in cache keys
+     */
+    public static String settings(String langSpec, int psm, String whitelist, String mode) {
+        return "lang=" + langSpec + "|psm=" + psm + "|wl=" + (whitelist != null ? whitelist : "")
+                + "|mode=" + mode + "|tess=" + engineVersion();
+    }
+
+    /**
+     * Computes the key for a bitmap that is passed to the engine as is.
+     *
+     * @param bitmap   the OCR input
+     * @param settings descriptor from {@link #settings}
+     * @return the hex key, or null if hashing failed
+     */
+    public static String keyFor(Bitmap bitmap, String settings) {
+        if (bitmap == null || bitmap.isRecycled()) return null;
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(settings.getBytes(StandardCharsets.UTF_8));
+            int w = bitmap.getWidth();
+            int h = bitmap.getHeight();
+            md.update(ByteBuffer.allocate(8).putInt(w).putInt(h).array());
+            // Hash in bands of rows to bound the temporary memory
+            int band = Math.max(1, Math.min(h, (1 << 20) / Math.max(1, w)));
+            int[] px = new int[w * band];
+            ByteBuffer buf = ByteBuffer.allocate(px.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+            for (int y = 0; y < h; y += band) {
+                int rows = Math.min(band, h - y);
+                bitmap.getPixels(px, 0, w, 0, y, w, rows);
+                buf.clear();
+                buf.asIntBuffer().put(px, 0, w * rows);
+                buf.limit(w * rows * 4);
+                md.update(buf);
+            }
+            return hex(md.digest());
+        } catch (NoSuchAlgorithmException | RuntimeException e) {
+            Log.w(TAG, "keyFor(bitmap) failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Computes the key for an image file that is decoded without modification for OCR.
+     *
+     * @param file     the image file
+     * @param settings descriptor from {@link #settings}
+     * @return the hex key, or null if the file cannot be read
+     */
+    public static String keyFor(File file, String settings) {
+        if (file == null || !file.isFile()) return null;
+        try (FileInputStream in = new FileInputStream(file)) {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(settings.getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 'F'); // files and bitmaps never share keys
+            byte[] buf = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buf)) != -1) md.update(buf, 0, n);
+            return hex(md.digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            Log.w(TAG, "keyFor(file) failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @param scanDir the scan directory (files/scans/&lt;id&gt;)
+     * @return the cache directory of the scan
+     */
+    public static File scanCacheDir(File scanDir) {
+        return new File(scanDir, SCAN_CACHE_DIR);
+    }
+
+    /**
+     * @param context any context
+     * @return the cache directory for images that are not (yet) persisted as scans
+     */
+    public static File sharedCacheDir(Context context) {
+        return new File(context.getCacheDir(), SHARED_CACHE_DIR);
+    }
+
+    /**
+     * Looks up a result.
+     *
+     * @param dir cache directory
+     * @param key key from {@link #keyFor}
+     * @return the cached result, or null on a miss
+     */
+    public static OCRHelper.OcrResultWords get(File dir, String key) {
+        if (dir == null || key == null) return null;
+        File f = new File(dir, key + EXT);
+        if (!f.isFile()) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+            OCRHelper.OcrResultWords res = read(in);
+            //noinspection ResultOfMethodCallIgnored
+            f.setLastModified(System.currentTimeMillis());
+            Log.d(TAG, "Hit " + key.substring(0, 12) + " (" + res.words.size() + " words)");
+            return res;
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Dropping unreadable entry " + f.getName() + ": " + e.getMessage());
+            //noinspection ResultOfMethodCallIgnored
+            f.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Stores a result. Best-effort: failures are logged and otherwise ignored.
+     *
+     * @param dir        cache directory
+     * @param key        key from {@link #keyFor}
+     * @param result     the result to store
+     * @param maxEntries entries kept in {@code dir}; older ones are evicted
+     */
+    public static void put(File dir, String key, OCRHelper.OcrResultWords result, int maxEntries) {
+        if (dir == null || key == null || result == null) return;
+        if (!dir.isDirectory() && !dir.mkdirs()) return;
+        File f = new File(dir, key + EXT);
+        File tmp = new File(dir, key + EXT + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            write(out, result);
+        } catch (IOException e) {
+            Log.w(TAG, "Writing entry failed: " + e.getMessage());
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(f)) {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            return;
+        }
+        trim(dir, maxEntries);
+    }
+
+    /**
+     * Bounds the shared cache; called by {@link de.schliweb.makeacopy.services.CacheCleanupService}.
+     *
+     * @param context any context
+     * @return the number of deleted entries
+     */
+    public static int trim(Context context) {
+        if (context == null) return 0;
+        return trim(sharedCacheDir(context), MAX_SHARED_ENTRIES);
+    }
+
+    private static int trim(File dir, int maxEntries) {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(EXT));
+        if (files == null || files.length <= maxEntries) return 0;
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        int deleted = 0;
+        for (int i = 0; i < files.length - maxEntries; i++) {
+            if (files[i].delete()) deleted++;
+        }
+        return deleted;
+    }
+
+    /**
+     * Binary layout (big-endian): magic, version, mean confidence ({@link #NO_CONFIDENCE} if unknown), text,
+     * then the words as a length-prefixed {@link WordsBinary} payload. Strings are length-prefixed UTF-8.
+     * Word confidences are therefore read back in [0,1], as from a persisted words.bin.
+     */
+    static void write(DataOutputStream out, OCRHelper.OcrResultWords r) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(r.meanConfidence != null ? r.meanConfidence : NO_CONFIDENCE);
+        writeString(out, r.text);
+        byte[] words = WordsBinary.encode(r.words);
+        out.writeInt(words.length);
+        out.write(words);
+    }
+
+    static OCRHelper.OcrResultWords read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) throw new IOException("bad magic");
+        if (in.readInt() != FORMAT_VERSION) throw new IOException("unsupported version");
+        int conf = in.readInt();
+        String text = readString(in);
+        int len = in.readInt();
+        if (len < 0 || len > (64 << 20)) throw new IOException("bad words length");
+        byte[] words = new byte[len];
+        in.readFully(words);
+        List<RecognizedWord> list = WordsBinary.wrap(ByteBuffer.wrap(words)).toList();
+        return new OCRHelper.OcrResultWords(text, conf == NO_CONFIDENCE ? null : conf, list);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] b = (s != null ? s : "").getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int len = in.readInt();
+        if (len < 0 || len > (64 << 20)) throw new IOException("bad string length");
+        byte[] b = new byte[len];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Tesseract version of the bundled engine; part of every key so that an engine upgrade invalidates results.
+     */
+    static String engineVersion() {
+        String v = engineVersion;
+        if (v != null) return v;
+        synchronized (OcrResultCache.class) {
+            if (engineVersion != null) return engineVersion;
+            TessBaseAPI api = null;
+            try {
+                api = new TessBaseAPI();
+                v = api.getVersion();
+            } catch (Throwable t) {
+                Log.w(TAG, "Could not read Tesseract version", t);
+            } finally {
+                if (api != null) {
+                    try {
+                        api.recycle();
+                    } catch (Throwable ignore) {
+                    }
+                }
+            }
+            engineVersion = (v != null && !v.isEmpty()) ? v : "unknown";
+            return engineVersion;
+        }
+    }
+
+    private static String hex(byte[] digest) {
+        StringBuilder sb = new StringBuilder(32);
+        for (int i = 0; i < 16; i++) sb.append(String.format(Locale.ROOT, "%02x", digest[i]));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,142 @@
+package de.schliweb.makeacopy.utils;
+
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Reusable, preallocated NCHW float input tensor for the document corner ONNX model.
+ * <p>
+ * The tensor is backed by a single direct, native-ordered {@link ByteBuffer}. Each of the
+ * three channel planes is additionally wrapped as a {@code CV_32FC1} {@link Mat} header on top
+ * of that buffer, so OpenCV writes the normalized pixels straight into the memory that ONNX
+ * Runtime reads from. Preparing the input creates no Java float arrays, Mats or tensors once
+ * the instance exists. Each inference run still allocates on the output side: ONNX Runtime
+ * returns a new result object whose output buffer is a copy.
+ * <p>
+ * Instances are not thread-safe; callers must serialize {@link #fill(Mat, int[])} and the
+ * subsequent inference run (see {@link OpenCVUtils}).
+ */
+final class OnnxInputTensor implements AutoCloseable {
+
+    /**
+     * Channel order for RGBA input (e.g. from {@code Utils.bitmapToMat}) producing B, G, R planes.
+     */
+    static final int[] FROM_RGBA_TO_BGR = {2, 1, 0};
+
+    /**
+     * Channel order for single-channel (grayscale) input replicated into B, G, R planes.
+     */
+    static final int[] FROM_GRAY_TO_BGR = {0, 0, 0};
+
+    private final int width;
+    private final int height;
+    private final Size size;
+    private final FloatBuffer floats;
+    private final Mat[] planes = new Mat[3];
+    private final Mat resized = new Mat();
+    private final Mat normalized = new Mat();
+    private final OnnxTensor tensor;
+    private final Map<String, OnnxTensor> inputs;
+    private float[] output;
+
+    /**
+     * Creates a tensor of shape {@code [1, 3, height, width]} bound to the given input name.
+     *
+     * @param env       the ONNX Runtime environment
+     * @param inputName the model input this tensor is fed to
+     * @param width     tensor width in pixels
+     * @param height    tensor height in pixels
+     * @throws OrtException if ONNX Runtime cannot wrap the direct buffer
+     */
+    OnnxInputTensor(OrtEnvironment env, String inputName, int width, int height) throws OrtException {
+        this.width = width;
+        this.height = height;
+        this.size = new Size(width, height);
+
+        int planeBytes = width * height * Float.BYTES;
+        ByteBuffer bytes = ByteBuffer.allocateDirect(3 * planeBytes).order(ByteOrder.nativeOrder());
+        this.floats = bytes.asFloatBuffer();
+        for (int c = 0; c < 3; c++) {
+            ByteBuffer slice = bytes.duplicate();
+            slice.position(c * planeBytes);
+            slice.limit((c + 1) * planeBytes);
+            planes[c] = new Mat(height, width, CvType.CV_32FC1, slice.slice().order(ByteOrder.nativeOrder()));
+        }
+        this.tensor = OnnxTensor.createTensor(env, floats, new long[]{1, 3, height, width});
+        this.inputs = Collections.singletonMap(inputName, tensor);
+    }
+
+    /**
+     * Resizes {@code src} to the tensor size, scales it to [0,1] and writes the selected
+     * channels into the B, G and R planes of the tensor.
+     *
+     * @param src          input image (8-bit, 1 to 4 channels); must not be empty
+     * @param channelOrder source channel index for each of the B, G, R planes
+     * @throws IllegalArgumentException if {@code src} is empty
+     */
+    void fill(Mat src, int[] channelOrder) {
+        if (src == null || src.empty()) throw new IllegalArgumentException("input Mat is empty");
+        Imgproc.resize(src, resized, size);
+        resized.convertTo(normalized, CvType.CV_32F, 1.0 / 255.0);
+        for (int c = 0; c < 3; c++) {
+            if (normalized.channels() == 1) {
+                normalized.copyTo(planes[c]);
+            } else {
+                Core.extractChannel(normalized, planes[c], channelOrder[c]);
+            }
+        }
+    }
+
+    /**
+     * @return the input map to pass to {@code OrtSession.run}; the same instance on every call
+     */
+    Map<String, OnnxTensor> inputs() {
+        return inputs;
+    }
+
+    /**
+     * Copies the remaining contents of {@code src} into a reusable output array, which is only
+     * (re)allocated when the model output size changes.
+     *
+     * @param src the output buffer of an inference result
+     * @return the reusable array holding the copied values
+     */
+    float[] copyOutput(FloatBuffer src) {
+        int n = src.remaining();
+        if (output == null || output.length != n) {
+            output = new float[n];
+        }
+        src.get(output);
+        return output;
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getHeight() {
+        return height;
+    }
+
+    @Override
+    public void close() {
+        tensor.close();
+        for (Mat m : planes) {
+            if (m != null) m.release();
+        }
+        resized.release();
+        normalized.release();
+    }
+}
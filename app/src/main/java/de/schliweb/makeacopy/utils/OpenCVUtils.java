@@ -18,8 +18,9 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.FloatBuffer;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Utility class for performing various operations with OpenCV and ONNX runtime.
@@ -43,6 +44,26 @@ public class OpenCVUtils {
     private static volatile OrtEnvironment ortEnv;
     private static volatile OrtSession ortSession;
 
+    // Pooled ONNX input pipeline (guarded by ONNX_LOCK)
+    private static final Object ONNX_LOCK = new Object();
+    private static final boolean LOG_INFERENCE_DETAILS = false;
+    private static OnnxInputTensor onnxInput;
+    private static Mat onnxRgba;
+
+    // Parallel ONNX + contour detection
+    private static final long DETECTION_DEADLINE_MS = 2000;
+    private static final float ONNX_EARLY_EXIT_PEAK = 0.35f;
+    private static volatile boolean USE_PARALLEL_DETECTION = true;
+    private static volatile boolean USE_ONNX_EARLY_EXIT = true;
+    private static final ExecutorService DETECTION_EXECUTOR = new ThreadPoolExecutor(
+            1, 2, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(4),
+            r -> {
+                Thread t = new Thread(r, "corner-detect");
+                t.setDaemon(true);
+                return t;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+
     private OpenCVUtils() {
         // Utility class, no instances allowed
     }
@@ -51,6 +72,28 @@ public class OpenCVUtils {
         return USE_SAFE_MODE;
     }
 
+    /**
+     * Enables or disables running the ONNX and contour detectors concurrently in
+     * {@link #detectDocumentCorners(Context, Bitmap)}. When disabled, both run sequentially
+     * on the calling thread.
+     *
+     * @param enable true to run both detectors concurrently
+     */
+    public static void setParallelDetection(boolean enable) {
+        USE_PARALLEL_DETECTION = enable;
+    }
+
+    /**
+     * Enables or disables the early exit in {@link #detectDocumentCorners(Context, Bitmap)}:
+     * when the ONNX corners are valid and every heatmap peak is confident, the contour
+     * detection is cancelled (or skipped) and the ONNX corners are returned directly.
+     *
+     * @param enable true to allow skipping the contour path on confident ONNX results
+     */
+    public static void setOnnxEarlyExit(boolean enable) {
+        USE_ONNX_EARLY_EXIT = enable;
+    }
+
     /**
      * Initializes OpenCV by loading the native library.
      * This method should be called before using any OpenCV functionality.
@@ -317,69 +360,6 @@ public class OpenCVUtils {
         return output;
     }
 
-    /**
-     * Converts a Bitmap image in RGBA format to a normalized float array in BGR format.
-     *
-     * @param bitmap the input Bitmap image to be converted; must not be null.
-     * @return a float array representation of the input image in BGR format, normalized
-     * and resized to 256x256 dimensions in NCHW format.
-     * @throws IllegalArgumentException if the input bitmap is null.
-     */
-    public static float[] fromBitmapBGR(Bitmap bitmap) {
-        if (bitmap == null) throw new IllegalArgumentException("bitmap is null");
-        Mat mat = new Mat();
-        try {
-            Utils.bitmapToMat(bitmap, mat);                // RGBA
-            Imgproc.cvtColor(mat, mat, Imgproc.COLOR_RGBA2BGR);
-            return toNCHW01_BGR(mat, 256, 256);
-        } finally {
-            release(mat);
-        }
-    }
-
-    /**
-     * Converts an OpenCV Mat object in BGR format to a NCHW (batch, channels, height, width)
-     * float array scaled to the range [0,1].
-     * <p>
-     * This method performs resizing of the input Mat to the target width and height, scales the
-     * pixel values to the range [0,1], and reorders the data into NCHW format. The resulting array
-     * has dimensions [1, channels, targetH, targetW].
-     *
-     * @param bgr     The input OpenCV Mat object in BGR format. It must not be empty.
-     * @param targetW The target width for resizing the input Mat.
-     * @param targetH The target height for resizing the input Mat.
-     * @return A float array in NCHW format (batch=1, channels=3 (BGR), height=targetH, width=targetW),
-     * with values scaled to the range [0,1].
-     * @throws IllegalArgumentException If the input Mat is empty.
-     */
-    private static float[] toNCHW01_BGR(Mat bgr, int targetW, int targetH) {
-        if (bgr.empty()) throw new IllegalArgumentException("input Mat is empty");
-
-        Mat resized = new Mat();
-        Mat floatImage = new Mat();
-        List<Mat> channels = new ArrayList<>(3);
-        try {
-            Imgproc.resize(bgr, resized, new Size(targetW, targetH));
-            resized.convertTo(floatImage, CvType.CV_32FC3, 1.0 / 255.0);
-
-            Core.split(floatImage, channels); // B, G, R als CV_32F
-
-            int H = targetH, W = targetW, C = 3;
-            int HW = H * W;
-            float[] nchw = new float[C * H * W];
-
-            for (int c = 0; c < C; c++) {
-                float[] buf = new float[HW];
-                channels.get(c).get(0, 0, buf);
-                System.arraycopy(buf, 0, nchw, c * HW, HW);
-            }
-            return nchw;
-        } finally {
-            release(resized, floatImage);
-            releaseAll(channels);
-        }
-    }
-
     /**
      * Converts a given color {@link Bitmap} image to a grayscale {@link Bitmap}.
      *
@@ -432,53 +412,52 @@ public class OpenCVUtils {
     }
 
     /**
-     * Executes inference on the provided input tensor using the ONNX runtime.
-     * The input tensor is expected to be in BGR format and NCHW order.
+     * Returns the pooled ONNX input tensor, creating it on first use.
+     * Must be called while holding {@code ONNX_LOCK}.
      *
-     * @param inputTensor A float array representing the input tensor with a shape of [1, 3, 256, 256].
-     *                    The tensor must be in BGR format and NCHW layout.
-     * @return A float array containing the inference output.
-     * The shape and interpretation of the output depend on the specific ONNX model.
-     * @throws OrtException          If an error occurs during the inference process with the ONNX runtime.
+     * @return the reusable input tensor bound to the current session
+     * @throws OrtException          If ONNX Runtime cannot create the tensor.
      * @throws IllegalStateException If the ONNX runtime is not initialized before calling this method.
      */
-    private static float[] runInferenceBgrNchw(float[] inputTensor) throws OrtException {
+    private static OnnxInputTensor obtainOnnxInput() throws OrtException {
         if (ortEnv == null || ortSession == null) {
             Log.e(TAG, "ONNX Runtime not initialized. Call initOnnxRuntime(context) first.");
             throw new IllegalStateException("ONNX Runtime not initialized. Call initOnnxRuntime(context) first.");
         }
-
         if (onnxInputName == null) {
-            synchronized (OpenCVUtils.class) {
-                if (onnxInputName == null) {
-                    onnxInputName = ortSession.getInputNames().iterator().next();
-                }
-            }
+            onnxInputName = ortSession.getInputNames().iterator().next();
         }
-        String inputName = onnxInputName;
-        long[] shape = new long[]{1, 3, 256, 256};
+        if (onnxInput == null) {
+            onnxInput = new OnnxInputTensor(ortEnv, onnxInputName, 256, 256);
+            onnxRgba = new Mat();
+        }
+        return onnxInput;
+    }
 
+    /**
+     * Executes inference on the pooled input tensor using the ONNX runtime.
+     * The tensor must already hold the image in BGR format and NCHW order.
+     * Must be called while holding {@code ONNX_LOCK}.
+     *
+     * @param input The filled input tensor with a shape of [1, 3, 256, 256].
+     * @return A reusable float array containing the inference output. It is only valid until the
+     * next inference and must not be retained by the caller.
+     * The shape and interpretation of the output depend on the specific ONNX model.
+     * @throws OrtException If an error occurs during the inference process with the ONNX runtime.
+     */
+    private static float[] runInference(OnnxInputTensor input) throws OrtException {
         long start = System.nanoTime();
-        try (OnnxTensor input = OnnxTensor.createTensor(ortEnv, FloatBuffer.wrap(inputTensor), shape);
-             OrtSession.Result result = ortSession.run(Collections.singletonMap(inputName, input))) {
-
-            long elapsedNs = System.nanoTime() - start;
-            double elapsedMs = elapsedNs / 1_000_000.0;
-            Log.i(TAG, String.format("Elapsed: %.3f ms", elapsedMs));
-
+        try (OrtSession.Result result = ortSession.run(input.inputs())) {
             OnnxValue out0 = result.get(0);
             if (!(out0 instanceof OnnxTensor ot)) {
                 throw new RuntimeException("Unexpected output type: " + out0.getClass());
             }
-            long[] outShape = ot.getInfo().getShape();
-            Log.i(TAG, "ONNX output shape=" + Arrays.toString(outShape));
-
-            FloatBuffer fb = ot.getFloatBuffer();
-            float[] pred = new float[fb.remaining()];
-            fb.get(pred);
+            float[] pred = input.copyOutput(ot.getFloatBuffer());
 
-            // Debug: show a few values
-            if (pred.length > 0) {
+            if (LOG_INFERENCE_DETAILS) {
+                double elapsedMs = (System.nanoTime() - start) / 1_000_000.0;
+                Log.i(TAG, String.format("Elapsed: %.3f ms", elapsedMs));
+                Log.i(TAG, "ONNX output shape=" + Arrays.toString(ot.getInfo().getShape()));
                 StringBuilder sb = new StringBuilder();
                 for (int i = 0; i < Math.min(8, pred.length); i++) {
                     if (i > 0) sb.append(", ");
@@ -492,14 +471,34 @@ public class OpenCVUtils {
 
     /**
      * Detects and processes a model inference based on the input bitmap image.
+     * The bitmap is converted into a reused RGBA Mat and packed directly into the pooled
+     * direct-buffer tensor, so preparing the input allocates no Java float arrays.
+     * Must be called while holding {@code ONNX_LOCK}.
      *
      * @param bitmap the input image in the form of a Bitmap, to be processed for model inference
-     * @return a float array representing the results of the model inference
+     * @return a reusable float array representing the results of the model inference
      * @throws OrtException if an error occurs during the inference process
      */
     private static float[] detectModel(Bitmap bitmap) throws OrtException {
-        float[] inputTensor = fromBitmapBGR(bitmap);
-        return runInferenceBgrNchw(inputTensor);
+        OnnxInputTensor input = obtainOnnxInput();
+        Utils.bitmapToMat(bitmap, onnxRgba);           // RGBA, reuses native memory when size matches
+        input.fill(onnxRgba, OnnxInputTensor.FROM_RGBA_TO_BGR);
+        return runInference(input);
+    }
+
+    /**
+     * Runs model inference on a Mat that is already in memory (e.g. shared with the
+     * contour path or a camera plane view). Must be called while holding {@code ONNX_LOCK}.
+     *
+     * @param src          the input image; it is only read
+     * @param channelOrder source channel index for each of the B, G, R tensor planes
+     * @return a reusable float array representing the results of the model inference
+     * @throws OrtException if an error occurs during the inference process
+     */
+    private static float[] detectModel(Mat src, int[] channelOrder) throws OrtException {
+        OnnxInputTensor input = obtainOnnxInput();
+        input.fill(src, channelOrder);
+        return runInference(input);
     }
 
     /**
@@ -513,13 +512,43 @@ public class OpenCVUtils {
     private static Point[] detectDocumentCornersWithOnnx(Bitmap bitmap) {
         Log.i(TAG, "Starting detectDocumentCornersWithOnnx()");
         try {
-            float[] pred = detectModel(bitmap);
-            Point[] pts = predictionToPoints(pred, bitmap.getWidth(), bitmap.getHeight());
-            if (pts != null) {
-                Log.i(TAG, "ONNX corners OK: area=" + quadArea(pts) + ", corners=" + Arrays.toString(pts));
-            } else {
-                Log.w(TAG, "ONNX corners invalid → null");
+            Point[] pts;
+            synchronized (ONNX_LOCK) {
+                float[] pred = detectModel(bitmap);
+                pts = predictionToPoints(pred, bitmap.getWidth(), bitmap.getHeight());
+            }
+            logOnnxResult(pts);
+            return pts;
+        } catch (Exception e) {
+            Log.e(TAG, "ONNX inference failed", e);
+            return null;
+        }
+    }
+
+    /**
+     * Detects the corners of a document in a Mat using an ONNX model and reports the
+     * weakest of the four heatmap peaks as a confidence value.
+     *
+     * @param src          The input image; it is only read.
+     * @param channelOrder Source channel index for each of the B, G, R tensor planes.
+     * @param confidence An optional array of length >= 1 that receives the minimum corner
+     *                   heatmap peak, or 0 if no corners were found.
+     * @return An array of {@code Point} representing the detected corners of the document,
+     * or {@code null} if the corners could not be detected or if an error occurs.
+     */
+    private static Point[] detectDocumentCornersWithOnnx(Mat src, int[] channelOrder, float[] confidence) {
+        Log.i(TAG, "Starting detectDocumentCornersWithOnnx()");
+        if (confidence != null && confidence.length > 0) confidence[0] = 0f;
+        try {
+            Point[] pts;
+            synchronized (ONNX_LOCK) {
+                float[] pred = detectModel(src, channelOrder);
+                pts = predictionToPoints(pred, src.cols(), src.rows());
+                if (pts != null && confidence != null && confidence.length > 0) {
+                    confidence[0] = minHeatmapPeak(pred);
+                }
             }
+            logOnnxResult(pts);
             return pts;
         } catch (Exception e) {
             Log.e(TAG, "ONNX inference failed", e);
@@ -527,6 +556,35 @@ public class OpenCVUtils {
         }
     }
 
+    private static void logOnnxResult(Point[] pts) {
+        if (pts != null) {
+            Log.i(TAG, "ONNX corners OK: area=" + quadArea(pts) + ", corners=" + Arrays.toString(pts));
+        } else {
+            Log.w(TAG, "ONNX corners invalid → null");
+        }
+    }
+
+    /**
+     * Returns the smallest of the four per-corner heatmap maxima of a 1x4x128x128 prediction.
+     *
+     * @param pred the raw model output
+     * @return the weakest corner peak, or 0 if the prediction has an unexpected size
+     */
+    private static float minHeatmapPeak(float[] pred) {
+        final int HW = 128 * 128;
+        if (pred == null || pred.length != 4 * HW) return 0f;
+        float minPeak = Float.MAX_VALUE;
+        for (int c = 0; c < 4; c++) {
+            float maxVal = -Float.MAX_VALUE;
+            int base = c * HW;
+            for (int i = 0; i < HW; i++) {
+                if (pred[base + i] > maxVal) maxVal = pred[base + i];
+            }
+            minPeak = Math.min(minPeak, maxVal);
+        }
+        return minPeak;
+    }
+
     /**
      * Determines if the provided points form a fallback condition based on specific coordinates.
      *
@@ -720,10 +778,32 @@ public class OpenCVUtils {
      * of the document in clockwise order, or a fallback rectangle if no suitable contour is found.
      */
     private static Point[] detectDocumentCornersWithOpenCV(Context context, Bitmap bitmap) {
-        Log.i(TAG, "Starting detectDocumentCornersWithOpenCV()");
-
         Mat rgba = new Mat();
         Mat gray = new Mat();
+        try {
+            Utils.bitmapToMat(bitmap, rgba);
+            Imgproc.cvtColor(rgba, gray, Imgproc.COLOR_RGBA2GRAY);
+        } catch (Throwable t) {
+            release(rgba, gray);
+            throw t;
+        }
+        release(rgba);
+        return detectDocumentCornersWithOpenCV(context, gray);
+    }
+
+    /**
+     * Contour-based corner detection on a grayscale image. The method takes ownership of
+     * {@code gray}, modifies it in place and releases it before returning. If the calling thread
+     * is interrupted between processing stages, detection is abandoned and {@code null} is returned.
+     *
+     * @param context the context used for saving debug images during the corner detection process.
+     * @param gray    the grayscale input image (CV_8UC1); released by this method.
+     * @return an array of four {@link Point} objects in clockwise order, a fallback rectangle if
+     * no suitable contour is found, or {@code null} if detection was cancelled.
+     */
+    private static Point[] detectDocumentCornersWithOpenCV(Context context, Mat gray) {
+        Log.i(TAG, "Starting detectDocumentCornersWithOpenCV()");
+
         Mat threshold = new Mat();
         Mat morph = new Mat();
         Mat kernel = new Mat();
@@ -734,12 +814,11 @@ public class OpenCVUtils {
         List<MatOfPoint> contours = new ArrayList<>();
 
         try {
-            Utils.bitmapToMat(bitmap, rgba);
-            Imgproc.cvtColor(rgba, gray, Imgproc.COLOR_RGBA2GRAY);
             Imgproc.GaussianBlur(gray, gray, new Size(5, 5), 0);
 
             Imgproc.threshold(gray, threshold, 0, 255, Imgproc.THRESH_BINARY + Imgproc.THRESH_OTSU);
             saveDebugImage(context, threshold, "debug_threshold.png");
+            if (Thread.currentThread().isInterrupted()) return null;
 
             kernel = Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(15, 15));
             Imgproc.morphologyEx(threshold, morph, Imgproc.MORPH_CLOSE, kernel);
@@ -747,6 +826,7 @@ public class OpenCVUtils {
 
             Imgproc.Canny(morph, edges, 50, 150);
             saveDebugImage(context, edges, "debug_edges.png");
+            if (Thread.currentThread().isInterrupted()) return null;
 
             edgesCopy = edges.clone();
             Imgproc.findContours(edgesCopy, contours, hierarchy, Imgproc.RETR_EXTERNAL, Imgproc.CHAIN_APPROX_SIMPLE);
@@ -774,7 +854,7 @@ public class OpenCVUtils {
                 saveDebugImage(context, debug, "debug_contours.png");
             }
 
-            double imgArea = rgba.width() * rgba.height();
+            double imgArea = gray.width() * gray.height();
             double maxArea = 0;
             Point[] bestQuad = null;
 
@@ -822,15 +902,17 @@ public class OpenCVUtils {
             }
 
             Log.w(TAG, "No suitable document contour found, returning fallback rectangle");
-            return getFallbackRectangle(bitmap.getWidth(), bitmap.getHeight());
+            return getFallbackRectangle(gray.width(), gray.height());
         } finally {
-            release(rgba, gray, threshold, morph, kernel, edges, edgesCopy, hierarchy, debug);
+            release(gray, threshold, morph, kernel, edges, edgesCopy, hierarchy, debug);
         }
     }
 
     /**
      * Detects the corners of a document in the given bitmap.
-     * This method processes the image to find contours and returns the best matching quadrilateral.
+     * The ONNX model and the contour-based detector run concurrently (unless parallel detection
+     * is disabled) and are joined with a deadline before the better result is chosen. If the ONNX
+     * corners are valid and confident, the contour path is cancelled and the ONNX result is returned.
      *
      * @param context The application context for saving debug images.
      * @param bitmap  The input bitmap image.
@@ -838,9 +920,112 @@ public class OpenCVUtils {
      */
     public static Point[] detectDocumentCorners(Context context, Bitmap bitmap) {
         Log.i(TAG, "Starting detectDocumentCorners()");
-        Point[] onnx = detectDocumentCornersWithOnnx(bitmap);
-        Point[] cv = detectDocumentCornersWithOpenCV(context, bitmap);
-        return getBestCorners(onnx, cv, bitmap.getWidth(), bitmap.getHeight());
+        if (!USE_PARALLEL_DETECTION) {
+            Point[] onnx = detectDocumentCornersWithOnnx(bitmap);
+            Point[] cv = detectDocumentCornersWithOpenCV(context, bitmap);
+            return getBestCorners(onnx, cv, bitmap.getWidth(), bitmap.getHeight());
+        }
+
+        Mat rgba = new Mat();
+        Mat gray = new Mat();
+        try {
+            // Convert once on the calling thread; the contour task owns 'gray' and never touches the bitmap,
+            // so callers may recycle the bitmap as soon as this method returns, even after a timeout.
+            Utils.bitmapToMat(bitmap, rgba);
+            Imgproc.cvtColor(rgba, gray, Imgproc.COLOR_RGBA2GRAY);
+            Mat cvInput = gray;
+            gray = null;
+            return detectDocumentCornersParallel(context, rgba, OnnxInputTensor.FROM_RGBA_TO_BGR, cvInput);
+        } finally {
+            release(rgba, gray);
+        }
+    }
+
+    /**
+     * Detects the corners of a document in a single-channel (grayscale) image, such as a
+     * camera Y plane or a view into it. The input is only read and is not retained after this
+     * method returns; the ONNX model reads it directly, the contour detector works on a copy.
+     *
+     * @param context The application context for saving debug images.
+     * @param gray    The input image as a CV_8UC1 Mat; may be a submat view.
+     * @return An array of Points in the coordinate system of {@code gray} representing the
+     * corners of the detected document, or a fallback rectangle if no suitable contour is found.
+     */
+    public static Point[] detectDocumentCorners(Context context, Mat gray) {
+        Log.i(TAG, "Starting detectDocumentCorners(gray)");
+        if (gray == null || gray.empty()) return null;
+        Mat cvInput = gray.clone();
+        if (!USE_PARALLEL_DETECTION) {
+            Point[] onnx = detectDocumentCornersWithOnnx(gray, OnnxInputTensor.FROM_GRAY_TO_BGR, null);
+            Point[] cv = detectDocumentCornersWithOpenCV(context, cvInput);
+            return getBestCorners(onnx, cv, gray.cols(), gray.rows());
+        }
+        return detectDocumentCornersParallel(context, gray, OnnxInputTensor.FROM_GRAY_TO_BGR, cvInput);
+    }
+
+    /**
+     * Runs the contour detector on {@code cvInput} on the detection executor while the ONNX model
+     * runs on the calling thread, then joins both with a deadline.
+     *
+     * @param context      The application context for saving debug images.
+     * @param onnxInput    The image fed to the ONNX model; only read on the calling thread.
+     * @param channelOrder Source channel index for each of the B, G, R tensor planes.
+     * @param cvInput      The grayscale image for the contour detector; ownership passes to the task, or back
+     *                     to this method if the task is cancelled before it starts.
+     * @return the chosen corners, or a fallback rectangle if neither detector produced a result
+     */
+    private static Point[] detectDocumentCornersParallel(Context context, Mat onnxInput, int[] channelOrder, Mat cvInput) {
+        final int w = onnxInput.cols();
+        final int h = onnxInput.rows();
+        // Whoever claims cvInput first releases it: the task when it starts, or cancelContourTask
+        final AtomicBoolean cvInputClaimed = new AtomicBoolean(false);
+        Future<Point[]> cvFuture = null;
+        try {
+            try {
+                cvFuture = DETECTION_EXECUTOR.submit(() -> {
+                    if (!cvInputClaimed.compareAndSet(false, true)) return null;
+                    return detectDocumentCornersWithOpenCV(context, cvInput);
+                });
+            } catch (RejectedExecutionException e) {
+                cvInput.release();
+                throw e;
+            }
+
+            float[] confidence = new float[1];
+            Point[] onnx = detectDocumentCornersWithOnnx(onnxInput, channelOrder, confidence);
+
+            Point[] onnxValid = validateAndSort(onnx, w, h);
+            if (USE_ONNX_EARLY_EXIT && onnxValid != null && confidence[0] >= ONNX_EARLY_EXIT_PEAK) {
+                Log.i(TAG, "ONNX confident (peak=" + confidence[0] + ") → skipping contour detection");
+                cancelContourTask(cvFuture, cvInputClaimed, cvInput);
+                return onnxValid;
+            }
+
+            Point[] cv = null;
+            try {
+                cv = cvFuture.get(DETECTION_DEADLINE_MS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                Log.w(TAG, "Contour detection exceeded " + DETECTION_DEADLINE_MS + " ms → cancelling");
+                cancelContourTask(cvFuture, cvInputClaimed, cvInput);
+            } catch (ExecutionException e) {
+                Log.e(TAG, "Contour detection failed", e.getCause());
+            }
+            if (onnx == null && cv == null) return getFallbackRectangle(w, h);
+            return getBestCorners(onnx, cv, w, h);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (cvFuture != null) cancelContourTask(cvFuture, cvInputClaimed, cvInput);
+            return getFallbackRectangle(w, h);
+        }
+    }
+
+    /**
+     * Cancels the contour task and releases its input if the task had not started yet; a task that is
+     * already running releases the input itself.
+     */
+    private static void cancelContourTask(Future<Point[]> cvFuture, AtomicBoolean cvInputClaimed, Mat cvInput) {
+        cvFuture.cancel(true);
+        if (cvInputClaimed.compareAndSet(false, true)) cvInput.release();
     }
 
     /**
@@ -951,26 +1136,6 @@ public class OpenCVUtils {
         }
     }
 
-    /**
-     * Releases all OpenCV Mat objects in the provided list to free up memory.
-     * This method safely handles null elements within the list as well as null inputs.
-     * Any exceptions during the release process are caught and ignored.
-     *
-     * @param mats A list of Mat objects to be released. If the list is null or empty, the method does nothing.
-     */
-    private static void releaseAll(List<Mat> mats) {
-        if (mats == null) return;
-        for (Mat m : mats) {
-            if (m != null) {
-                try {
-                    m.release();
-                } catch (Throwable ignore) {
-                }
-            }
-        }
-        mats.clear();
-    }
-
     /**
      * Computes a tight target size (width/height) for the warp based on the lengths of the
      * selected quadrilateral edges. This preserves the aspect ratio of the selected area
@@ -5,11 +5,16 @@ import android.graphics.Bitmap;
 import android.graphics.RectF;
 import android.net.Uri;
 import android.util.Log;
+import androidx.annotation.Nullable;
 import com.tom_roush.pdfbox.android.PDFBoxResourceLoader;
+import com.tom_roush.pdfbox.cos.COSName;
+import com.tom_roush.pdfbox.io.MemoryUsageSetting;
 import com.tom_roush.pdfbox.pdmodel.PDDocument;
 import com.tom_roush.pdfbox.pdmodel.PDPage;
 import com.tom_roush.pdfbox.pdmodel.PDPageContentStream;
 import com.tom_roush.pdfbox.pdmodel.common.PDRectangle;
+import com.tom_roush.pdfbox.pdmodel.graphics.color.PDDeviceGray;
+import com.tom_roush.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
 import com.tom_roush.pdfbox.pdmodel.font.PDFont;
 import com.tom_roush.pdfbox.pdmodel.font.PDType0Font;
 import com.tom_roush.pdfbox.pdmodel.font.PDType1Font;
@@ -19,8 +24,11 @@ import com.tom_roush.pdfbox.pdmodel.graphics.image.PDImageXObject;
 import com.tom_roush.pdfbox.pdmodel.graphics.state.RenderingMode;
 import com.tom_roush.pdfbox.util.Matrix;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.text.Normalizer;
@@ -28,6 +36,11 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Generates a searchable PDF (image + invisible OCR text layer).
@@ -38,6 +51,10 @@ public class PdfCreator {
     // Text sizing (relative to OCR box height in image space)
     private static final float TEXT_SIZE_RATIO = 0.70f;
     private static final float MIN_FONT_PT = 2f; // lower bound for tiny boxes
+    // Multi-page pipeline: upper bound for page preparation workers (each holds one full-size bitmap)
+    private static final int MAX_PAGE_WORKERS = 4;
+    // Heap budget for document streams before PDFBox spills to its scratch file
+    private static final long SCRATCH_MAIN_MEMORY_BYTES = 8L * 1024 * 1024;
 
     /**
      * Creates a searchable PDF from bitmap + OCR words.
@@ -259,7 +276,7 @@ public class PdfCreator {
     private static void showTextWithFallbacks(PDPageContentStream cs,
                                               String token,
                                               float fontSize,
-                                              List<PDFont> fonts) throws Exception {
+                                              List<PDFont> fonts) throws IOException {
         Exception last = null;
         for (PDFont f : fonts) {
             try {
@@ -284,8 +301,15 @@ public class PdfCreator {
                                                int imageWidth,
                                                int imageHeight) throws Exception {
         if (words == null || words.isEmpty()) return;
+        TextLayerWriter writer = new TextLayerWriter(cs, null, fonts, imageWidth, imageHeight);
+        for (RecognizedWord w : sortForTextLayer(words)) writer.accept(w);
+        writer.finish();
+    }
 
-        // Sort top->bottom, then left->right
+    /**
+     * Sorts words top->bottom, then left->right (in place) so that consecutive words form lines.
+     */
+    private static List<RecognizedWord> sortForTextLayer(List<RecognizedWord> words) {
         words.sort((a, b) -> {
             float ya = (a.getBoundingBox().top + a.getBoundingBox().bottom) * 0.5f;
             float yb = (b.getBoundingBox().top + b.getBoundingBox().bottom) * 0.5f;
@@ -294,30 +318,70 @@ public class PdfCreator {
             }
             return Float.compare(ya, yb);
         });
+        return words;
+    }
 
-        // Cluster to lines
-        List<List<RecognizedWord>> lines = new ArrayList<>();
-        for (RecognizedWord w : words) {
-            if (lines.isEmpty()) {
-                List<RecognizedWord> l = new ArrayList<>();
-                l.add(w);
-                lines.add(l);
-            } else {
-                List<RecognizedWord> last = lines.get(lines.size() - 1);
-                float refY = (last.get(0).getBoundingBox().top + last.get(0).getBoundingBox().bottom) * 0.5f;
-                float curY = (w.getBoundingBox().top + w.getBoundingBox().bottom) * 0.5f;
-                if (Math.abs(curY - refY) < 6f) last.add(w);
-                else {
-                    List<RecognizedWord> l = new ArrayList<>();
-                    l.add(w);
-                    lines.add(l);
+    /**
+     * Writes the invisible OCR text layer from a stream of words in image space. Consecutive words whose
+     * vertical centers are close are clustered into a line; each line is rendered as soon as the next word
+     * starts a new one, so only the current line is buffered. Words are expected in reading order (as stored
+     * by OCR, or as produced by {@link #sortForTextLayer}).
+     */
+    private static final class TextLayerWriter implements WordSink {
+        private final PDPageContentStream cs;
+        @Nullable
+        private final Matrix ctm;
+        private final List<PDFont> fonts;
+        private final int imageWidth;
+        private final int imageHeight;
+        private final List<RecognizedWord> line = new ArrayList<>();
+        private float lineRefY;
+        private boolean started;
+        private int count;
+
+        /**
+         * @param ctm if non-null, the graphics state is saved and {@code ctm} applied before the first word,
+         *            and restored by {@link #finish()}; pages without words stay untouched
+         */
+        TextLayerWriter(PDPageContentStream cs, @Nullable Matrix ctm, List<PDFont> fonts, int imageWidth, int imageHeight) {
+            this.cs = cs;
+            this.ctm = ctm;
+            this.fonts = fonts;
+            this.imageWidth = imageWidth;
+            this.imageHeight = imageHeight;
+        }
+
+        @Override
+        public void accept(RecognizedWord w) throws IOException {
+            if (w == null) return;
+            if (!started) {
+                started = true;
+                if (ctm != null) {
+                    cs.saveGraphicsState();
+                    cs.transform(ctm);
                 }
             }
+            float curY = (w.getBoundingBox().top + w.getBoundingBox().bottom) * 0.5f;
+            if (!line.isEmpty() && Math.abs(curY - lineRefY) >= 6f) flushLine();
+            if (line.isEmpty()) lineRefY = curY;
+            line.add(w);
+            count++;
         }
 
-        // Render lines; absolute positioning per token (no TJ-kerning)
-        for (List<RecognizedWord> line : lines) {
-            if (line.isEmpty()) continue;
+        /**
+         * Renders the last line and restores the graphics state.
+         *
+         * @return the number of words received
+         */
+        int finish() throws IOException {
+            flushLine();
+            if (started && ctm != null) cs.restoreGraphicsState();
+            return count;
+        }
+
+        // Render line; absolute positioning per token (no TJ-kerning)
+        private void flushLine() throws IOException {
+            if (line.isEmpty()) return;
             line.sort(Comparator.comparingDouble(rw -> rw.getBoundingBox().left));
 
             float medianH = medianHeight(line);                       // px in image
@@ -347,6 +411,7 @@ public class PdfCreator {
                 showTextWithFallbacks(cs, token, fontSize, fonts);
                 cs.endText();
             }
+            line.clear();
         }
     }
 
@@ -519,7 +584,303 @@ public class PdfCreator {
             Log.e(TAG, "PDFBox init failed", t);
             return null;
         }
-        try (PDDocument document = new PDDocument()) {
+        return writePagesPipelined(context, bitmaps.size(),
+                index -> {
+                    Bitmap src = bitmaps.get(index);
+                    if (src == null) return null; // skip nulls defensively
+                    return preparePage(src, src.getWidth(), src.getHeight(), index, jpegQuality, convertToGrayscale, convertToBlackWhite, targetDpi);
+                },
+                (index, sink) -> {
+                    List<RecognizedWord> words = (perPageWords != null && index < perPageWords.size()) ? perPageWords.get(index) : null;
+                    if (words == null || words.isEmpty()) return;
+                    for (RecognizedWord w : sortForTextLayer(words)) sink.accept(w);
+                },
+                outputUri, listener);
+    }
+
+    /**
+     * Streaming variant of the multi-page export: pages are described by {@link PageSource}s and
+     * decoded only when their turn in the pipeline comes, so at most a small, fixed number of pages
+     * is held as bitmaps at any time. File-backed pages are decoded with subsampling down to what the
+     * target DPI needs, per-page OCR words are loaded lazily right before the page is written, and the
+     * document keeps already written image streams in a scratch file instead of on the heap.
+     * Peak memory therefore stays roughly constant regardless of the page count.
+     * <p>
+     * Unrotated file-backed JPEG pages whose size and colour mode already match the requested output
+     * are embedded byte-for-byte as DCTDecode images, without decoding or re-encoding. Other file-backed
+     * pages are looked up in (and afterwards stored to) the {@link DerivedPageCache}, so exporting the
+     * same pages again with the same settings skips image processing entirely.
+     *
+     * @param context             the context used for fonts, scratch files and the output stream
+     * @param pages               the pages in document order; null entries are skipped
+     * @param outputUri           destination of the PDF
+     * @param jpegQuality         JPEG quality (0..100); 100 embeds pages losslessly
+     * @param convertToGrayscale  convert pages to grayscale
+     * @param convertToBlackWhite convert pages to black and white (takes precedence over grayscale)
+     * @param targetDpi           target resolution for an A4 page
+     * @param listener            optional progress listener
+     * @return the output URI on success, or null on failure
+     */
+    public static Uri createSearchablePdfStreaming(Context context,
+                                                   List<PageSource> pages,
+                                                   Uri outputUri,
+                                                   int jpegQuality,
+                                                   boolean convertToGrayscale,
+                                                   boolean convertToBlackWhite,
+                                                   int targetDpi,
+                                                   ProgressListener listener) {
+        if (pages == null || pages.isEmpty() || outputUri == null) return null;
+        try {
+            PDFBoxResourceLoader.init(context);
+            try {
+                OpenCVUtils.init(context);
+            } catch (Throwable ignore) {
+            }
+        } catch (Throwable t) {
+            Log.e(TAG, "PDFBox init failed", t);
+            return null;
+        }
+        return writePagesPipelined(context, pages.size(),
+                index -> {
+                    PageSource ps = pages.get(index);
+                    if (ps == null) return null;
+                    PreparedPage passthrough = tryPassthrough(ps, jpegQuality, convertToGrayscale, convertToBlackWhite, targetDpi);
+                    if (passthrough != null) return passthrough;
+                    String variant = (ps.filePath != null && ps.bitmap == null && jpegQuality < 100)
+                            ? DerivedPageCache.pdfVariant(ps.rotationDeg, jpegQuality, convertToGrayscale, convertToBlackWhite, targetDpi)
+                            : null;
+                    if (variant != null) {
+                        PreparedPage cached = loadCachedPage(ps, variant);
+                        if (cached != null) return cached;
+                    }
+                    int[] logical = new int[2];
+                    Bitmap decoded = loadPageSource(ps, targetDpi, logical);
+                    if (decoded == null) {
+                        throw new IOException("Could not decode page " + (index + 1));
+                    }
+                    try {
+                        PreparedPage pp = preparePage(decoded, logical[0], logical[1], index, jpegQuality, convertToGrayscale, convertToBlackWhite, targetDpi);
+                        if (variant != null && pp.jpeg != null) {
+                            DerivedPageCache.put(new File(ps.filePath), variant, pp.jpeg);
+                        }
+                        return pp;
+                    } finally {
+                        if (decoded != ps.bitmap) {
+                            try {
+                                decoded.recycle();
+                            } catch (Throwable ignore) {
+                            }
+                        }
+                    }
+                },
+                (index, sink) -> {
+                    PageSource ps = pages.get(index);
+                    if (ps != null) ps.forEachWord(sink);
+                },
+                outputUri, listener);
+    }
+
+    /**
+     * Describes one page of a streaming export: either an image file or an in-memory bitmap, the
+     * clockwise rotation to apply, and the OCR words for the text layer (as a list or a words file,
+     * which is streamed into the text layer when the page is written).
+     * Word coordinates refer to the rotated, full-resolution page.
+     */
+    public static final class PageSource {
+        @Nullable
+        final String filePath;
+        @Nullable
+        final Bitmap bitmap;
+        final int rotationDeg;
+        @Nullable
+        final File wordsFile;
+        @Nullable
+        final List<RecognizedWord> words;
+
+        private PageSource(String filePath, Bitmap bitmap, int rotationDeg, File wordsFile, List<RecognizedWord> words) {
+            this.filePath = filePath;
+            this.bitmap = bitmap;
+            this.rotationDeg = ((rotationDeg % 360) + 360) % 360;
+            this.wordsFile = wordsFile;
+            this.words = words;
+        }
+
+        /**
+         * A page decoded from an image file. Words are taken from {@code words} if non-empty, otherwise
+         * streamed from {@code wordsFile} when the page is written.
+         */
+        public static PageSource ofFile(String filePath, int rotationDeg,
+                                        @Nullable File wordsFile,
+                                        @Nullable List<RecognizedWord> words) {
+            return new PageSource(filePath, null, rotationDeg, wordsFile, words);
+        }
+
+        /**
+         * A page backed by an in-memory bitmap owned by the caller (never recycled by the exporter).
+         */
+        public static PageSource ofBitmap(Bitmap bitmap, int rotationDeg,
+                                          @Nullable File wordsFile,
+                                          @Nullable List<RecognizedWord> words) {
+            return new PageSource(null, bitmap, rotationDeg, wordsFile, words);
+        }
+
+        /**
+         * Streams the page's words: an in-memory list sorted into reading order, otherwise the words file
+         * decoded one word at a time in stored (OCR reading) order. Unreadable files yield no words.
+         */
+        void forEachWord(WordSink sink) throws IOException {
+            if (words != null && !words.isEmpty()) {
+                for (RecognizedWord w : sortForTextLayer(words)) sink.accept(w);
+            } else if (wordsFile != null && wordsFile.isFile()) {
+                WordsBinary.forEach(wordsFile, sink);
+            }
+        }
+    }
+
+    /**
+     * Decodes and rotates a page source. File-backed pages are decoded with the largest power-of-two
+     * subsampling that still covers the A4 target size for {@code targetDpi}.
+     *
+     * @param logicalSize receives the width/height of the rotated page at full resolution, i.e. the
+     *                    coordinate space of its OCR words
+     * @return the decoded, rotated bitmap (the source bitmap itself if no rotation is needed), or null
+     */
+    private static Bitmap loadPageSource(PageSource ps, int targetDpi, int[] logicalSize) {
+        Bitmap base;
+        boolean owned;
+        boolean swap = ps.rotationDeg == 90 || ps.rotationDeg == 270;
+        if (ps.bitmap != null) {
+            if (ps.bitmap.isRecycled()) return null;
+            base = ps.bitmap;
+            owned = false;
+            logicalSize[0] = swap ? base.getHeight() : base.getWidth();
+            logicalSize[1] = swap ? base.getWidth() : base.getHeight();
+        } else {
+            if (ps.filePath == null) return null;
+            android.graphics.BitmapFactory.Options bounds = new android.graphics.BitmapFactory.Options();
+            bounds.inJustDecodeBounds = true;
+            android.graphics.BitmapFactory.decodeFile(ps.filePath, bounds);
+            if (bounds.outWidth <= 0 || bounds.outHeight <= 0) return null;
+            int lw = swap ? bounds.outHeight : bounds.outWidth;
+            int lh = swap ? bounds.outWidth : bounds.outHeight;
+            logicalSize[0] = lw;
+            logicalSize[1] = lh;
+
+            int[] a4px = a4PixelsForDpi(targetDpi <= 0 ? 300 : targetDpi);
+            float needed = Math.min(1f, Math.min((float) a4px[0] / lw, (float) a4px[1] / lh));
+            int sample = 1;
+            while (1f / (sample * 2) >= needed) sample *= 2;
+
+            android.graphics.BitmapFactory.Options opts = new android.graphics.BitmapFactory.Options();
+            opts.inSampleSize = sample;
+            opts.inPreferredConfig = Bitmap.Config.ARGB_8888;
+            base = android.graphics.BitmapFactory.decodeFile(ps.filePath, opts);
+            if (base == null) return null;
+            owned = true;
+        }
+        if (ps.rotationDeg == 0) return base;
+        try {
+            android.graphics.Matrix m = new android.graphics.Matrix();
+            m.postRotate(ps.rotationDeg);
+            Bitmap rotated = Bitmap.createBitmap(base, 0, 0, base.getWidth(), base.getHeight(), m, true);
+            if (rotated != base && owned) base.recycle();
+            return rotated;
+        } catch (Throwable t) {
+            Log.w(TAG, "Page rotation failed: " + t.getMessage());
+            return base;
+        }
+    }
+
+    /**
+     * Returns the stored JPEG of {@code ps} as a ready-to-write page if it can be embedded as-is:
+     * the page is an unrotated JPEG file that already fits the A4 target for {@code targetDpi}, no
+     * black-and-white conversion is requested, grayscale output is only requested for single-component
+     * JPEGs, and the requested quality is at least the quality the page was stored with (a lower request
+     * means a smaller file is wanted, so the page is re-encoded; 100 selects lossless output).
+     *
+     * @return the passthrough page, or null if the page has to go through decoding and re-encoding
+     */
+    private static PreparedPage tryPassthrough(PageSource ps, int jpegQuality, boolean toGray, boolean toBw, int targetDpi) {
+        if (ps.bitmap != null || ps.filePath == null || ps.rotationDeg != 0) return null;
+        if (toBw || jpegQuality >= 100 || jpegQuality < ScanPersister.PAGE_JPEG_QUALITY) return null;
+        File file = new File(ps.filePath);
+        JpegHeader header = JpegHeader.read(file);
+        if (header == null) return null;
+        if (header.components != 1 && header.components != 3) return null;
+        if (toGray && header.components != 1) return null;
+        int[] a4px = a4PixelsForDpi(targetDpi <= 0 ? 300 : targetDpi);
+        if (header.width > a4px[0] + 1 || header.height > a4px[1] + 1) return null;
+        try {
+            byte[] bytes = java.nio.file.Files.readAllBytes(file.toPath());
+            Log.d(TAG, "Embedding stored JPEG without re-encoding: " + file.getName() + " " + header.width + "x" + header.height);
+            return new PreparedPage(bytes, null, header.width, header.height, header.width, header.height, header.components);
+        } catch (IOException e) {
+            Log.w(TAG, "Passthrough read failed, re-encoding page: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Builds a ready-to-write page from a cached derived JPEG of {@code ps}, or returns null on a cache miss.
+     * Only JPEG headers are read; neither the source nor the cached image is decoded.
+     */
+    private static PreparedPage loadCachedPage(PageSource ps, String variant) {
+        File source = new File(ps.filePath);
+        byte[] bytes = DerivedPageCache.get(source, variant);
+        if (bytes == null) return null;
+        try {
+            JpegHeader cached = JpegHeader.read(new ByteArrayInputStream(bytes));
+            JpegHeader original = JpegHeader.read(source);
+            if (cached == null || original == null) return null;
+            boolean swap = ps.rotationDeg == 90 || ps.rotationDeg == 270;
+            int lw = swap ? original.height : original.width;
+            int lh = swap ? original.width : original.height;
+            return new PreparedPage(bytes, null, cached.width, cached.height, lw, lh, cached.components);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @FunctionalInterface
+    private interface PagePreparer {
+        /**
+         * Prepares page {@code index}; returns null to skip the page.
+         */
+        PreparedPage prepare(int index) throws Exception;
+    }
+
+    /**
+     * Streams the OCR words of a page to the text layer writer.
+     */
+    @FunctionalInterface
+    private interface PageWords {
+        void forEach(int index, WordSink sink) throws Exception;
+    }
+
+    /**
+     * Runs the page pipeline: {@code preparer} is invoked on a bounded worker pool with a bounded
+     * number of pages in flight, while the calling thread appends finished pages in order. The document
+     * buffers written streams in a scratch file so that the heap only holds pages still in flight.
+     */
+    private static Uri writePagesPipelined(Context context,
+                                           int total,
+                                           PagePreparer preparer,
+                                           PageWords pageWords,
+                                           Uri outputUri,
+                                           ProgressListener listener) {
+        final int workers = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), MAX_PAGE_WORKERS));
+        // Bounded number of pages in flight (being prepared or waiting for the writer) to cap memory
+        final int window = workers + 1;
+        final AtomicInteger preparedCount = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "pdf-page");
+            t.setDaemon(true);
+            return t;
+        });
+        @SuppressWarnings("unchecked")
+        Future<PreparedPage>[] futures = new Future[total];
+
+        try (PDDocument document = new PDDocument(scratchMemorySetting(context))) {
             try {
                 document.getDocument().setVersion(1.5f);
             } catch (Throwable ignore) {
@@ -527,92 +888,44 @@ public class PdfCreator {
             document.getDocumentInformation().setCreator("MakeACopy");
             document.getDocumentInformation().setProducer("MakeACopy");
 
-            PDRectangle pageSize = PDRectangle.A4;
-            float pageW = pageSize.getWidth();
-            float pageH = pageSize.getHeight();
-
             // Load fonts once (file-based; subset-embedded)
             List<PDFont> fonts = loadFontsWithFallbacks(document, context);
 
-            int total = bitmaps.size();
-            for (int i = 0; i < bitmaps.size(); i++) {
-                Bitmap src = bitmaps.get(i);
-                if (src == null) {
-                    if (listener != null) try {
-                        listener.onPageProcessed(i + 1, total);
-                    } catch (Throwable ignore) {
-                    }
-                    continue; // skip nulls defensively
-                }
-                Bitmap prepared = null;
+            for (int i = 0; i < Math.min(window, total); i++) {
+                futures[i] = submitPreparation(pool, preparer, i, total, preparedCount, listener);
+            }
+
+            // Single writer: append pages strictly in order while workers prepare the following ones
+            for (int i = 0; i < total; i++) {
+                PreparedPage pp;
                 try {
-                    prepared = processImageForPdf(src, convertToGrayscale, convertToBlackWhite, targetDpi);
-                    if (prepared == null) {
-                        Log.e(TAG, "Image preparation via OpenCV failed for page " + (i + 1));
+                    pp = futures[i].get();
+                } catch (ExecutionException e) {
+                    Log.e(TAG, "Error preparing page " + (i + 1), e.getCause());
+                    return null;
+                } finally {
+                    futures[i] = null;
+                }
+                int next = i + window;
+                if (next < total) {
+                    futures[next] = submitPreparation(pool, preparer, next, total, preparedCount, listener);
+                }
+
+                if (pp != null) {
+                    try {
+                        writePreparedPage(document, pp, pageWords, i, fonts);
+                    } catch (Exception e) {
+                        Log.e(TAG, "Error rendering page " + (i + 1), e);
                         return null;
+                    } finally {
+                        pp.recycle();
                     }
-
-                    PDPage page = new PDPage(pageSize);
-                    // Harmonize page boxes to avoid viewer-specific cropping/offset interpretations
+                }
+                if (listener != null) {
                     try {
-                        page.setMediaBox(pageSize);
-                        page.setCropBox(pageSize);
-                        page.setBleedBox(pageSize);
-                        page.setTrimBox(pageSize);
-                        page.setArtBox(pageSize);
+                        listener.onPageProcessed(i + 1, total);
                     } catch (Throwable ignore) {
                     }
-                    document.addPage(page);
-
-                    float scale = calculateScale(prepared.getWidth(), prepared.getHeight(), pageW, pageH);
-                    float drawW = prepared.getWidth() * scale;
-                    float drawH = prepared.getHeight() * scale;
-                    float offsetX = (pageW - drawW) / 2f;
-                    float offsetY = (pageH - drawH) / 2f;
-
-                    float q = Math.max(0f, Math.min(1f, jpegQuality / 100f));
-                    PDImageXObject pdImg = (jpegQuality < 100)
-                            ? JPEGFactory.createFromImage(document, prepared, q)
-                            : LosslessFactory.createFromImage(document, prepared);
-
-                    try (PDPageContentStream cs = new PDPageContentStream(document, page)) {
-                        cs.drawImage(pdImg, offsetX, offsetY, drawW, drawH);
-                        List<RecognizedWord> words = (perPageWords != null && i < perPageWords.size()) ? perPageWords.get(i) : null;
-                        if (words != null && !words.isEmpty()) {
-                            cs.saveGraphicsState();
-                            cs.transform(new Matrix(scale, 0, 0, scale, offsetX, offsetY));
-                            // Normalize OCR boxes from source bitmap space to prepared bitmap space if needed
-                            List<RecognizedWord> normWords;
-                            if (src.getWidth() != prepared.getWidth() || src.getHeight() != prepared.getHeight()) {
-                                float sxImg = (float) prepared.getWidth() / (float) src.getWidth();
-                                float syImg = (float) prepared.getHeight() / (float) src.getHeight();
-                                normWords = new ArrayList<>(words.size());
-                                for (RecognizedWord w : words) {
-                                    normWords.add(w.transform(sxImg, syImg, 0f, 0f).clipTo(prepared.getWidth(), prepared.getHeight()));
-                                }
-                            } else {
-                                normWords = words;
-                            }
-                            addTextLayerImageSpace(cs, normWords, fonts, prepared.getWidth(), prepared.getHeight());
-                            cs.restoreGraphicsState();
-                        }
-                    }
-                    if (listener != null) {
-                        try {
-                            listener.onPageProcessed(i + 1, total);
-                        } catch (Throwable ignore) {
-                        }
-                    }
-                } catch (Exception e) {
-                    Log.e(TAG, "Error rendering page " + (i + 1), e);
-                    return null;
-                } finally {
-                    if (prepared != null && prepared != src) {
-                        try {
-                            prepared.recycle();
-                        } catch (Throwable ignore) {
-                        }
-                    }
                 }
             }
 
@@ -627,10 +940,201 @@ public class PdfCreator {
         } catch (Exception e) {
             Log.e(TAG, "Error creating multi-page PDF", e);
             return null;
+        } finally {
+            pool.shutdownNow();
+            discardPending(futures);
+        }
+    }
+
+    /**
+     * Keeps at most a few MB of document streams on the heap and spills the rest to a scratch file
+     * in the cache directory.
+     */
+    private static MemoryUsageSetting scratchMemorySetting(Context context) {
+        MemoryUsageSetting setting = MemoryUsageSetting.setupMixed(SCRATCH_MAIN_MEMORY_BYTES);
+        try {
+            setting.setTempDir(context.getCacheDir());
+        } catch (Throwable ignore) {
+        }
+        return setting;
+    }
+
+    /**
+     * A page that has been scaled/converted and (for lossy output) JPEG-encoded by a worker,
+     * ready to be appended to the document by the writer.
+     */
+    private static final class PreparedPage {
+        final byte[] jpeg;      // encoded DCT data, or null for lossless pages
+        Bitmap bitmap;          // prepared bitmap for lossless pages (owned), otherwise null
+        final int width;
+        final int height;
+        final int srcWidth;     // coordinate space of the page's OCR words
+        final int srcHeight;
+        final int components;   // colour components of the JPEG data (1 = gray, 3 = RGB)
+
+        PreparedPage(byte[] jpeg, Bitmap bitmap, int width, int height, int srcWidth, int srcHeight) {
+            this(jpeg, bitmap, width, height, srcWidth, srcHeight, 3);
+        }
+
+        PreparedPage(byte[] jpeg, Bitmap bitmap, int width, int height, int srcWidth, int srcHeight, int components) {
+            this.jpeg = jpeg;
+            this.bitmap = bitmap;
+            this.width = width;
+            this.height = height;
+            this.srcWidth = srcWidth;
+            this.srcHeight = srcHeight;
+            this.components = components;
+        }
+
+        void recycle() {
+            if (bitmap != null) {
+                try {
+                    bitmap.recycle();
+                } catch (Throwable ignore) {
+                }
+                bitmap = null;
+            }
+        }
+    }
+
+    private static Future<PreparedPage> submitPreparation(ExecutorService pool,
+                                                          PagePreparer preparer,
+                                                          int index,
+                                                          int total,
+                                                          AtomicInteger preparedCount,
+                                                          ProgressListener listener) {
+        return pool.submit(() -> {
+            PreparedPage pp = preparer.prepare(index);
+            int done = preparedCount.incrementAndGet();
+            if (listener != null) {
+                try {
+                    listener.onPagePrepared(done, total);
+                } catch (Throwable ignore) {
+                }
+            }
+            return pp;
+        });
+    }
+
+    /**
+     * Worker stage: scales/converts the source bitmap and, for lossy output, encodes it to JPEG.
+     * {@code wordsWidth}/{@code wordsHeight} give the coordinate space of the page's OCR words,
+     * which differs from the bitmap size when the page was decoded with subsampling.
+     */
+    private static PreparedPage preparePage(Bitmap src, int wordsWidth, int wordsHeight, int index, int jpegQuality, boolean toGray, boolean toBw, int targetDpi) throws IOException {
+        Bitmap prepared = processImageForPdf(src, toGray, toBw, targetDpi);
+        if (prepared == null) {
+            throw new IOException("Image preparation via OpenCV failed for page " + (index + 1));
+        }
+        int w = prepared.getWidth();
+        int h = prepared.getHeight();
+        if (jpegQuality >= 100) {
+            Bitmap owned = (prepared == src) ? prepared.copy(prepared.getConfig(), false) : prepared;
+            return new PreparedPage(null, owned, w, h, wordsWidth, wordsHeight);
+        }
+        try {
+            return new PreparedPage(encodeJpeg(prepared, jpegQuality), null, w, h, wordsWidth, wordsHeight);
+        } finally {
+            if (prepared != src) {
+                try {
+                    prepared.recycle();
+                } catch (Throwable ignore) {
+                }
+            }
+        }
+    }
+
+    private static byte[] encodeJpeg(Bitmap bitmap, int jpegQuality) throws IOException {
+        int q = Math.max(0, Math.min(100, jpegQuality));
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(Math.max(64 * 1024, bitmap.getWidth() * bitmap.getHeight() / 8));
+        if (!bitmap.compress(Bitmap.CompressFormat.JPEG, q, bos)) {
+            throw new IOException("JPEG encoding failed");
+        }
+        return bos.toByteArray();
+    }
+
+    /**
+     * Writer stage: adds an A4 page with the prepared image and the optional OCR text layer.
+     * The page's words are streamed from {@code pageWords} into the text layer without collecting them.
+     * Must only be called from the single writer thread.
+     */
+    private static void writePreparedPage(PDDocument document,
+                                          PreparedPage pp,
+                                          PageWords pageWords,
+                                          int index,
+                                          List<PDFont> fonts) throws Exception {
+        PDRectangle pageSize = PDRectangle.A4;
+        float pageW = pageSize.getWidth();
+        float pageH = pageSize.getHeight();
+
+        PDPage page = new PDPage(pageSize);
+        // Harmonize page boxes to avoid viewer-specific cropping/offset interpretations
+        try {
+            page.setMediaBox(pageSize);
+            page.setCropBox(pageSize);
+            page.setBleedBox(pageSize);
+            page.setTrimBox(pageSize);
+            page.setArtBox(pageSize);
+        } catch (Throwable ignore) {
+        }
+        document.addPage(page);
+
+        float scale = calculateScale(pp.width, pp.height, pageW, pageH);
+        float drawW = pp.width * scale;
+        float drawH = pp.height * scale;
+        float offsetX = (pageW - drawW) / 2f;
+        float offsetY = (pageH - drawH) / 2f;
+
+        PDImageXObject pdImg = (pp.jpeg != null)
+                ? new PDImageXObject(document, new ByteArrayInputStream(pp.jpeg), COSName.DCT_DECODE,
+                pp.width, pp.height, 8, pp.components == 1 ? PDDeviceGray.INSTANCE : PDDeviceRGB.INSTANCE)
+                : LosslessFactory.createFromImage(document, pp.bitmap);
+
+        try (PDPageContentStream cs = new PDPageContentStream(document, page)) {
+            cs.drawImage(pdImg, offsetX, offsetY, drawW, drawH);
+            TextLayerWriter writer = new TextLayerWriter(cs, new Matrix(scale, 0, 0, scale, offsetX, offsetY),
+                    fonts, pp.width, pp.height);
+            // Normalize OCR boxes from source bitmap space to prepared bitmap space if needed
+            WordSink sink = writer;
+            if (pp.srcWidth != pp.width || pp.srcHeight != pp.height) {
+                float sxImg = (float) pp.width / (float) pp.srcWidth;
+                float syImg = (float) pp.height / (float) pp.srcHeight;
+                sink = w -> writer.accept(w.transform(sxImg, syImg, 0f, 0f).clipTo(pp.width, pp.height));
+            }
+            pageWords.forEach(index, sink);
+            writer.finish();
+        }
+    }
+
+    /**
+     * Cancels outstanding preparations and releases bitmaps of pages that were prepared but never written.
+     */
+    private static void discardPending(Future<PreparedPage>[] futures) {
+        for (Future<PreparedPage> f : futures) {
+            if (f == null) continue;
+            f.cancel(true);
+            if (f.isDone() && !f.isCancelled()) {
+                try {
+                    PreparedPage pp = f.get();
+                    if (pp != null) pp.recycle();
+                } catch (Throwable ignore) {
+                }
+            }
         }
     }
 
     public interface ProgressListener {
+        /**
+         * Called on the exporting thread after page {@code pageIndex} (1-based) has been written,
+         * i.e. {@code pageIndex} pages are written in total.
+         */
         void onPageProcessed(int pageIndex, int totalPages);
+
+        /**
+         * Called from a worker thread whenever another page has been prepared and encoded but not
+         * yet written. Pages may be prepared out of order; {@code preparedPages} is the running count.
+         */
+        default void onPagePrepared(int preparedPages, int totalPages) {
+        }
     }
 }
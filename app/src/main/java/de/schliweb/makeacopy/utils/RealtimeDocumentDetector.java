@@ -5,11 +5,20 @@ import android.graphics.Bitmap;
 import android.graphics.RectF;
 import android.os.SystemClock;
 import android.util.Log;
+import androidx.camera.core.ImageProxy;
+import org.opencv.android.Utils;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
 import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.imgproc.Imgproc;
 
+import java.nio.ByteBuffer;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * RealtimeDocumentDetector is a class designed to facilitate real-time document detection
@@ -21,30 +30,92 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * detected corners, latency, and confidence values for the frame being processed.
  * <p>
  * This class operates asynchronously, using a dedicated single-threaded executor
- * for processing frames in the background.
+ * for processing frames in the background. Submitted frames go into a single-slot
+ * "latest frame" mailbox: a newer frame replaces an unprocessed older one. The analysis
+ * rate adapts to the rolling inference latency so that it meets a configurable target
+ * of overlay updates per second without exceeding a CPU budget; frames arriving before
+ * the next analysis slot are dropped immediately.
+ * <p>
+ * After a confident full detection, the following frames are handled in tracking mode:
+ * {@link CornerTracker} follows the four corners from the previous frame with optical flow,
+ * and the full {@link OpenCVUtils#detectDocumentCorners} pass only runs again after a
+ * configurable number of tracked frames or as soon as tracking confidence drops. While
+ * tracking is possible, the grayscale version of the last analyzed frame is kept.
+ * <p>
+ * Frames can be submitted either as {@link Bitmap}s or directly as CameraX {@link ImageProxy}s.
+ * The latter path wraps the Y plane as a grayscale {@link Mat} without copying, crops the
+ * region of interest as a Mat view and feeds the pooled ONNX input tensor from it; only the
+ * frame kept for tracking is copied.
  */
 public class RealtimeDocumentDetector {
 
     public interface OnResultListener {
         void onResult(Point[] corners, long latencyMs, float confidence);
+
+        /**
+         * Variant of {@link #onResult(Point[], long, float)} that additionally receives the
+         * scheduler statistics. The default implementation ignores the statistics.
+         */
+        default void onResult(Point[] corners, long latencyMs, float confidence, FrameStats stats) {
+            onResult(corners, latencyMs, confidence);
+        }
+    }
+
+    /**
+     * Snapshot of the adaptive scheduler state at the time a result is delivered.
+     *
+     * @param analysisRateHz  the analysis rate currently chosen by the scheduler
+     * @param avgLatencyMs    the rolling average inference latency
+     * @param processedFrames total number of frames analyzed so far
+     * @param droppedFrames   total number of frames dropped (paced out or replaced in the mailbox)
+     */
+    public record FrameStats(float analysisRateHz, double avgLatencyMs, long processedFrames, long droppedFrames) {
     }
 
     private static final String TAG = "RealtimeDetector";
+    private static final float MIN_RATE_HZ = 0.5f;
+    private static final double LATENCY_EMA_ALPHA = 0.2;
+    private static final float MIN_DETECTION_CONFIDENCE_TO_TRACK = 0.25f;
+
+    /**
+     * A frame waiting in the mailbox. Exactly one of {@link #process()} or {@link #discard()} is called.
+     */
+    private interface PendingFrame {
+        void process();
+
+        void discard();
+    }
 
     private final Context appContext;
     private final ExecutorService exec = Executors.newSingleThreadExecutor();
-    private final AtomicBoolean busy = new AtomicBoolean(false);
+    private final AtomicReference<PendingFrame> mailbox = new AtomicReference<>();
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private final AtomicLong processedFrames = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
     private final OnResultListener listener;
 
     private volatile boolean enableRoi = true;
-    private volatile boolean enableFrameSkip = true;
-    private volatile int frameSkip = 1;
-    private volatile int frameCounter = 0;
+    private volatile float targetUpdatesPerSecond = 12f;
+    private volatile float cpuBudget = 0.5f;
+    private volatile double avgLatencyMs = 0.0;
+    private volatile long nextSlotAtMs = 0L;
 
     private volatile double emaAlpha = 0.65;
     private volatile float roiMarginFraction = 0.12f;
+    // Last detected or tracked corners as found in the frame; seeds tracking and the ROI
+    private volatile Point[] rawPts = null;
+    // Smoothed corners as delivered to the listener
     private volatile Point[] lastPts = null;
 
+    private volatile boolean enableTracking = true;
+    private volatile int maxTrackedFrames = 8;
+    private volatile float minTrackingConfidence = 0.35f;
+    // Accessed only from the worker thread
+    private boolean trackable = false;
+    private int trackedFrames = 0;
+    // Grayscale of the last analyzed frame while tracking is possible, else null
+    private Mat prevGray = null;
+
     public RealtimeDocumentDetector(Context context, OnResultListener listener) {
         this.appContext = context.getApplicationContext();
         this.listener = listener;
@@ -56,9 +127,42 @@ public class RealtimeDocumentDetector {
         return this;
     }
 
-    public RealtimeDocumentDetector setEnableFrameSkip(boolean enable, int skipN) {
-        this.enableFrameSkip = enable;
-        this.frameSkip = Math.max(0, skipN);
+    /**
+     * Sets the desired number of corner overlay updates per second. The scheduler never analyzes
+     * more often than this, and less often if the CPU budget does not allow it.
+     */
+    public RealtimeDocumentDetector setTargetUpdatesPerSecond(float ups) {
+        this.targetUpdatesPerSecond = Math.max(MIN_RATE_HZ, Math.min(60f, ups));
+        return this;
+    }
+
+    /**
+     * Sets the fraction of wall-clock time (0.05..1.0) the analysis thread may spend on detection.
+     * With a rolling latency of L ms the analysis rate is capped at {@code cpuBudget * 1000 / L}.
+     */
+    public RealtimeDocumentDetector setCpuBudget(float fraction) {
+        this.cpuBudget = Math.max(0.05f, Math.min(1f, fraction));
+        return this;
+    }
+
+    /**
+     * Configures tracking mode. When enabled, up to {@code maxFrames} frames after a confident full
+     * detection are refined locally around the last corners instead of running the full detector.
+     *
+     * @param enable    true to enable tracking between full detections
+     * @param maxFrames number of consecutive tracked frames before a full detection is forced
+     */
+    public RealtimeDocumentDetector setTracking(boolean enable, int maxFrames) {
+        this.enableTracking = enable;
+        this.maxTrackedFrames = Math.max(0, maxFrames);
+        return this;
+    }
+
+    /**
+     * Sets the minimum tracking confidence (0..1) below which a full detection is run instead.
+     */
+    public RealtimeDocumentDetector setMinTrackingConfidence(float minConfidence) {
+        this.minTrackingConfidence = clamp01(minConfidence);
         return this;
     }
 
@@ -74,30 +178,131 @@ public class RealtimeDocumentDetector {
 
     public void shutdown() {
         exec.shutdownNow();
+        PendingFrame pending = mailbox.getAndSet(null);
+        if (pending != null) pending.discard();
     }
 
     public void submitFrame(Bitmap frame) {
         if (frame == null || frame.isRecycled()) return;
+        if (!slotOpen()) return;
+
+        final Bitmap frameRef = frame.copy(Bitmap.Config.ARGB_8888, false);
+        offer(new PendingFrame() {
+            @Override
+            public void process() {
+                analyzeBitmap(frameRef);
+            }
 
-        if (enableFrameSkip) {
-            int c = (frameCounter++ % (frameSkip + 1));
-            if (c != 0) return;
+            @Override
+            public void discard() {
+                if (frameRef != frame && !frameRef.isRecycled()) frameRef.recycle();
+            }
+        });
+    }
+
+    /**
+     * Submits a CameraX analysis frame (YUV_420_888) without converting it to a {@link Bitmap}.
+     * The Y plane is wrapped as a grayscale {@link Mat} directly on the image buffer, the region of
+     * interest is taken as a Mat view, and the detector reads from it without any full-frame copy.
+     * <p>
+     * This method takes ownership of {@code image}: it is always closed, either immediately when the
+     * frame is dropped or after detection has finished on the worker thread. Reported corners are in
+     * the upright frame orientation, i.e. after applying the image's rotation degrees.
+     *
+     * @param image the camera frame to analyze
+     */
+    public void submitFrame(ImageProxy image) {
+        if (image == null) return;
+        if (!slotOpen()) {
+            image.close();
+            return;
         }
 
-        if (busy.getAndSet(true)) return;
+        offer(new PendingFrame() {
+            @Override
+            public void process() {
+                try {
+                    analyzeImage(image);
+                } finally {
+                    discard();
+                }
+            }
 
-        final Bitmap frameRef = frame.copy(Bitmap.Config.ARGB_8888, false);
-        exec.execute(() -> {
-            long t0 = SystemClock.elapsedRealtimeNanos();
-            org.opencv.core.Point[] pts = null;
-            float conf = 0f;
+            @Override
+            public void discard() {
+                try {
+                    image.close();
+                } catch (Throwable ignore) {
+                }
+            }
+        });
+    }
 
+    /**
+     * Returns false (and counts the frame as dropped) if the next analysis slot has not opened yet.
+     */
+    private boolean slotOpen() {
+        if (SystemClock.elapsedRealtime() < nextSlotAtMs) {
+            droppedFrames.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Puts {@code frame} into the single-slot mailbox, discarding any older unprocessed frame,
+     * and makes sure the worker drains the mailbox.
+     */
+    private void offer(PendingFrame frame) {
+        PendingFrame previous = mailbox.getAndSet(frame);
+        if (previous != null) {
+            previous.discard();
+            droppedFrames.incrementAndGet();
+        }
+        if (draining.compareAndSet(false, true)) {
             try {
+                exec.execute(this::drain);
+            } catch (Throwable t) {
+                draining.set(false);
+                PendingFrame pending = mailbox.getAndSet(null);
+                if (pending != null) pending.discard();
+            }
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            PendingFrame frame = mailbox.getAndSet(null);
+            if (frame == null) {
+                draining.set(false);
+                // A frame may have arrived between the empty check and clearing the flag.
+                if (mailbox.get() != null && draining.compareAndSet(false, true)) continue;
+                return;
+            }
+            frame.process();
+        }
+    }
+
+    private void analyzeBitmap(Bitmap frameRef) {
+        long t0 = SystemClock.elapsedRealtimeNanos();
+        org.opencv.core.Point[] pts = null;
+        float conf = 0f;
+        Mat gray = null;
+
+        try {
+            Point[] prev = rawPts;
+            if (canTrack(prev)) {
+                gray = toGray(frameRef);
+                pts = tryTrack(gray, prev);
+            }
+
+            boolean fullDetection = pts == null;
+            if (fullDetection) {
                 Bitmap roiBmp = frameRef;
                 RectF roiRect = null;
 
-                if (enableRoi && lastPts != null) {
-                    roiRect = computeTightRoi(lastPts, frameRef.getWidth(), frameRef.getHeight(), roiMarginFraction);
+                if (enableRoi && prev != null) {
+                    roiRect = computeTightRoi(prev, frameRef.getWidth(), frameRef.getHeight(), roiMarginFraction);
                     Bitmap cropped = safeCrop(frameRef, roiRect);
                     if (cropped != null) {
                         roiBmp = cropped;
@@ -107,32 +312,242 @@ public class RealtimeDocumentDetector {
                 }
 
                 pts = OpenCVUtils.detectDocumentCorners(appContext, roiBmp);
+                if (roiBmp != frameRef) roiBmp.recycle();
 
                 if (pts != null && roiRect != null) {
-                    for (int i = 0; i < 4; i++) {
-                        pts[i].x += roiRect.left;
-                        pts[i].y += roiRect.top;
-                    }
+                    offsetPoints(pts, roiRect.left, roiRect.top);
                 }
+            }
 
-                if (pts != null) {
-                    pts = smoothCorners(lastPts, pts, emaAlpha);
-                    lastPts = pts;
-                    conf = clamp01((float) (quadArea(pts) / (frameRef.getWidth() * (double) frameRef.getHeight())));
-                    conf = Math.min(1f, Math.max(0f, (conf - 0.02f) / 0.5f));
-                }
-            } catch (Throwable t) {
-                Log.w(TAG, "submitFrame inference failed: " + t.getMessage());
-            } finally {
-                long dtMs = (long) ((SystemClock.elapsedRealtimeNanos() - t0) / 1_000_000.0);
-                try {
-                    listener.onResult(pts, dtMs, conf);
-                } catch (Throwable ignore) {
+            pts = acceptCorners(pts);
+            conf = confidenceOf(pts, frameRef.getWidth(), frameRef.getHeight());
+            if (fullDetection) onFullDetection(pts, conf);
+            if (keepsFrame()) {
+                if (gray == null) gray = toGray(frameRef);
+                // Owned by this frame: hand it over instead of copying
+                if (prevGray != null) prevGray.release();
+                prevGray = gray;
+                gray = null;
+            } else {
+                forgetFrame();
+            }
+        } catch (Throwable t) {
+            Log.w(TAG, "submitFrame inference failed: " + t.getMessage());
+            forgetFrame();
+        } finally {
+            if (gray != null) gray.release();
+            deliver(pts, t0, conf);
+            if (!frameRef.isRecycled()) frameRef.recycle();
+        }
+    }
+
+    private void analyzeImage(ImageProxy image) {
+        long t0 = SystemClock.elapsedRealtimeNanos();
+        org.opencv.core.Point[] pts = null;
+        float conf = 0f;
+        Mat y = null;
+        Mat roi = null;
+
+        try {
+            final int w = image.getWidth();
+            final int h = image.getHeight();
+            final int rotation = image.getImageInfo().getRotationDegrees();
+            ImageProxy.PlaneProxy plane = image.getPlanes()[0];
+            ByteBuffer buf = plane.getBuffer();
+            y = new Mat(h, w, CvType.CV_8UC1, buf, plane.getRowStride());
+
+            Point[] prev = rawPts;
+            org.opencv.core.Point[] sensorPrev = prev != null ? uprightToSensor(prev, w, h, rotation) : null;
+            if (canTrack(sensorPrev)) {
+                pts = tryTrack(y, sensorPrev);
+            }
+
+            boolean fullDetection = pts == null;
+            if (fullDetection) {
+                Rect roiRect = null;
+                if (enableRoi && sensorPrev != null) {
+                    RectF r = computeTightRoi(sensorPrev, w, h, roiMarginFraction);
+                    int rx = Math.max(0, Math.round(r.left));
+                    int ry = Math.max(0, Math.round(r.top));
+                    int rw = Math.min(w - rx, Math.round(r.width()));
+                    int rh = Math.min(h - ry, Math.round(r.height()));
+                    if (rw > 1 && rh > 1) {
+                        roiRect = new Rect(rx, ry, rw, rh);
+                        roi = y.submat(roiRect);
+                    }
                 }
-                busy.set(false);
-                if (frameRef != frame && !frameRef.isRecycled()) frameRef.recycle();
+
+                pts = OpenCVUtils.detectDocumentCorners(appContext, roi != null ? roi : y);
+                if (pts != null && roiRect != null) offsetPoints(pts, roiRect.x, roiRect.y);
             }
-        });
+
+            if (pts != null) {
+                pts = sensorToUpright(pts, w, h, rotation);
+            }
+
+            boolean swap = rotation == 90 || rotation == 270;
+            int uprightW = swap ? h : w;
+            int uprightH = swap ? w : h;
+            pts = acceptCorners(pts);
+            conf = confidenceOf(pts, uprightW, uprightH);
+            if (fullDetection) onFullDetection(pts, conf);
+            if (keepsFrame()) {
+                // The Y plane belongs to the image, which is closed after this frame
+                if (prevGray == null) prevGray = new Mat();
+                y.copyTo(prevGray);
+            } else {
+                forgetFrame();
+            }
+        } catch (Throwable t) {
+            Log.w(TAG, "submitFrame(ImageProxy) inference failed: " + t.getMessage());
+            forgetFrame();
+        } finally {
+            if (roi != null) roi.release();
+            if (y != null) y.release();
+            deliver(pts, t0, conf);
+        }
+    }
+
+    private boolean canTrack(org.opencv.core.Point[] prev) {
+        return enableTracking && CornerTracker.isAvailable() && trackable && prev != null && prevGray != null
+                && trackedFrames < maxTrackedFrames;
+    }
+
+    /**
+     * @return true if the next frame may be tracked from the current one, which then has to be kept
+     */
+    private boolean keepsFrame() {
+        return enableTracking && CornerTracker.isAvailable() && trackable && rawPts != null
+                && trackedFrames < maxTrackedFrames && !exec.isShutdown();
+    }
+
+    private void forgetFrame() {
+        if (prevGray != null) {
+            prevGray.release();
+            prevGray = null;
+        }
+    }
+
+    private static Mat toGray(Bitmap bmp) {
+        Mat rgba = new Mat();
+        Mat gray = new Mat();
+        try {
+            Utils.bitmapToMat(bmp, rgba);
+            Imgproc.cvtColor(rgba, gray, Imgproc.COLOR_RGBA2GRAY);
+            return gray;
+        } catch (RuntimeException e) {
+            gray.release();
+            throw e;
+        } finally {
+            rgba.release();
+        }
+    }
+
+    /**
+     * Attempts to track {@code prev} from the kept previous frame into the current frame. On failure or
+     * low confidence, tracking is suspended until the next confident full detection.
+     */
+    private org.opencv.core.Point[] tryTrack(Mat gray, org.opencv.core.Point[] prev) {
+        float[] trackConf = new float[1];
+        org.opencv.core.Point[] tracked = CornerTracker.track(prevGray, gray, prev, trackConf);
+        if (tracked == null || trackConf[0] < minTrackingConfidence) {
+            trackable = false;
+            return null;
+        }
+        trackedFrames++;
+        return tracked;
+    }
+
+    private void onFullDetection(org.opencv.core.Point[] pts, float conf) {
+        trackedFrames = 0;
+        trackable = pts != null && conf >= MIN_DETECTION_CONFIDENCE_TO_TRACK;
+    }
+
+    /**
+     * Records the raw corners of this frame and returns the smoothed corners to deliver. Smoothing only
+     * affects the overlay; tracking always continues from where the corners actually are.
+     */
+    private org.opencv.core.Point[] acceptCorners(org.opencv.core.Point[] pts) {
+        if (pts == null) return null;
+        rawPts = pts;
+        Point[] smoothed = smoothCorners(lastPts, pts, emaAlpha);
+        lastPts = smoothed;
+        return smoothed;
+    }
+
+    private void deliver(org.opencv.core.Point[] pts, long t0, float conf) {
+        long dtMs = (long) ((SystemClock.elapsedRealtimeNanos() - t0) / 1_000_000.0);
+        FrameStats stats = updateSchedule(t0 / 1_000_000L, dtMs);
+        try {
+            listener.onResult(pts, dtMs, conf, stats);
+        } catch (Throwable ignore) {
+        }
+    }
+
+    /**
+     * Folds the latest inference latency into the rolling average and derives the analysis rate:
+     * the target update rate, capped by what the CPU budget allows at the observed latency.
+     * The next analysis slot opens one interval after the start of the frame just processed.
+     */
+    private FrameStats updateSchedule(long startMs, long dtMs) {
+        long processed = processedFrames.incrementAndGet();
+        double avg = avgLatencyMs;
+        avg = (processed == 1) ? dtMs : (1 - LATENCY_EMA_ALPHA) * avg + LATENCY_EMA_ALPHA * dtMs;
+        avgLatencyMs = avg;
+
+        float budgetRate = (float) (cpuBudget * 1000.0 / Math.max(1.0, avg));
+        float rate = Math.max(MIN_RATE_HZ, Math.min(targetUpdatesPerSecond, budgetRate));
+        nextSlotAtMs = startMs + Math.round(1000.0 / rate);
+
+        return new FrameStats(rate, avg, processed, droppedFrames.get());
+    }
+
+    private static float confidenceOf(org.opencv.core.Point[] pts, int w, int h) {
+        if (pts == null) return 0f;
+        float conf = clamp01((float) (quadArea(pts) / (w * (double) h)));
+        return Math.min(1f, Math.max(0f, (conf - 0.02f) / 0.5f));
+    }
+
+    private static void offsetPoints(org.opencv.core.Point[] pts, double dx, double dy) {
+        for (org.opencv.core.Point p : pts) {
+            p.x += dx;
+            p.y += dy;
+        }
+    }
+
+    /**
+     * Maps points from sensor buffer coordinates (w x h) into the upright frame after a clockwise
+     * rotation of {@code rotation} degrees.
+     */
+    private static org.opencv.core.Point[] sensorToUpright(org.opencv.core.Point[] pts, int w, int h, int rotation) {
+        org.opencv.core.Point[] out = new org.opencv.core.Point[pts.length];
+        for (int i = 0; i < pts.length; i++) {
+            double x = pts[i].x, y = pts[i].y;
+            switch (rotation) {
+                case 90 -> out[i] = new org.opencv.core.Point(h - 1 - y, x);
+                case 180 -> out[i] = new org.opencv.core.Point(w - 1 - x, h - 1 - y);
+                case 270 -> out[i] = new org.opencv.core.Point(y, w - 1 - x);
+                default -> out[i] = new org.opencv.core.Point(x, y);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Inverse of {@link #sensorToUpright}: maps upright frame points back into sensor buffer coordinates.
+     */
+    private static org.opencv.core.Point[] uprightToSensor(org.opencv.core.Point[] pts, int w, int h, int rotation) {
+        org.opencv.core.Point[] out = new org.opencv.core.Point[pts.length];
+        for (int i = 0; i < pts.length; i++) {
+            double x = pts[i].x, y = pts[i].y;
+            switch (rotation) {
+                case 90 -> out[i] = new org.opencv.core.Point(y, h - 1 - x);
+                case 180 -> out[i] = new org.opencv.core.Point(w - 1 - x, h - 1 - y);
+                case 270 -> out[i] = new org.opencv.core.Point(w - 1 - y, x);
+                default -> out[i] = new org.opencv.core.Point(x, y);
+            }
+        }
+        return out;
     }
 
     private static org.opencv.core.Point[] smoothCorners(org.opencv.core.Point[] prev, org.opencv.core.Point[] curr, double alpha) {
@@ -7,8 +7,24 @@ import android.util.Log;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import de.schliweb.makeacopy.data.CompletedScansRegistry;
 import de.schliweb.makeacopy.ui.export.session.CompletedScan;
@@ -16,122 +32,268 @@ import de.schliweb.makeacopy.ui.export.session.CompletedScan;
 /**
  * Utility responsible for persisting a scanned page to the app's private storage and registry.
  * It writes the full JPEG (page.jpg), creates a thumbnail (thumb.jpg), and optionally persists
- * OCR outputs (text.txt, words.json). Functionality mirrors the previously inlined logic
- * in ExportFragment to reduce its complexity without changing behavior.
+ * OCR outputs (text.txt, words.bin).
+ * <p>
+ * Persisting runs as a pipeline on a small bounded pool: after the scan directory is prepared, the page
+ * encode, the thumbnail and the OCR artifacts are independent stages that run in parallel (and overlap
+ * with the stages of other scans); the registry commit is the last stage and only starts once all files
+ * are complete. Every file is written to a temporary name, synced and renamed, and the directory is synced
+ * before the commit, so a crash never leaves a registry entry pointing at partial files. A crash before the
+ * commit leaves an unregistered directory that {@link de.schliweb.makeacopy.data.RegistryCleaner} removes;
+ * directories of scans that are still being written ({@link #pendingIds}) are left alone by the cleaner.
+ * <p>
+ * At most {@link #MAX_PENDING_SCANS} scans are in the pipeline at a time, which keeps the bounded work
+ * queue from overflowing. Further scans are held back without blocking the caller and enter the pipeline
+ * in call order as running scans finish.
+ * <p>
+ * This class is not intended to be instantiated.
  */
 public final class ScanPersister {
     private static final String TAG = "ScanPersister";
+    /**
+     * JPEG quality used for the stored full page (page.jpg).
+     */
+    public static final int PAGE_JPEG_QUALITY = 90;
+    private static final int THUMB_JPEG_QUALITY = 75;
+    private static final int THUMB_LONG_EDGE = 240;
+    private static final int MAX_WORKERS = 3;
+    /**
+     * Scans admitted to the pipeline at the same time.
+     */
+    static final int MAX_PENDING_SCANS = 4;
+    // prepare, page, thumbnail, OCR artifacts, commit
+    private static final int STAGES_PER_SCAN = 5;
+
+    private static final Object admissionLock = new Object();
+    // Guarded by admissionLock
+    private static final Deque<Runnable> waiting = new ArrayDeque<>();
+    // Guarded by admissionLock
+    private static int admitted;
+    private static final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private static volatile ExecutorService exec;
 
     private ScanPersister() {
     }
 
     /**
-     * Persist the given in-memory scan to disk and registry.
+     * Persist the given in-memory scan to disk and registry in the background.
      * <p>
-     * Behavioural notes (kept identical to previous implementation):
+     * Behavioural notes:
      * - JPEG quality: page 90, thumbnail 75
-     * - Thumbnail long edge ~240 px, applies rotation before scaling
+     * - Thumbnail long edge ~240 px; the page is downscaled first and the small image is rotated
      * - Writes text.txt when non-empty text provided
-     * - Writes words.json when words provided and prefers it over plain text in registry
-     * - Swallows non-critical IO errors, logs registry insert failures
+     * - Writes words.bin when words provided and prefers it over plain text in registry
+     * - Adds the OCR text to the registry's full-text index
+     * - Fails only if the page cannot be written; thumbnail and OCR failures are logged and the entry is
+     * registered without them. Registry insert failures are logged.
+     * <p>
+     * The in-memory bitmap is only read and must not be recycled before the returned future completes.
+     * Never blocks; while {@link #MAX_PENDING_SCANS} other scans are still being written, this one waits
+     * for its turn in the background.
      *
      * @param appContext application context
      * @param inMemory   completed scan that contains id, rotation, createdAt, width/height, and in-memory bitmap
      * @param ocrText    optional OCR text (nullable)
      * @param ocrWords   optional OCR words (nullable)
-     * @return the persisted CompletedScan (with file paths, no in-memory bitmap)
-     * @throws Exception for unexpected critical failures
+     * @return completes with the persisted CompletedScan (with file paths, no in-memory bitmap) after the
+     * registry commit, or exceptionally if the page could not be written or the pipeline could not be started
+     * @throws IllegalArgumentException if a required argument is missing
      */
-    public static CompletedScan persist(Context appContext,
-                                        CompletedScan inMemory,
-                                        String ocrText,
-                                        List<RecognizedWord> ocrWords) throws Exception {
+    public static CompletableFuture<CompletedScan> persistAsync(Context appContext,
+                                                                CompletedScan inMemory,
+                                                                String ocrText,
+                                                                List<RecognizedWord> ocrWords) {
         if (appContext == null || inMemory == null || inMemory.id() == null || inMemory.inMemoryBitmap() == null) {
             throw new IllegalArgumentException("Invalid arguments for persist");
         }
-        final Bitmap bmp = inMemory.inMemoryBitmap();
         final String id = inMemory.id();
+        final File dir = new File(appContext.getFilesDir(), "scans/" + id);
+        final CompletableFuture<CompletedScan> result = new CompletableFuture<>();
 
-        File dir = new File(appContext.getFilesDir(), "scans/" + id);
-        if (!dir.exists()) {
-            //noinspection ResultOfMethodCallIgnored
-            dir.mkdirs();
+        // Marked before the directory exists, so the cleaner never sees it unmarked and unregistered
+        pending.add(id);
+        admit(() -> {
+            try {
+                startPipeline(appContext, inMemory, dir, ocrText, ocrWords, result);
+            } catch (RuntimeException e) {
+                pending.remove(id);
+                result.completeExceptionally(e);
+                leave();
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Submits the stages of one admitted scan. Only submits and never waits, so it may run on the caller's
+     * thread or on the worker that finished the previous scan.
+     */
+    private static void startPipeline(Context appContext, CompletedScan inMemory, File dir, String ocrText,
+                                      List<RecognizedWord> ocrWords, CompletableFuture<CompletedScan> result) {
+        final Bitmap bmp = inMemory.inMemoryBitmap();
+        final ExecutorService ex = executor();
+
+        CompletableFuture<File> prepared = CompletableFuture.supplyAsync(() -> {
+            if (!dir.exists()) {
+                //noinspection ResultOfMethodCallIgnored
+                dir.mkdirs();
+            }
+            DerivedPageCache.invalidate(dir);
+            return dir;
+        }, ex);
+        CompletableFuture<File> page = prepared.thenApplyAsync(d -> writePage(d, bmp), ex);
+        CompletableFuture<File> thumb = prepared.thenApplyAsync(d -> writeThumbnail(d, bmp, inMemory.rotationDeg()), ex);
+        CompletableFuture<OcrFiles> ocr = prepared.thenApplyAsync(d -> writeOcrArtifacts(d, ocrText, ocrWords), ex);
+
+        CompletableFuture<CompletedScan> committed = CompletableFuture.allOf(page, thumb, ocr).thenApplyAsync(
+                v -> commit(appContext, inMemory, page.join(), thumb.join(), ocr.join(), ocrText), ex);
+        committed.whenComplete((scan, t) -> {
+            if (t != null) result.completeExceptionally(t);
+            else result.complete(scan);
+        });
+        // allOf settles only when every stage has finished, also after a failure
+        CompletableFuture.allOf(committed, thumb, ocr).whenComplete((v, t) -> {
+            pending.remove(inMemory.id());
+            leave();
+        });
+    }
+
+    /**
+     * Runs {@code start} now if fewer than {@link #MAX_PENDING_SCANS} scans are in the pipeline, otherwise
+     * queues it until {@link #leave} hands a slot over.
+     */
+    private static void admit(Runnable start) {
+        synchronized (admissionLock) {
+            if (admitted >= MAX_PENDING_SCANS) {
+                waiting.addLast(start);
+                return;
+            }
+            admitted++;
         }
+        start.run();
+    }
+
+    /**
+     * Called once per admitted scan when it has finished; passes its slot to the next waiting scan.
+     */
+    private static void leave() {
+        Runnable next;
+        synchronized (admissionLock) {
+            next = waiting.pollFirst();
+            if (next == null) {
+                admitted--;
+                return;
+            }
+        }
+        next.run();
+    }
+
+    /**
+     * @return ids of the scans whose files are being written and that are not registered yet (or are being
+     * re-registered); a snapshot
+     */
+    public static Set<String> pendingIds() {
+        return new HashSet<>(pending);
+    }
+
+    /**
+     * Page stage: encodes the full page. Failures are fatal for the scan.
+     */
+    private static File writePage(File dir, Bitmap bmp) {
         File page = new File(dir, "page.jpg");
-        try (FileOutputStream fos = new FileOutputStream(page)) {
-            bmp.compress(Bitmap.CompressFormat.JPEG, 90, fos);
-            fos.flush();
+        try {
+            writeDurably(page, out -> {
+                if (!bmp.compress(Bitmap.CompressFormat.JPEG, PAGE_JPEG_QUALITY, out)) {
+                    throw new IOException("JPEG encode failed");
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        // Create thumbnail with rotation applied
-        Bitmap sourceForThumb = bmp;
+        return page;
+    }
+
+    /**
+     * Thumbnail stage: scales the page down to the thumbnail size first and rotates only the small image.
+     *
+     * @return the thumbnail file, or null if it could not be written
+     */
+    private static File writeThumbnail(File dir, Bitmap bmp, int rotationDeg) {
+        Bitmap small = null;
+        Bitmap thumb = null;
         try {
-            int deg = 0;
-            try {
-                deg = inMemory.rotationDeg();
-            } catch (Throwable ignore) {
-            }
-            deg = ((deg % 360) + 360) % 360;
-            if (deg != 0 && bmp != null && !bmp.isRecycled()) {
+            int w = bmp.getWidth();
+            int h = bmp.getHeight();
+            int longEdge = Math.max(w, h);
+            float scale = longEdge > THUMB_LONG_EDGE ? (THUMB_LONG_EDGE / (float) longEdge) : 1f;
+            int nw = Math.max(1, Math.round(w * scale));
+            int nh = Math.max(1, Math.round(h * scale));
+            small = Bitmap.createScaledBitmap(bmp, nw, nh, true);
+            thumb = small;
+            int deg = ((rotationDeg % 360) + 360) % 360;
+            if (deg != 0) {
                 Matrix m = new Matrix();
                 m.postRotate(deg);
-                Bitmap rotated = Bitmap.createBitmap(bmp, 0, 0, bmp.getWidth(), bmp.getHeight(), m, true);
-                if (rotated != null) sourceForThumb = rotated;
-            }
-        } catch (Throwable ignore) { /* fall back to original */ }
-        int w = sourceForThumb.getWidth();
-        int h = sourceForThumb.getHeight();
-        int longEdge = Math.max(w, h);
-        int target = 240;
-        float scale = longEdge > target ? (target / (float) longEdge) : 1f;
-        int nw = Math.max(1, Math.round(w * scale));
-        int nh = Math.max(1, Math.round(h * scale));
-        Bitmap thumb = Bitmap.createScaledBitmap(sourceForThumb, nw, nh, true);
-        File thumbFile = new File(dir, "thumb.jpg");
-        try (FileOutputStream tfos = new FileOutputStream(thumbFile)) {
-            thumb.compress(Bitmap.CompressFormat.JPEG, 75, tfos);
-            tfos.flush();
-        } catch (Throwable ignore) {
-        }
-        if (sourceForThumb != bmp) {
-            try {
-                sourceForThumb.recycle();
-            } catch (Throwable ignore) {
+                thumb = Bitmap.createBitmap(small, 0, 0, small.getWidth(), small.getHeight(), m, true);
             }
+            final Bitmap out = thumb;
+            File thumbFile = new File(dir, "thumb.jpg");
+            writeDurably(thumbFile, os -> {
+                if (!out.compress(Bitmap.CompressFormat.JPEG, THUMB_JPEG_QUALITY, os)) {
+                    throw new IOException("JPEG encode failed");
+                }
+            });
+            return thumbFile;
+        } catch (Throwable t) {
+            Log.w(TAG, "Thumbnail failed", t);
+            return null;
+        } finally {
+            recycleIfCopy(thumb, bmp);
+            if (small != thumb) recycleIfCopy(small, bmp);
         }
+    }
 
-        // Persist OCR artifacts
-        String ocrPath = null;
-        String ocrFormat = null;
+    /**
+     * OCR stage: writes text.txt and words.bin.
+     *
+     * @return the preferred OCR file and its format; empty if nothing was written
+     */
+    private static OcrFiles writeOcrArtifacts(File dir, String ocrText, List<RecognizedWord> ocrWords) {
+        OcrFiles res = new OcrFiles();
         try {
             if (ocrText != null && !ocrText.isEmpty()) {
                 File txt = new File(dir, "text.txt");
-                try (FileOutputStream tf = new FileOutputStream(txt)) {
-                    tf.write(ocrText.getBytes(StandardCharsets.UTF_8));
-                    tf.flush();
-                    ocrPath = txt.getAbsolutePath();
-                    ocrFormat = "plain";
-                }
+                writeDurably(txt, out -> out.write(ocrText.getBytes(StandardCharsets.UTF_8)));
+                res.path = txt.getAbsolutePath();
+                res.format = "plain";
             }
             if (ocrWords != null && !ocrWords.isEmpty()) {
-                File wordsFile = new File(dir, "words.json");
-                try (FileOutputStream wos = new FileOutputStream(wordsFile)) {
-                    String json = WordsJson.toWordsJson(ocrWords);
-                    wos.write(json.getBytes(StandardCharsets.UTF_8));
-                    wos.flush();
-                    // Prefer words_json
-                    ocrPath = wordsFile.getAbsolutePath();
-                    ocrFormat = "words_json";
-                }
+                File wordsFile = new File(dir, WordsBinary.FILE_NAME);
+                WordsBinary.write(wordsFile, ocrWords);
+                // Prefer the words file
+                res.path = wordsFile.getAbsolutePath();
+                res.format = WordsBinary.FORMAT;
             }
-        } catch (Throwable ignore) { /* leave as last successful */ }
+        } catch (Throwable t) {
+            Log.w(TAG, "Writing OCR artifacts failed", t); // leave as last successful
+        }
+        return res;
+    }
 
+    /**
+     * Commit stage: runs after all file stages have finished, makes the directory entries durable and
+     * registers the scan.
+     */
+    private static CompletedScan commit(Context appContext, CompletedScan inMemory, File page, File thumb,
+                                        OcrFiles ocr, String ocrText) {
+        syncDirectory(page.getParentFile());
         CompletedScan persisted = new CompletedScan(
-                id,
+                inMemory.id(),
                 page.getAbsolutePath(),
                 inMemory.rotationDeg(),
-                ocrPath,
-                ocrFormat,
-                thumbFile.getAbsolutePath(),
+                ocr.path,
+                ocr.format,
+                thumb != null ? thumb.getAbsolutePath() : null,
                 inMemory.createdAt(),
                 inMemory.widthPx(),
                 inMemory.heightPx(),
@@ -140,9 +302,82 @@ public final class ScanPersister {
         try {
             CompletedScansRegistry reg = CompletedScansRegistry.get(appContext);
             reg.insert(persisted);
+            reg.setOcrText(persisted.id(), ocrText);
         } catch (Exception e) {
             Log.w(TAG, "Registry insert failed", e);
         }
         return persisted;
     }
+
+    /**
+     * Writes {@code target} via a temporary file that is synced before it replaces the target, so the target
+     * is either absent, the old version or complete.
+     */
+    private static void writeDurably(File target, StreamWriter body) throws IOException {
+        File tmp = new File(target.getParentFile(), target.getName() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            body.write(fos);
+            fos.flush();
+            fos.getFD().sync();
+        } catch (IOException | RuntimeException e) {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            throw e;
+        }
+        if (!tmp.renameTo(target)) {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            throw new IOException("Failed to move " + tmp + " to " + target);
+        }
+    }
+
+    /**
+     * Best-effort sync of a directory, so that renames into it survive a crash.
+     */
+    private static void syncDirectory(File dir) {
+        if (dir == null) return;
+        try (FileChannel ch = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (Throwable ignore) {
+        }
+    }
+
+    private static void recycleIfCopy(Bitmap b, Bitmap source) {
+        if (b == null || b == source) return;
+        try {
+            b.recycle();
+        } catch (Throwable ignore) {
+        }
+    }
+
+    private static ExecutorService executor() {
+        ExecutorService local = exec;
+        if (local != null) return local;
+        synchronized (ScanPersister.class) {
+            if (exec == null) {
+                int workers = Math.max(1, Math.min(MAX_WORKERS, Runtime.getRuntime().availableProcessors() - 1));
+                AtomicInteger n = new AtomicInteger();
+                // Admission control keeps the number of queued stages below the capacity
+                ThreadPoolExecutor tpe = new ThreadPoolExecutor(workers, workers, 30, TimeUnit.SECONDS,
+                        new ArrayBlockingQueue<>(MAX_PENDING_SCANS * STAGES_PER_SCAN), r -> {
+                    Thread t = new Thread(r, "scan-persist-" + n.incrementAndGet());
+                    t.setPriority(Thread.NORM_PRIORITY - 1);
+                    return t;
+                });
+                tpe.allowCoreThreadTimeOut(true);
+                exec = tpe;
+            }
+            return exec;
+        }
+    }
+
+    @FunctionalInterface
+    private interface StreamWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    private static final class OcrFiles {
+        String path;
+        String format;
+    }
 }
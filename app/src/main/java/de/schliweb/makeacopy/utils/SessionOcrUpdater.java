@@ -3,6 +3,7 @@ package de.schliweb.makeacopy.utils;
 import android.content.Context;
 import android.util.Log;
 
+import java.io.File;
 import java.util.List;
 
 import de.schliweb.makeacopy.R;
@@ -23,6 +24,65 @@ public final class SessionOcrUpdater {
     private SessionOcrUpdater() {
     }
 
+    /**
+     * Stores an OCR result for a persisted scan: writes text.txt and words.bin into the scan directory,
+     * updates the registry entry to prefer the words and replaces the scan's text in the search index. A scan that was removed from the registry in the
+     * meantime is not re-added.
+     *
+     * @param context any context
+     * @param scan    the persisted scan
+     * @param res     the OCR result
+     * @throws java.io.IOException if the result files cannot be written
+     */
+    public static void persistOcrResult(Context context, CompletedScan scan, OCRHelper.OcrResultWords res) throws java.io.IOException {
+        Context app = context.getApplicationContext();
+        CompletedScansRegistry reg = CompletedScansRegistry.get(app);
+        File dir = new File(app.getFilesDir(), "scans/" + scan.id());
+        File wordsFile = OCRHelper.writeResultFiles(dir, res);
+
+        // Update registry to prefer the words file and index the new text
+        try {
+            CompletedScan updated = reg.update(scan.id(), cur -> new CompletedScan(
+                    cur.id(), cur.filePath(), cur.rotationDeg(), wordsFile.getAbsolutePath(), WordsBinary.FORMAT,
+                    cur.thumbPath(), cur.createdAt(), cur.widthPx(), cur.heightPx(), null));
+            if (updated != null) reg.setOcrText(scan.id(), res != null ? res.text : null);
+        } catch (Throwable e) {
+            Log.w(TAG, "Failed to update OCR entry", e);
+        }
+    }
+
+    /**
+     * Returns the cached OCR result of a persisted scan page recognized with default settings, or null.
+     *
+     * @param context  any context
+     * @param scan     the persisted scan
+     * @param langSpec effective language spec
+     * @return the cached result or null
+     */
+    public static OCRHelper.OcrResultWords lookupCachedOcr(Context context, CompletedScan scan, String langSpec) {
+        if (scan == null || scan.filePath() == null) return null;
+        File page = new File(scan.filePath());
+        File scanDir = new File(context.getApplicationContext().getFilesDir(), "scans/" + scan.id());
+        String key = OcrResultCache.keyFor(page, OCRHelper.defaultCacheSettings(langSpec));
+        return OcrResultCache.get(OcrResultCache.scanCacheDir(scanDir), key);
+    }
+
+    /**
+     * Stores the OCR result of a persisted scan page recognized with default settings in the cache.
+     *
+     * @param context  any context
+     * @param scan     the persisted scan
+     * @param langSpec effective language spec
+     * @param res      the result
+     */
+    public static void storeCachedOcr(Context context, CompletedScan scan, String langSpec, OCRHelper.OcrResultWords res) {
+        if (scan == null || scan.filePath() == null || res == null) return;
+        File page = new File(scan.filePath());
+        File scanDir = new File(context.getApplicationContext().getFilesDir(), "scans/" + scan.id());
+        String key = OcrResultCache.keyFor(page, OCRHelper.defaultCacheSettings(langSpec));
+        OcrResultCache.put(OcrResultCache.scanCacheDir(scanDir), key, res, OcrResultCache.MAX_ENTRIES_PER_SCAN);
+    }
+
     /**
      * Applies the OCR result to the given export session by updating the corresponding
      * page entry with the processed data and notifying the user.
@@ -35,14 +95,7 @@ public final class SessionOcrUpdater {
         if (context == null || sessionVM == null || pageId == null) return;
         try {
             Context app = context.getApplicationContext();
-            CompletedScansRegistry reg = CompletedScansRegistry.get(app);
-            CompletedScan persisted = null;
-            for (CompletedScan e : reg.listAllOrderedByDateDesc()) {
-                if (e != null && pageId.equals(e.id())) {
-                    persisted = e;
-                    break;
-                }
-            }
+            CompletedScan persisted = CompletedScansRegistry.get(app).getById(pageId);
             if (persisted == null) return;
 
             List<CompletedScan> cur = sessionVM.getPages().getValue();
@@ -0,0 +1,415 @@
+package de.schliweb.makeacopy.utils;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.util.Log;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * Extracts the bundled Tesseract traineddata files from the APK assets to {@code filesDir/tessdata}
+ * and keeps a manifest of the available languages.
+ * <p>
+ * - {@link #startBackgroundExtraction(Context)} is called at app start and extracts all bundled languages on
+ * a background thread, beginning with the language that matches the system locale
+ * ({@link OCRUtils#resolveEffectiveLanguage(String)}) so that the first OCR usually finds its data ready.
+ * - {@link #ensureLanguage(Context, String)} is called before engine initialization; it returns immediately
+ * for extracted languages, waits for an extraction that is already running, or extracts on the caller's thread.
+ * - Files are copied with {@link FileChannel#transferFrom}; uncompressed assets are transferred directly from the
+ * APK. Each extraction is verified by comparing the CRC32 of the asset with the CRC32 of the written file.
+ * - The manifest ({@code tessdata/manifest.json}) records the bundled languages with their sizes and checksums
+ * and the APK update time. It makes {@link #getAvailableLanguages(Context)} instant and is rebuilt after app updates.
+ * <p>
+ * This class is not intended to be instantiated.
+ */
+public final class TessDataManager {
+    private static final String TAG = "TessDataManager";
+    private static final String TESSDATA_DIR = "tessdata";
+    private static final String TRAINEDDATA_EXT = ".traineddata";
+    private static final String MANIFEST_NAME = "manifest.json";
+    private static final Gson GSON = new GsonBuilder().create();
+
+    private static final Object LOCK = new Object();
+    private static final Map<String, FutureTask<File>> inFlight = new ConcurrentHashMap<>();
+    private static volatile Manifest manifest;
+    private static ExecutorService extractor;
+
+    private TessDataManager() {
+    }
+
+    /**
+     * Persistent manifest of bundled and extracted languages.
+     */
+    private static final class Manifest {
+        long apkUpdateTime;
+        // Bundled languages in asset order
+        Map<String, Entry> languages = new LinkedHashMap<>();
+    }
+
+    private static final class Entry {
+        long size;        // asset size in bytes, -1 if unknown until extracted
+        long crc32 = -1;  // checksum of the extracted file, -1 while not extracted
+        long extractedMtime;
+    }
+
+    /**
+     * Starts extracting all bundled languages in the background. The language for the current system locale is
+     * extracted first, followed by English and then the remaining languages. Safe to call more than once.
+     *
+     * @param context any context
+     */
+    public static void startBackgroundExtraction(Context context) {
+        final Context app = context.getApplicationContext();
+        synchronized (LOCK) {
+            if (extractor != null) return;
+            extractor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "tessdata-extract");
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            });
+        }
+        extractor.execute(() -> {
+            long t0 = System.nanoTime();
+            Manifest m = manifest(app);
+            LinkedHashSet<String> order = new LinkedHashSet<>();
+            for (String part : OCRUtils.resolveEffectiveLanguage(null).split("\\+")) order.add(part.trim());
+            order.add("eng");
+            order.addAll(m.languages.keySet());
+            int extracted = 0;
+            for (String lang : order) {
+                if (!m.languages.containsKey(lang)) continue;
+                try {
+                    if (!isExtracted(app, lang)) {
+                        ensureLanguage(app, lang);
+                        extracted++;
+                    }
+                } catch (Throwable t) {
+                    Log.w(TAG, "Background extraction failed for " + lang, t);
+                }
+            }
+            Log.i(TAG, "Background extraction done: " + extracted + " language(s) in "
+                    + (System.nanoTime() - t0) / 1_000_000L + " ms");
+        });
+    }
+
+    /**
+     * Makes sure the traineddata of a single language is present in {@code filesDir/tessdata}.
+     * Returns immediately if it is already extracted and verified; otherwise waits for a running
+     * extraction or extracts it on the calling thread.
+     *
+     * @param context any context
+     * @param lang    language code such as "eng"
+     * @return the traineddata file
+     * @throws IOException if the language is not bundled or extraction fails
+     */
+    public static File ensureLanguage(Context context, String lang) throws IOException {
+        final Context app = context.getApplicationContext();
+        File target = targetFile(app, lang);
+        if (isExtracted(app, lang)) return target;
+
+        FutureTask<File> task = new FutureTask<>(() -> extract(app, lang));
+        FutureTask<File> existing = inFlight.putIfAbsent(lang, task);
+        if (existing == null) {
+            try {
+                task.run();
+            } finally {
+                inFlight.remove(lang, task);
+            }
+        } else {
+            task = existing;
+        }
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while extracting " + lang, e);
+        } catch (ExecutionException e) {
+            Throwable c = e.getCause();
+            if (c instanceof IOException) throw (IOException) c;
+            throw new IOException("Extraction failed for " + lang, c);
+        }
+    }
+
+    /**
+     * Returns the available language codes: bundled languages (from the manifest) followed by additional
+     * traineddata files found in {@code filesDir/tessdata}.
+     *
+     * @param context any context
+     * @return language codes; empty if none are found
+     */
+    public static String[] getAvailableLanguages(Context context) {
+        final Context app = context.getApplicationContext();
+        LinkedHashSet<String> langs = new LinkedHashSet<>(manifest(app).languages.keySet());
+        File[] local = tessdataDir(app).listFiles((d, name) -> name.endsWith(TRAINEDDATA_EXT));
+        if (local != null) {
+            for (File f : local) {
+                String n = f.getName();
+                langs.add(n.substring(0, n.length() - TRAINEDDATA_EXT.length()));
+            }
+        }
+        return langs.toArray(new String[0]);
+    }
+
+    /**
+     * @return true if the language is bundled or its traineddata file is present locally
+     */
+    public static boolean isLanguageAvailable(Context context, String lang) {
+        if (lang == null || lang.isEmpty()) return false;
+        final Context app = context.getApplicationContext();
+        if (manifest(app).languages.containsKey(lang)) return true;
+        File f = targetFile(app, lang);
+        return f.exists() && f.length() > 0;
+    }
+
+    /**
+     * @return the size in bytes of the language's traineddata, or -1 if unknown
+     */
+    public static long getLanguageSize(Context context, String lang) {
+        final Context app = context.getApplicationContext();
+        Entry e = manifest(app).languages.get(lang);
+        if (e != null && e.size > 0) return e.size;
+        File f = targetFile(app, lang);
+        return f.exists() ? f.length() : -1L;
+    }
+
+    private static boolean isExtracted(Context app, String lang) {
+        File f = targetFile(app, lang);
+        if (!f.exists() || f.length() == 0) return false;
+        Entry e = manifest(app).languages.get(lang);
+        // Not bundled (e.g. side-loaded): trust the file
+        if (e == null) return true;
+        return e.crc32 >= 0 && e.size == f.length() && e.extractedMtime == f.lastModified();
+    }
+
+    private static File extract(Context app, String lang) throws IOException {
+        File dir = tessdataDir(app);
+        if (!dir.exists() && !dir.mkdirs()) throw new IOException("Failed to create tessdata dir: " + dir);
+        String asset = TESSDATA_DIR + "/" + lang + TRAINEDDATA_EXT;
+        File target = targetFile(app, lang);
+        long t0 = System.nanoTime();
+
+        // Data left by an earlier version without manifest entry: keep it if it matches the asset
+        if (target.exists() && target.length() > 0) {
+            long assetCrc = assetChecksum(app.getAssets(), asset);
+            long fileCrc = fileChecksum(target);
+            if (assetCrc == fileCrc) {
+                record(app, lang, target, fileCrc);
+                Log.d(TAG, "Verified existing " + target.getName());
+                return target;
+            }
+            Log.w(TAG, "Checksum mismatch for existing " + target.getName() + "; extracting again");
+        }
+
+        // Extractions of one language are serialized via inFlight, so a fixed temp name is safe
+        File tmp = new File(dir, lang + TRAINEDDATA_EXT + ".tmp");
+        try {
+            long sourceCrc = copyAsset(app.getAssets(), asset, tmp);
+            long writtenCrc = fileChecksum(tmp);
+            if (sourceCrc != writtenCrc) {
+                throw new IOException("Checksum mismatch after extracting " + asset);
+            }
+            if (!tmp.renameTo(target)) {
+                //noinspection ResultOfMethodCallIgnored
+                target.delete();
+                if (!tmp.renameTo(target)) throw new IOException("Failed to move " + tmp + " to " + target);
+            }
+            record(app, lang, target, writtenCrc);
+            Log.i(TAG, "Extracted " + target.getName() + " (" + target.length() + " bytes) in "
+                    + (System.nanoTime() - t0) / 1_000_000L + " ms");
+            return target;
+        } finally {
+            if (tmp.exists()) //noinspection ResultOfMethodCallIgnored
+                tmp.delete();
+        }
+    }
+
+    /**
+     * Copies an asset into {@code out} and returns the CRC32 of the source bytes. Uncompressed assets are
+     * transferred directly from the APK file; compressed ones are inflated through a channel.
+     */
+    private static long copyAsset(AssetManager assets, String asset, File out) throws IOException {
+        try (AssetFileDescriptor afd = assets.openFd(asset);
+             FileInputStream in = afd.createInputStream();
+             FileOutputStream fos = new FileOutputStream(out)) {
+            FileChannel src = in.getChannel();
+            long start = afd.getStartOffset();
+            long len = afd.getLength();
+            CRC32 crc = new CRC32();
+            MappedByteBuffer mapped = src.map(FileChannel.MapMode.READ_ONLY, start, len);
+            crc.update(mapped);
+            FileChannel dst = fos.getChannel();
+            long pos = 0;
+            src.position(start);
+            while (pos < len) {
+                long n = dst.transferFrom(src, pos, len - pos);
+                if (n <= 0) throw new IOException("Short transfer for " + asset);
+                pos += n;
+            }
+            dst.force(false);
+            return crc.getValue();
+        } catch (FileNotFoundException compressed) {
+            // openFd() fails for compressed assets; inflate instead
+        }
+        try (CheckedInputStream in = new CheckedInputStream(assets.open(asset), new CRC32());
+             ReadableByteChannel src = Channels.newChannel(in);
+             FileOutputStream fos = new FileOutputStream(out)) {
+            FileChannel dst = fos.getChannel();
+            long pos = 0;
+            long n;
+            while ((n = dst.transferFrom(src, pos, 1L << 20)) > 0) pos += n;
+            dst.force(false);
+            return in.getChecksum().getValue();
+        }
+    }
+
+    private static long assetChecksum(AssetManager assets, String asset) throws IOException {
+        try (CheckedInputStream in = new CheckedInputStream(assets.open(asset), new CRC32())) {
+            byte[] buf = new byte[64 * 1024];
+            //noinspection StatementWithEmptyBody
+            while (in.read(buf) != -1) {
+            }
+            return in.getChecksum().getValue();
+        }
+    }
+
+    private static long fileChecksum(File f) throws IOException {
+        try (FileInputStream in = new FileInputStream(f)) {
+            FileChannel ch = in.getChannel();
+            CRC32 crc = new CRC32();
+            crc.update(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+            return crc.getValue();
+        }
+    }
+
+    private static void record(Context app, String lang, File target, long crc) {
+        synchronized (LOCK) {
+            Manifest m = manifest(app);
+            Entry e = m.languages.get(lang);
+            if (e == null) return; // not bundled
+            e.size = target.length();
+            e.crc32 = crc;
+            e.extractedMtime = target.lastModified();
+            saveManifest(app, m);
+        }
+    }
+
+    /**
+     * Returns the manifest, loading it from disk or rebuilding it from the assets if it is missing or was
+     * written by a different APK version.
+     */
+    private static Manifest manifest(Context app) {
+        Manifest m = manifest;
+        if (m != null) return m;
+        synchronized (LOCK) {
+            if (manifest != null) return manifest;
+            long apkTime = apkUpdateTime(app);
+            m = loadManifest(app);
+            if (m == null || m.languages == null || m.apkUpdateTime != apkTime) {
+                m = buildManifest(app, apkTime);
+                saveManifest(app, m);
+            }
+            manifest = m;
+            return m;
+        }
+    }
+
+    private static Manifest buildManifest(Context app, long apkTime) {
+        Manifest m = new Manifest();
+        m.apkUpdateTime = apkTime;
+        AssetManager assets = app.getAssets();
+        try {
+            String[] files = assets.list(TESSDATA_DIR);
+            if (files != null) {
+                for (String f : files) {
+                    if (!f.endsWith(TRAINEDDATA_EXT)) continue;
+                    Entry e = new Entry();
+                    e.size = assetSize(assets, TESSDATA_DIR + "/" + f);
+                    m.languages.put(f.substring(0, f.length() - TRAINEDDATA_EXT.length()), e);
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error listing tessdata assets", e);
+        }
+        Log.i(TAG, "Built tessdata manifest with " + m.languages.size() + " language(s)");
+        return m;
+    }
+
+    private static long assetSize(AssetManager assets, String asset) {
+        try (AssetFileDescriptor afd = assets.openFd(asset)) {
+            return afd.getLength();
+        } catch (IOException compressed) {
+            // Length of compressed assets is only known after inflating; recorded on extraction
+            return -1L;
+        }
+    }
+
+    private static Manifest loadManifest(Context app) {
+        File f = new File(tessdataDir(app), MANIFEST_NAME);
+        if (!f.exists()) return null;
+        try (Reader r = new InputStreamReader(new FileInputStream(f), StandardCharsets.UTF_8)) {
+            return GSON.fromJson(r, Manifest.class);
+        } catch (Throwable t) {
+            Log.w(TAG, "Could not read tessdata manifest", t);
+            return null;
+        }
+    }
+
+    private static void saveManifest(Context app, Manifest m) {
+        File dir = tessdataDir(app);
+        if (!dir.exists() && !dir.mkdirs()) return;
+        File tmp = new File(dir, MANIFEST_NAME + ".tmp");
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            GSON.toJson(m, w);
+        } catch (Throwable t) {
+            Log.w(TAG, "Could not write tessdata manifest", t);
+            return;
+        }
+        if (!tmp.renameTo(new File(dir, MANIFEST_NAME))) {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+        }
+    }
+
+    private static long apkUpdateTime(Context app) {
+        try {
+            return app.getPackageManager().getPackageInfo(app.getPackageName(), 0).lastUpdateTime;
+        } catch (Throwable t) {
+            return 0L;
+        }
+    }
+
+    private static File tessdataDir(Context app) {
+        return new File(app.getFilesDir(), TESSDATA_DIR);
+    }
+
+    private static File targetFile(Context app, String lang) {
+        return new File(tessdataDir(app), lang + TRAINEDDATA_EXT);
+    }
+}
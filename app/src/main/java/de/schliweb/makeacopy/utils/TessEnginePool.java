@@ -0,0 +1,335 @@
+package de.schliweb.makeacopy.utils;
+
+import android.content.Context;
+import android.util.Log;
+import com.googlecode.tesseract.android.TessBaseAPI;
+import de.schliweb.makeacopy.services.CacheCleanupService;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide pool of initialized Tesseract engines, keyed by data path and language spec (e.g. "deu+eng").
+ * <p>
+ * {@link TessBaseAPI#init} loads the traineddata of every language in the spec, which takes hundreds of
+ * milliseconds to seconds and tens of MB per language. The pool keeps released engines warm so that
+ * subsequent OCR runs with the same languages can start immediately:
+ * <ul>
+ *     <li>{@link #acquire} leases an idle engine or initializes a new one; a leased engine is used by
+ *     exactly one caller until {@link Lease#close()} returns it.</li>
+ *     <li>Engines are created with the adaptive classifier disabled ({@code classify_enable_learning=0}), so
+ *     recognition never depends on pages seen by earlier leases.</li>
+ *     <li>On return the engine is reset with {@link TessBaseAPI#clear()}. Callers re-apply the
+ *     {@link #MANAGED_VARIABLES} (and the page segmentation mode) after acquiring; an engine on which any
+ *     other variable was set through {@link Lease#setVariable} is recycled instead of reused, so no
+ *     configuration leaks between users.</li>
+ *     <li>Idle engines are recycled after {@link #IDLE_TIMEOUT_MS}, when more than {@link #MAX_IDLE_ENGINES}
+ *     are idle, after {@link #MAX_RUNS_PER_ENGINE} leases, and immediately when the heap is under pressure
+ *     as reported by {@link CacheCleanupService#isMemoryUsageHighStatic(Context)}.</li>
+ * </ul>
+ * <p>
+ * This class is not intended to be instantiated.
+ */
+public final class TessEnginePool {
+    private static final String TAG = "TessEnginePool";
+
+    /**
+     * Idle engines unused for this long are recycled.
+     */
+    static final long IDLE_TIMEOUT_MS = 90_000L;
+
+    /**
+     * Maximum number of idle engines kept across all language specs.
+     */
+    static final int MAX_IDLE_ENGINES = 2;
+
+    /**
+     * Engines are recycled after this many leases to bound native heap growth.
+     */
+    static final int MAX_RUNS_PER_ENGINE = 64;
+
+    /**
+     * Variables that every lessee sets after acquiring (see {@code OCRHelper#applyDefaults}); changing them
+     * does not prevent reuse.
+     */
+    static final Set<String> MANAGED_VARIABLES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "user_defined_dpi", "preserve_interword_spaces", "tessedit_char_whitelist", "classify_enable_learning")));
+
+    private static final Object LOCK = new Object();
+    private static final Map<String, ArrayDeque<Engine>> idle = new HashMap<>();
+    private static int idleCount = 0;
+    private static ScheduledExecutorService sweeper;
+    private static boolean sweepPending = false;
+    private static Context appContext;
+
+    private static final AtomicLong created = new AtomicLong();
+    private static final AtomicLong reused = new AtomicLong();
+
+    private TessEnginePool() {
+    }
+
+    private static final class Engine {
+        final String key;
+        final String languageSpec;
+        final TessBaseAPI api;
+        int runs;
+        long idleSinceMs;
+        boolean customized; // a variable outside MANAGED_VARIABLES was set
+
+        Engine(String key, String languageSpec, TessBaseAPI api) {
+            this.key = key;
+            this.languageSpec = languageSpec;
+            this.api = api;
+        }
+    }
+
+    /**
+     * Exclusive use of a pooled engine. Close the lease from the thread that used the engine once OCR is done.
+     */
+    public static final class Lease implements AutoCloseable {
+        private Engine engine;
+
+        private Lease(Engine engine) {
+            this.engine = engine;
+        }
+
+        /**
+         * @return the leased engine; must not be used after {@link #close()}
+         */
+        public TessBaseAPI api() {
+            Engine e = engine;
+            if (e == null) throw new IllegalStateException("lease already closed");
+            return e.api;
+        }
+
+        /**
+         * @return the language spec the engine was initialized with
+         */
+        public String languageSpec() {
+            Engine e = engine;
+            return e != null ? e.languageSpec : null;
+        }
+
+        /**
+         * Sets a Tesseract variable on the leased engine. Setting a variable outside {@link #MANAGED_VARIABLES}
+         * marks the engine as customized, so it is recycled on return instead of being handed to another user.
+         *
+         * @return the result of {@link TessBaseAPI#setVariable}
+         */
+        public boolean setVariable(String var, String value) {
+            Engine e = engine;
+            if (e == null) throw new IllegalStateException("lease already closed");
+            if (!MANAGED_VARIABLES.contains(var)) e.customized = true;
+            return e.api.setVariable(var, value);
+        }
+
+        /**
+         * Returns the engine to the pool. Idempotent.
+         */
+        @Override
+        public void close() {
+            Engine e = engine;
+            engine = null;
+            if (e != null) release(e, true);
+        }
+
+        /**
+         * Recycles the engine instead of returning it, e.g. after a native error left it in an unknown state.
+         */
+        public void discard() {
+            Engine e = engine;
+            engine = null;
+            if (e != null) release(e, false);
+        }
+    }
+
+    /**
+     * Leases an engine initialized for {@code languageSpec}, reusing an idle one if available.
+     * The traineddata files must already be present under {@code dataPath}/tessdata.
+     *
+     * @param context      any context; used for memory-pressure checks
+     * @param dataPath     Tesseract data path (parent of the tessdata directory)
+     * @param languageSpec language spec such as "eng" or "deu+eng"
+     * @return the lease, or null if the engine could not be initialized
+     */
+    public static Lease acquire(Context context, String dataPath, String languageSpec) {
+        if (context != null && appContext == null) appContext = context.getApplicationContext();
+        final String key = dataPath + "|" + languageSpec;
+        synchronized (LOCK) {
+            ArrayDeque<Engine> q = idle.get(key);
+            Engine e = (q != null) ? q.pollLast() : null;
+            if (e != null) {
+                idleCount--;
+                if (q.isEmpty()) idle.remove(key);
+                e.runs++;
+                reused.incrementAndGet();
+                Log.d(TAG, "Reusing warm engine lang=" + languageSpec + " runs=" + e.runs);
+                return new Lease(e);
+            }
+        }
+        long t0 = System.nanoTime();
+        TessBaseAPI api = new TessBaseAPI();
+        boolean ok;
+        try {
+            ok = api.init(dataPath, languageSpec);
+        } catch (Throwable t) {
+            Log.e(TAG, "Tesseract init threw for lang=" + languageSpec, t);
+            ok = false;
+        }
+        if (!ok) {
+            recycleQuietly(api);
+            return null;
+        }
+        try {
+            // No adaptation to earlier pages: results depend only on the input and the variables
+            api.setVariable("classify_enable_learning", "0");
+        } catch (Throwable t) {
+            Log.w(TAG, "Could not disable adaptive learning", t);
+        }
+        created.incrementAndGet();
+        Log.i(TAG, "Initialized engine lang=" + languageSpec + " in " + (System.nanoTime() - t0) / 1_000_000L + " ms");
+        Engine e = new Engine(key, languageSpec, api);
+        e.runs = 1;
+        return new Lease(e);
+    }
+
+    private static void release(Engine e, boolean reusable) {
+        try {
+            e.api.clear();
+        } catch (Throwable t) {
+            reusable = false;
+        }
+        if (reusable && e.customized) {
+            Log.d(TAG, "Engine has custom variables; not keeping engine lang=" + e.languageSpec);
+            reusable = false;
+        }
+        if (reusable && e.runs >= MAX_RUNS_PER_ENGINE) reusable = false;
+        if (reusable && appContext != null && CacheCleanupService.isMemoryUsageHighStatic(appContext)) {
+            Log.d(TAG, "Memory usage high; not keeping engine lang=" + e.languageSpec);
+            reusable = false;
+        }
+        if (!reusable) {
+            recycleQuietly(e.api);
+            return;
+        }
+        List<Engine> evicted = new ArrayList<>();
+        synchronized (LOCK) {
+            e.idleSinceMs = System.currentTimeMillis();
+            idle.computeIfAbsent(e.key, k -> new ArrayDeque<>()).addLast(e);
+            idleCount++;
+            while (idleCount > MAX_IDLE_ENGINES) {
+                Engine oldest = pollOldestLocked();
+                if (oldest == null) break;
+                evicted.add(oldest);
+            }
+            scheduleSweepLocked();
+        }
+        for (Engine old : evicted) recycleQuietly(old.api);
+    }
+
+    /**
+     * Recycles all idle engines. Leased engines are unaffected and are recycled on return if memory is still high.
+     *
+     * @return the number of recycled engines
+     */
+    public static int releaseIdle() {
+        return trimIdle(0);
+    }
+
+    /**
+     * Recycles idle engines that have not been used for at least {@code minIdleMs}.
+     */
+    static int trimIdle(long minIdleMs) {
+        List<Engine> victims = new ArrayList<>();
+        long cutoff = System.currentTimeMillis() - minIdleMs;
+        synchronized (LOCK) {
+            Iterator<Map.Entry<String, ArrayDeque<Engine>>> it = idle.entrySet().iterator();
+            while (it.hasNext()) {
+                ArrayDeque<Engine> q = it.next().getValue();
+                Iterator<Engine> qi = q.iterator();
+                while (qi.hasNext()) {
+                    Engine e = qi.next();
+                    if (e.idleSinceMs <= cutoff) {
+                        qi.remove();
+                        idleCount--;
+                        victims.add(e);
+                    }
+                }
+                if (q.isEmpty()) it.remove();
+            }
+            if (idleCount > 0) scheduleSweepLocked();
+        }
+        for (Engine e : victims) recycleQuietly(e.api);
+        if (!victims.isEmpty()) Log.i(TAG, "Released " + victims.size() + " idle engine(s)");
+        return victims.size();
+    }
+
+    /**
+     * @return number of engines initialized since process start
+     */
+    public static long getCreatedCount() {
+        return created.get();
+    }
+
+    /**
+     * @return number of leases served by an already warm engine since process start
+     */
+    public static long getReusedCount() {
+        return reused.get();
+    }
+
+    private static Engine pollOldestLocked() {
+        String oldestKey = null;
+        Engine oldest = null;
+        for (Map.Entry<String, ArrayDeque<Engine>> en : idle.entrySet()) {
+            Engine first = en.getValue().peekFirst();
+            if (first != null && (oldest == null || first.idleSinceMs < oldest.idleSinceMs)) {
+                oldest = first;
+                oldestKey = en.getKey();
+            }
+        }
+        if (oldest == null) return null;
+        ArrayDeque<Engine> q = idle.get(oldestKey);
+        q.pollFirst();
+        if (q.isEmpty()) idle.remove(oldestKey);
+        idleCount--;
+        return oldest;
+    }
+
+    private static void scheduleSweepLocked() {
+        if (sweeper == null) {
+            sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "tess-pool-sweeper");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        if (sweepPending) return;
+        sweepPending = true;
+        sweeper.schedule(() -> {
+            synchronized (LOCK) {
+                sweepPending = false;
+            }
+            trimIdle(IDLE_TIMEOUT_MS);
+        }, IDLE_TIMEOUT_MS + 1_000L, TimeUnit.MILLISECONDS);
+    }
+
+    private static void recycleQuietly(TessBaseAPI api) {
+        try {
+            api.recycle();
+        } catch (Throwable ignore) {
+        }
+    }
+}
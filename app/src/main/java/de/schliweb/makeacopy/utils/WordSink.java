@@ -0,0 +1,16 @@
+package de.schliweb.makeacopy.utils;
+
+import java.io.IOException;
+
+/**
+ * Receives OCR words one at a time from a streaming parser or reader, so that large pages can be
+ * processed without materializing the full word list.
+ */
+@FunctionalInterface
+public interface WordSink {
+    /**
+     * @param word the next word in input order
+     * @throws IOException if the consumer fails; parsers stop and propagate the exception
+     */
+    void accept(RecognizedWord word) throws IOException;
+}
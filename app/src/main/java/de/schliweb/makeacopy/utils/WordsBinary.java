@@ -0,0 +1,419 @@
+package de.schliweb.makeacopy.utils;
+
+import android.graphics.RectF;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary format for OCR words ("words_bin"), the default on-disk format for per-page OCR words.
+ * <p>
+ * Layout (little-endian):
+ * <pre>
+ * header   magic "MWRD" (int), version (short), flags (short), wordCount (int), stringCount (int),
+ *          recordsOffset (int), stringOffsetsOffset (int), stringDataOffset (int), stringDataLength (int)
+ * records  wordCount fixed-width records: stringIndex (int), left/top/right/bottom, confidence (ushort, 0..65535)
+ *          boxes are ushort if {@link #FLAG_SHORT_BOXES} is set (integral pixel coordinates below 65536),
+ *          float otherwise; records are padded to a multiple of 4 bytes
+ * strings  stringCount+1 offsets (int) into the UTF-8 string data; identical word texts share one entry
+ * </pre>
+ * {@link #open(File)} maps the file read-only and decodes words lazily on access, so loading a page with
+ * thousands of words costs one mmap and no per-word allocation until the words are used.
+ * <p>
+ * Older scans store their words as JSON ("words_json", see {@link WordsJson}); {@link #load(File)} reads both.
+ * JSON remains the import/export format.
+ * <p>
+ * This class is not intended to be instantiated.
+ */
+public final class WordsBinary {
+    private static final String TAG = "WordsBinary";
+
+    /**
+     * Value of {@code ocrFormat} for scans whose words are stored in this format.
+     */
+    public static final String FORMAT = "words_bin";
+
+    /**
+     * Value of {@code ocrFormat} for scans whose words are stored as JSON.
+     */
+    public static final String FORMAT_JSON = "words_json";
+
+    /**
+     * File name of the words file inside a scan directory.
+     */
+    public static final String FILE_NAME = "words.bin";
+
+    static final int MAGIC = 0x4452574D; // "MWRD" little-endian
+    static final short VERSION = 1;
+    static final short FLAG_SHORT_BOXES = 1;
+    private static final int HEADER_SIZE = 32;
+
+    private WordsBinary() {
+    }
+
+    /**
+     * @return true if {@code format} denotes a words file (binary or JSON)
+     */
+    public static boolean isWordsFormat(String format) {
+        return FORMAT.equalsIgnoreCase(format) || FORMAT_JSON.equalsIgnoreCase(format);
+    }
+
+    /**
+     * Loads a words file in either format; the format is detected from the file content.
+     *
+     * @param file words.bin or words.json
+     * @return the words (possibly empty)
+     * @throws IOException if the file cannot be read
+     */
+    public static List<RecognizedWord> load(File file) throws IOException {
+        if (isBinary(file)) {
+            return open(file).toList();
+        }
+        return WordsJson.parseFile(file);
+    }
+
+    /**
+     * Streams the words of a file in either format to {@code sink} in stored order, decoding one word at a
+     * time. An unreadable or corrupt file yields no words (or only those before the damage).
+     *
+     * @param file words.bin or words.json
+     * @param sink receives the words
+     * @return the number of emitted words
+     * @throws IOException only if the sink throws
+     */
+    public static int forEach(File file, WordSink sink) throws IOException {
+        boolean binary;
+        try {
+            binary = isBinary(file);
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot read " + file.getName() + ": " + e.getMessage());
+            return 0;
+        }
+        if (!binary) {
+            java.io.Reader in;
+            try {
+                in = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                Log.w(TAG, "Cannot read " + file.getName() + ": " + e.getMessage());
+                return 0;
+            }
+            try (in) {
+                return WordsJson.parse(in, sink);
+            }
+        }
+        Reader r;
+        try {
+            r = open(file);
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot read " + file.getName() + ": " + e.getMessage());
+            return 0;
+        }
+        int n = 0;
+        for (int i = 0; i < r.size(); i++) {
+            RecognizedWord w;
+            try {
+                w = r.word(i);
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Corrupt word " + i + " in " + file.getName() + ": " + e.getMessage());
+                break;
+            }
+            sink.accept(w);
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Writes {@code words} to {@code file} atomically (temp file + rename).
+     *
+     * @param file  target file
+     * @param words the words; null is written as an empty list
+     * @throws IOException if writing fails
+     */
+    public static void write(File file, List<RecognizedWord> words) throws IOException {
+        byte[] data = encode(words);
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            fos.write(data);
+            fos.flush();
+            try {
+                fos.getFD().sync();
+            } catch (Throwable ignore) {
+            }
+        }
+        if (!tmp.renameTo(file)) {
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+            if (!tmp.renameTo(file)) {
+                //noinspection ResultOfMethodCallIgnored
+                tmp.delete();
+                throw new IOException("Failed to move " + tmp + " to " + file);
+            }
+        }
+    }
+
+    /**
+     * Encodes words in the words.bin layout, e.g. for embedding in another file; read back with {@link #wrap}.
+     *
+     * @param words the words; null is encoded as an empty list
+     * @return the encoded content
+     */
+    public static byte[] encode(List<RecognizedWord> words) {
+        int n = words != null ? words.size() : 0;
+        String[] texts = new String[n];
+        float[] boxes = new float[n * 4];
+        float[] conf = new float[n];
+        for (int i = 0; i < n; i++) {
+            RecognizedWord w = words.get(i);
+            RectF b = w.getBoundingBox();
+            texts[i] = w.getText();
+            boxes[i * 4] = b.left;
+            boxes[i * 4 + 1] = b.top;
+            boxes[i * 4 + 2] = b.right;
+            boxes[i * 4 + 3] = b.bottom;
+            conf[i] = w.getConfidence();
+        }
+        return encode(texts, boxes, conf);
+    }
+
+    /**
+     * Encodes words given as parallel arrays.
+     *
+     * @param texts word texts
+     * @param boxes left, top, right, bottom per word
+     * @param conf  confidence per word, either in [0,1] or as Tesseract's 0..100 (see {@link #normalizeConfidence})
+     * @return the encoded file content
+     */
+    static byte[] encode(String[] texts, float[] boxes, float[] conf) {
+        int n = texts.length;
+        // String table with de-duplication
+        Map<String, Integer> index = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        int[] stringIdx = new int[n];
+        int stringBytes = 0;
+        for (int i = 0; i < n; i++) {
+            String t = texts[i] != null ? texts[i] : "";
+            Integer idx = index.get(t);
+            if (idx == null) {
+                byte[] b = t.getBytes(StandardCharsets.UTF_8);
+                idx = strings.size();
+                index.put(t, idx);
+                strings.add(b);
+                stringBytes += b.length;
+            }
+            stringIdx[i] = idx;
+        }
+        boolean shortBoxes = true;
+        for (float v : boxes) {
+            if (v < 0f || v > 65535f || v != Math.rint(v)) {
+                shortBoxes = false;
+                break;
+            }
+        }
+        int recordSize = recordSize(shortBoxes);
+        int recordsOffset = HEADER_SIZE;
+        int offsetsOffset = recordsOffset + n * recordSize;
+        int dataOffset = offsetsOffset + (strings.size() + 1) * 4;
+
+        ByteBuffer buf = ByteBuffer.allocate(dataOffset + stringBytes).order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(MAGIC);
+        buf.putShort(VERSION);
+        buf.putShort(shortBoxes ? FLAG_SHORT_BOXES : 0);
+        buf.putInt(n);
+        buf.putInt(strings.size());
+        buf.putInt(recordsOffset);
+        buf.putInt(offsetsOffset);
+        buf.putInt(dataOffset);
+        buf.putInt(stringBytes);
+        for (int i = 0; i < n; i++) {
+            int pos = recordsOffset + i * recordSize;
+            buf.position(pos);
+            buf.putInt(stringIdx[i]);
+            for (int k = 0; k < 4; k++) {
+                float v = boxes[i * 4 + k];
+                if (shortBoxes) buf.putShort((short) (int) v);
+                else buf.putFloat(v);
+            }
+            buf.putShort((short) Math.round(normalizeConfidence(conf[i]) * 65535f));
+        }
+        buf.position(offsetsOffset);
+        int off = 0;
+        for (byte[] s : strings) {
+            buf.putInt(off);
+            off += s.length;
+        }
+        buf.putInt(off);
+        for (byte[] s : strings) buf.put(s);
+        return buf.array();
+    }
+
+    /**
+     * Maps a confidence to [0,1]. Values above 1 are taken as Tesseract's 0..100 scale, as
+     * {@link WordsJson} does when reading.
+     */
+    static float normalizeConfidence(float v) {
+        if (Float.isNaN(v) || Float.isInfinite(v)) return 0f;
+        if (v > 1f) v = v / 100f;
+        return Math.max(0f, Math.min(1f, v));
+    }
+
+    /**
+     * Maps a words.bin file read-only.
+     *
+     * @param file the file
+     * @return a reader over the mapped content
+     * @throws IOException if the file cannot be mapped or is not a valid words file
+     */
+    public static Reader open(File file) throws IOException {
+        try (FileInputStream in = new FileInputStream(file)) {
+            FileChannel ch = in.getChannel();
+            // The mapping stays valid after the channel is closed
+            return wrap(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+        }
+    }
+
+    /**
+     * Wraps encoded words without copying.
+     *
+     * @param data encoded words, e.g. from {@link #encode}
+     * @return a reader over {@code data}
+     * @throws IOException if {@code data} is not a valid words file
+     */
+    public static Reader wrap(ByteBuffer data) throws IOException {
+        return new Reader(data.duplicate().order(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    private static boolean isBinary(File file) throws IOException {
+        try (FileInputStream in = new FileInputStream(file)) {
+            byte[] head = new byte[4];
+            if (in.read(head) != 4) return false;
+            int magic = (head[0] & 0xFF) | (head[1] & 0xFF) << 8 | (head[2] & 0xFF) << 16 | (head[3] & 0xFF) << 24;
+            return magic == MAGIC;
+        }
+    }
+
+    private static int recordSize(boolean shortBoxes) {
+        // stringIndex + 4 coordinates + confidence, padded to 4 bytes
+        int raw = 4 + (shortBoxes ? 2 : 4) * 4 + 2;
+        return (raw + 3) & ~3;
+    }
+
+    /**
+     * Random access to the words of an encoded file. Accessors decode on demand; the reader holds no
+     * per-word state. Not thread-safe for concurrent text decoding.
+     */
+    public static final class Reader {
+        private final ByteBuffer buf;
+        private final int count;
+        private final boolean shortBoxes;
+        private final int recordSize;
+        private final int recordsOffset;
+        private final int offsetsOffset;
+        private final int dataOffset;
+        private final int stringCount;
+
+        private Reader(ByteBuffer buf) throws IOException {
+            if (buf.limit() < HEADER_SIZE || buf.getInt(0) != MAGIC) throw new IOException("Not a words file");
+            int version = buf.getShort(4);
+            if (version != VERSION) throw new IOException("Unsupported words file version " + version);
+            this.buf = buf;
+            this.shortBoxes = (buf.getShort(6) & FLAG_SHORT_BOXES) != 0;
+            this.count = buf.getInt(8);
+            this.stringCount = buf.getInt(12);
+            this.recordsOffset = buf.getInt(16);
+            this.offsetsOffset = buf.getInt(20);
+            this.dataOffset = buf.getInt(24);
+            int dataLength = buf.getInt(28);
+            this.recordSize = recordSize(shortBoxes);
+            long end = (long) dataOffset + dataLength;
+            if (count < 0 || stringCount < 0 || end > buf.limit()
+                    || (long) recordsOffset + (long) count * recordSize > offsetsOffset
+                    || (long) offsetsOffset + (stringCount + 1L) * 4 > dataOffset) {
+                throw new IOException("Corrupt words file");
+            }
+        }
+
+        /**
+         * @return number of words
+         */
+        public int size() {
+            return count;
+        }
+
+        public String text(int i) {
+            int s = buf.getInt(record(i));
+            if (s < 0 || s >= stringCount) return "";
+            int from = buf.getInt(offsetsOffset + s * 4);
+            int to = buf.getInt(offsetsOffset + (s + 1) * 4);
+            byte[] b = new byte[Math.max(0, to - from)];
+            ByteBuffer d = buf.duplicate();
+            d.position(dataOffset + from);
+            d.get(b);
+            return new String(b, StandardCharsets.UTF_8);
+        }
+
+        public float left(int i) {
+            return coord(i, 0);
+        }
+
+        public float top(int i) {
+            return coord(i, 1);
+        }
+
+        public float right(int i) {
+            return coord(i, 2);
+        }
+
+        public float bottom(int i) {
+            return coord(i, 3);
+        }
+
+        /**
+         * @return confidence in [0,1]
+         */
+        public float confidence(int i) {
+            int p = record(i) + 4 + (shortBoxes ? 8 : 16);
+            return (buf.getShort(p) & 0xFFFF) / 65535f;
+        }
+
+        /**
+         * @return word {@code i} as a {@link RecognizedWord}
+         */
+        public RecognizedWord word(int i) {
+            return new RecognizedWord(text(i), new RectF(left(i), top(i), right(i), bottom(i)), confidence(i));
+        }
+
+        /**
+         * @return all words as a list
+         */
+        public List<RecognizedWord> toList() {
+            List<RecognizedWord> out = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) out.add(word(i));
+            return out;
+        }
+
+        private int record(int i) {
+            if (i < 0 || i >= count) throw new IndexOutOfBoundsException("word " + i + " of " + count);
+            return recordsOffset + i * recordSize;
+        }
+
+        private float coord(int i, int k) {
+            int p = record(i) + 4;
+            if (shortBoxes) return buf.getShort(p + k * 2) & 0xFFFF;
+            return buf.getFloat(p + k * 4);
+        }
+    }
+}
@@ -2,14 +2,23 @@ package de.schliweb.makeacopy.utils;
 
 import android.graphics.RectF;
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 
 /**
  * Utility to parse a compact JSON representation of OCR words ("words_json")
@@ -22,7 +31,7 @@ import java.util.Locale;
  * ]
  * <p>
  * Tolerant variants supported (best-effort):
- * - Root can be an array or an object wrapping the array under one of: "words", "data", "items".
+ * - Root can be an array or an object wrapping the array under one of: "words", "data", "items", "list", "result".
  * - Bounding boxes:
  * - Flat fields: left/top/right/bottom (numbers or numeric strings).
  * - bbox object with left/top/right/bottom or short l/t/r/b.
@@ -31,71 +40,121 @@ import java.util.Locale;
  * - xmin/xmax/ymin/ymax.
  * - Confidence can be 0..1 or 0..100 (int/float/string). Values are clamped to [0,1].
  * - Malformed entries are skipped; parser never throws.
+ * <p>
+ * {@link #parse(Reader, WordSink)} streams the words without building the full JSON tree or word list.
  */
 public final class WordsJson {
     private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+    // Container keys of an object root that wraps the word array
+    private static final Set<String> CONTAINER_KEYS = new HashSet<>(Arrays.asList("words", "data", "items", "list", "result"));
 
     private WordsJson() {
     }
 
     public static List<RecognizedWord> parseFile(File file) throws IOException {
-        byte[] data;
-        try (FileInputStream fis = new FileInputStream(file)) {
-            data = readAllBytesCompat(fis);
+        List<RecognizedWord> out = new ArrayList<>();
+        try (Reader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            parse(in, out::add);
         }
-        String json = new String(data, StandardCharsets.UTF_8);
-        return parse(json);
+        return out;
     }
 
     public static List<RecognizedWord> parse(String json) {
         List<RecognizedWord> out = new ArrayList<>();
+        if (json == null) return out;
         try {
-            JsonElement root = com.google.gson.JsonParser.parseString(json);
-            JsonArray arr = extractArrayRoot(root);
-            if (arr == null) return out;
-            for (JsonElement el : arr) {
-                if (el == null || !el.isJsonObject()) continue;
-                JsonObject o = el.getAsJsonObject();
-                String text = optString(o, "text", "");
-                float conf = normalizeConfidence(optNumber(o, "confidence", null));
-
-                RectF rect = extractRect(o);
-                if (rect == null) continue; // skip if no rectangle found
-
-                try {
-                    RecognizedWord w = new RecognizedWord(text, rect, conf);
-                    out.add(w);
-                } catch (Throwable ignore) {
-                    // skip malformed item
-                }
-            }
+            parse(new StringReader(json), out::add);
         } catch (Throwable ignore) {
             // return partially parsed results (possibly empty)
         }
         return out;
     }
 
-    // ---- tolerant extraction helpers ----
-
-    private static JsonArray extractArrayRoot(JsonElement root) {
+    /**
+     * Streaming variant of {@link #parse(String)}: reads the input with a {@link JsonReader} and passes each
+     * word to {@code sink} as soon as its object has been read. Only one word object is held in memory at a
+     * time. Malformed entries are skipped; malformed JSON ends parsing, keeping the words emitted so far.
+     *
+     * @param in   JSON input; not closed
+     * @param sink receives the words in input order
+     * @return the number of emitted words
+     * @throws IOException only if the sink throws
+     */
+    public static int parse(Reader in, WordSink sink) throws IOException {
+        int count = 0;
         try {
-            if (root == null || root.isJsonNull()) return null;
-            if (root.isJsonArray()) return root.getAsJsonArray();
-            if (root.isJsonObject()) {
-                JsonObject obj = root.getAsJsonObject();
-                // common container keys
-                String[] keys = {"words", "data", "items", "list"};
-                for (String k : keys) {
-                    if (obj.has(k) && obj.get(k).isJsonArray()) return obj.getAsJsonArray(k);
+            JsonReader reader = new JsonReader(in);
+            reader.setStrictness(Strictness.LENIENT);
+            if (!seekArrayRoot(reader)) return 0;
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                    reader.skipValue();
+                    continue;
+                }
+                JsonElement el = JsonParser.parseReader(reader);
+                RecognizedWord w = toWord(el.getAsJsonObject());
+                if (w == null) continue;
+                try {
+                    sink.accept(w);
+                } catch (IOException e) {
+                    throw new SinkException(e);
                 }
-                // sometimes payload is directly under "result" or similar
-                if (obj.has("result") && obj.get("result").isJsonArray()) return obj.getAsJsonArray("result");
+                count++;
             }
+        } catch (SinkException e) {
+            throw e.getCause();
         } catch (Throwable ignore) {
+            // keep words emitted so far
         }
-        return null;
+        return count;
     }
 
+    private static RecognizedWord toWord(JsonObject o) {
+        String text = optString(o, "text", "");
+        float conf = normalizeConfidence(optNumber(o, "confidence", null));
+        RectF rect = extractRect(o);
+        if (rect == null) return null; // skip if no rectangle found
+        try {
+            return new RecognizedWord(text, rect, conf);
+        } catch (Throwable ignore) {
+            return null; // skip malformed item
+        }
+    }
+
+    /**
+     * Positions {@code reader} before the word array: the root itself, or the first array under one of the
+     * container keys of an object root.
+     */
+    private static boolean seekArrayRoot(JsonReader reader) throws IOException {
+        JsonToken root = reader.peek();
+        if (root == JsonToken.BEGIN_ARRAY) return true;
+        if (root != JsonToken.BEGIN_OBJECT) return false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (CONTAINER_KEYS.contains(name) && reader.peek() == JsonToken.BEGIN_ARRAY) return true;
+            reader.skipValue();
+        }
+        return false;
+    }
+
+    /**
+     * Carries an exception thrown by the sink through the tolerant parsing loop.
+     */
+    private static final class SinkException extends RuntimeException {
+        SinkException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+    // ---- tolerant extraction helpers ----
+
     private static RectF extractRect(JsonObject o) {
         try {
             // 1) Flat left/top/right/bottom
@@ -253,16 +312,6 @@ public final class WordsJson {
         return !Float.isNaN(f) && !Float.isInfinite(f);
     }
 
-    private static byte[] readAllBytesCompat(FileInputStream fis) throws IOException {
-        byte[] buffer = new byte[8192];
-        int read;
-        java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
-        while ((read = fis.read(buffer)) != -1) {
-            baos.write(buffer, 0, read);
-        }
-        return baos.toByteArray();
-    }
-
     public static String toWordsJson(List<RecognizedWord> words) {
         StringBuilder sb = new StringBuilder();
         sb.append('[');
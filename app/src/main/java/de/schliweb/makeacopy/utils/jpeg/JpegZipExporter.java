@@ -0,0 +1,263 @@
+package de.schliweb.makeacopy.utils.jpeg;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.util.Log;
+import androidx.annotation.Nullable;
+import de.schliweb.makeacopy.utils.DerivedPageCache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Multi-page JPEG export into a ZIP archive.
+ * <p>
+ * Pages are decoded, rotated and encoded via {@link JpegExporter#exportToStream} on a small worker pool,
+ * each into its own in-memory buffer. The calling thread writes the finished buffers in page order as
+ * {@link ZipEntry#STORED} entries with a precomputed CRC32. JPEG data does not shrink under DEFLATE, so
+ * storing it saves the compression pass entirely. At most {@code workers + 1} encoded pages are held in
+ * memory at a time; the archive itself is streamed to the target and never buffered as a whole.
+ * <p>
+ * The number of workers is bounded by the available cores and by the heap, estimated from the size
+ * of the first page, so that large pages on low-memory devices fall back to sequential processing.
+ * File-backed pages go through the {@link DerivedPageCache}.
+ * <p>
+ * This class is not intended to be instantiated.
+ */
+public final class JpegZipExporter {
+
+    private static final String TAG = "JpegZipExporter";
+
+    private static final int MAX_WORKERS = 4;
+
+    /**
+     * Receives progress updates on the writing thread.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * @param writtenPages number of entries written so far
+         * @param totalPages   total number of pages
+         */
+        void onPageWritten(int writtenPages, int totalPages);
+    }
+
+    /**
+     * A single page to export, backed either by a file or by an in-memory bitmap.
+     */
+    public static final class Page {
+        @Nullable
+        final String filePath;
+        @Nullable
+        final Bitmap bitmap;
+        final int rotationDeg;
+
+        private Page(String filePath, Bitmap bitmap, int rotationDeg) {
+            this.filePath = filePath;
+            this.bitmap = bitmap;
+            this.rotationDeg = ((rotationDeg % 360) + 360) % 360;
+        }
+
+        /**
+         * A page decoded from {@code filePath} when it is processed.
+         */
+        public static Page ofFile(String filePath, int rotationDeg) {
+            return new Page(filePath, null, rotationDeg);
+        }
+
+        /**
+         * A page backed by a bitmap owned by the caller; it is never recycled by the exporter.
+         */
+        public static Page ofBitmap(Bitmap bitmap, int rotationDeg) {
+            return new Page(null, bitmap, rotationDeg);
+        }
+    }
+
+    /**
+     * An encoded page ready to be stored.
+     */
+    private static final class EncodedPage {
+        final byte[] data;
+        final long crc;
+
+        EncodedPage(byte[] data) {
+            this.data = data;
+            CRC32 crc32 = new CRC32();
+            crc32.update(data, 0, data.length);
+            this.crc = crc32.getValue();
+        }
+    }
+
+    private JpegZipExporter() {
+    }
+
+    /**
+     * Exports {@code pages} as page_001.jpg, page_002.jpg, ... into a ZIP archive written to {@code out}.
+     * Pages that cannot be decoded are written as empty entries. The stream is finished but not closed.
+     *
+     * @param context  application context
+     * @param pages    pages in archive order
+     * @param options  export options applied to every page (if null a default instance is used)
+     * @param out      target stream, e.g. opened via the Storage Access Framework
+     * @param listener optional progress listener
+     * @throws IOException if writing fails or a page cannot be encoded
+     */
+    public static void export(Context context,
+                              List<Page> pages,
+                              JpegExportOptions options,
+                              OutputStream out,
+                              @Nullable ProgressListener listener) throws IOException {
+        if (context == null || pages == null || out == null) throw new IllegalArgumentException("invalid arguments");
+        final JpegExportOptions opts = options != null ? options : new JpegExportOptions();
+        final int total = pages.size();
+        final int workers = computeWorkerCount(pages);
+        Log.d(TAG, "Exporting " + total + " pages with " + workers + " worker(s)");
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "jpeg-zip-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        ArrayDeque<Future<EncodedPage>> pending = new ArrayDeque<>();
+        ZipOutputStream zos = new ZipOutputStream(out);
+        zos.setMethod(ZipOutputStream.STORED);
+        try {
+            int submitted = 0;
+            for (int written = 0; written < total; written++) {
+                // Keep the window full: one page per worker plus the one being written
+                while (submitted < total && pending.size() < workers + 1) {
+                    final Page page = pages.get(submitted);
+                    final int index = submitted;
+                    pending.add(pool.submit(() -> encodePage(context, page, opts, index)));
+                    submitted++;
+                }
+                EncodedPage encoded = await(pending.poll());
+                ZipEntry entry = new ZipEntry(String.format(Locale.getDefault(), "page_%03d.jpg", written + 1));
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(encoded.data.length);
+                entry.setCompressedSize(encoded.data.length);
+                entry.setCrc(encoded.crc);
+                zos.putNextEntry(entry);
+                zos.write(encoded.data);
+                zos.closeEntry();
+                if (listener != null) listener.onPageWritten(written + 1, total);
+            }
+            zos.finish();
+            zos.flush();
+        } finally {
+            for (Future<EncodedPage> f : pending) f.cancel(true);
+            pool.shutdownNow();
+        }
+    }
+
+    private static EncodedPage await(Future<EncodedPage> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("ZIP export interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            throw new IOException("Page encoding failed: " + (cause != null ? cause.getMessage() : e.getMessage()), cause);
+        }
+    }
+
+    /**
+     * Worker stage: decodes, rotates and encodes one page into a buffer.
+     */
+    private static EncodedPage encodePage(Context context, Page page, JpegExportOptions options, int index) throws IOException {
+        File cacheSource = (page.bitmap == null && page.filePath != null) ? new File(page.filePath) : null;
+        String variant = cacheSource != null ? DerivedPageCache.jpegVariant(page.rotationDeg, options) : null;
+        if (variant != null) {
+            byte[] cached = DerivedPageCache.get(cacheSource, variant);
+            if (cached != null) return new EncodedPage(cached);
+        }
+
+        Bitmap base = page.bitmap;
+        if (base == null && page.filePath != null) {
+            try {
+                base = BitmapFactory.decodeFile(page.filePath);
+            } catch (Throwable ignore) {
+            }
+        }
+        if (base == null || base.isRecycled()) {
+            // Nothing to write for this page
+            return new EncodedPage(new byte[0]);
+        }
+        Bitmap pageBmp = base;
+        if (page.rotationDeg != 0) {
+            try {
+                Matrix m = new Matrix();
+                m.postRotate(page.rotationDeg);
+                pageBmp = Bitmap.createBitmap(base, 0, 0, base.getWidth(), base.getHeight(), m, true);
+            } catch (Throwable t) {
+                // keep unrotated page
+            }
+        }
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(Math.max(64 * 1024, pageBmp.getWidth() * pageBmp.getHeight() / 8));
+            if (!JpegExporter.exportToStream(context, pageBmp, options, bos)) {
+                throw new IOException("Failed to encode page " + (index + 1));
+            }
+            byte[] data = bos.toByteArray();
+            if (variant != null) DerivedPageCache.put(cacheSource, variant, data);
+            return new EncodedPage(data);
+        } finally {
+            if (pageBmp != page.bitmap && pageBmp != base) recycleQuietly(pageBmp);
+            if (base != page.bitmap) recycleQuietly(base);
+        }
+    }
+
+    /**
+     * Number of parallel encoders: bounded by cores and by the heap, assuming each worker needs the
+     * decoded page, its rotated copy and the OpenCV working buffers (about three ARGB copies).
+     */
+    private static int computeWorkerCount(List<Page> pages) {
+        int cores = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        int workers = Math.min(MAX_WORKERS, Math.min(cores, pages.size()));
+        long pageBytes = estimatePageBytes(pages.isEmpty() ? null : pages.get(0));
+        if (pageBytes > 0) {
+            Runtime rt = Runtime.getRuntime();
+            long available = rt.maxMemory() - (rt.totalMemory() - rt.freeMemory());
+            long perWorker = pageBytes * 3;
+            workers = (int) Math.min(workers, Math.max(1, (available / 2) / perWorker));
+        }
+        return Math.max(1, workers);
+    }
+
+    private static long estimatePageBytes(Page page) {
+        if (page == null) return 0;
+        if (page.bitmap != null) return (long) page.bitmap.getWidth() * page.bitmap.getHeight() * 4;
+        if (page.filePath == null) return 0;
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(page.filePath, bounds);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) return 0;
+        return (long) bounds.outWidth * bounds.outHeight * 4;
+    }
+
+    private static void recycleQuietly(Bitmap bmp) {
+        if (bmp == null) return;
+        try {
+            bmp.recycle();
+        } catch (Throwable ignore) {
+        }
+    }
+}
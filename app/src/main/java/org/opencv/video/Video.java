@@ -0,0 +1,108 @@
+//
+// Hand-maintained subset of the bindings that OpenCV 4.12 generates for the video module
+// (gen_opencv_java_source). Only the sparse optical flow used by CornerTracker is kept. The natives are
+// exported by libopencv_java4.so as built by scripts/build_opencv_android.sh with BUILD_opencv_video=ON.
+// Keep the signatures in sync with the generated file when updating OpenCV.
+//
+package org.opencv.video;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.MatOfFloat;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.Size;
+import org.opencv.core.TermCriteria;
+
+// C++: class Video
+
+public class Video {
+
+    // C++: enum <unnamed>
+    public static final int
+            OPTFLOW_USE_INITIAL_FLOW = 4,
+            OPTFLOW_LK_GET_MIN_EIGENVALS = 8,
+            OPTFLOW_FARNEBACK_GAUSSIAN = 256;
+
+
+    //
+    // C++:  void cv::calcOpticalFlowPyrLK(Mat prevImg, Mat nextImg, vector_Point2f prevPts, vector_Point2f& nextPts, vector_uchar& status, vector_float& err, Size winSize = Size(21,21), int maxLevel = 3, TermCriteria criteria = TermCriteria(TermCriteria::COUNT+TermCriteria::EPS, 30, 0.01), int flags = 0, double minEigThreshold = 1e-4)
+    //
+
+    /**
+     * Calculates an optical flow for a sparse feature set using the iterative Lucas-Kanade method with
+     * pyramids.
+     *
+     * @param prevImg first 8-bit input image or pyramid
+     * @param nextImg second input image or pyramid of the same size and the same type as prevImg
+     * @param prevPts vector of 2D points for which the flow needs to be found
+     * @param nextPts output vector of 2D points containing the calculated new positions of input features in
+     * the second image
+     * @param status output status vector; each element is set to 1 if the flow for the corresponding feature
+     * has been found, otherwise 0
+     * @param err output vector of errors; each element is set to an error for the corresponding feature
+     * @param winSize size of the search window at each pyramid level
+     * @param maxLevel 0-based maximal pyramid level number
+     * @param criteria termination criteria of the iterative search algorithm
+     * @param flags operation flags: OPTFLOW_USE_INITIAL_FLOW, OPTFLOW_LK_GET_MIN_EIGENVALS
+     * @param minEigThreshold minimum eigen value of the 2x2 normal matrix below which a feature is filtered out
+     */
+    public static void calcOpticalFlowPyrLK(Mat prevImg, Mat nextImg, MatOfPoint2f prevPts, MatOfPoint2f nextPts, MatOfByte status, MatOfFloat err, Size winSize, int maxLevel, TermCriteria criteria, int flags, double minEigThreshold) {
+        Mat prevPts_mat = prevPts;
+        Mat nextPts_mat = nextPts;
+        Mat status_mat = status;
+        Mat err_mat = err;
+        calcOpticalFlowPyrLK_0(prevImg.nativeObj, nextImg.nativeObj, prevPts_mat.nativeObj, nextPts_mat.nativeObj, status_mat.nativeObj, err_mat.nativeObj, winSize.width, winSize.height, maxLevel, criteria.type, criteria.maxCount, criteria.epsilon, flags, minEigThreshold);
+    }
+
+    public static void calcOpticalFlowPyrLK(Mat prevImg, Mat nextImg, MatOfPoint2f prevPts, MatOfPoint2f nextPts, MatOfByte status, MatOfFloat err, Size winSize, int maxLevel, TermCriteria criteria, int flags) {
+        Mat prevPts_mat = prevPts;
+        Mat nextPts_mat = nextPts;
+        Mat status_mat = status;
+        Mat err_mat = err;
+        calcOpticalFlowPyrLK_1(prevImg.nativeObj, nextImg.nativeObj, prevPts_mat.nativeObj, nextPts_mat.nativeObj, status_mat.nativeObj, err_mat.nativeObj, winSize.width, winSize.height, maxLevel, criteria.type, criteria.maxCount, criteria.epsilon, flags);
+    }
+
+    public static void calcOpticalFlowPyrLK(Mat prevImg, Mat nextImg, MatOfPoint2f prevPts, MatOfPoint2f nextPts, MatOfByte status, MatOfFloat err, Size winSize, int maxLevel, TermCriteria criteria) {
+        Mat prevPts_mat = prevPts;
+        Mat nextPts_mat = nextPts;
+        Mat status_mat = status;
+        Mat err_mat = err;
+        calcOpticalFlowPyrLK_2(prevImg.nativeObj, nextImg.nativeObj, prevPts_mat.nativeObj, nextPts_mat.nativeObj, status_mat.nativeObj, err_mat.nativeObj, winSize.width, winSize.height, maxLevel, criteria.type, criteria.maxCount, criteria.epsilon);
+    }
+
+    public static void calcOpticalFlowPyrLK(Mat prevImg, Mat nextImg, MatOfPoint2f prevPts, MatOfPoint2f nextPts, MatOfByte status, MatOfFloat err, Size winSize, int maxLevel) {
+        Mat prevPts_mat = prevPts;
+        Mat nextPts_mat = nextPts;
+        Mat status_mat = status;
+        Mat err_mat = err;
+        calcOpticalFlowPyrLK_3(prevImg.nativeObj, nextImg.nativeObj, prevPts_mat.nativeObj, nextPts_mat.nativeObj, status_mat.nativeObj, err_mat.nativeObj, winSize.width, winSize.height, maxLevel);
+    }
+
+    public static void calcOpticalFlowPyrLK(Mat prevImg, Mat nextImg, MatOfPoint2f prevPts, MatOfPoint2f nextPts, MatOfByte status, MatOfFloat err, Size winSize) {
+        Mat prevPts_mat = prevPts;
+        Mat nextPts_mat = nextPts;
+        Mat status_mat = status;
+        Mat err_mat = err;
+        calcOpticalFlowPyrLK_4(prevImg.nativeObj, nextImg.nativeObj, prevPts_mat.nativeObj, nextPts_mat.nativeObj, status_mat.nativeObj, err_mat.nativeObj, winSize.width, winSize.height);
+    }
+
+    public static void calcOpticalFlowPyrLK(Mat prevImg, Mat nextImg, MatOfPoint2f prevPts, MatOfPoint2f nextPts, MatOfByte status, MatOfFloat err) {
+        Mat prevPts_mat = prevPts;
+        Mat nextPts_mat = nextPts;
+        Mat status_mat = status;
+        Mat err_mat = err;
+        calcOpticalFlowPyrLK_5(prevImg.nativeObj, nextImg.nativeObj, prevPts_mat.nativeObj, nextPts_mat.nativeObj, status_mat.nativeObj, err_mat.nativeObj);
+    }
+
+
+
+
+    // C++:  void cv::calcOpticalFlowPyrLK(Mat prevImg, Mat nextImg, vector_Point2f prevPts, vector_Point2f& nextPts, vector_uchar& status, vector_float& err, Size winSize = Size(21,21), int maxLevel = 3, TermCriteria criteria = TermCriteria(TermCriteria::COUNT+TermCriteria::EPS, 30, 0.01), int flags = 0, double minEigThreshold = 1e-4)
+    private static native void calcOpticalFlowPyrLK_0(long prevImg_nativeObj, long nextImg_nativeObj, long prevPts_mat_nativeObj, long nextPts_mat_nativeObj, long status_mat_nativeObj, long err_mat_nativeObj, double winSize_width, double winSize_height, int maxLevel, int criteria_type, int criteria_maxCount, double criteria_epsilon, int flags, double minEigThreshold);
+    private static native void calcOpticalFlowPyrLK_1(long prevImg_nativeObj, long nextImg_nativeObj, long prevPts_mat_nativeObj, long nextPts_mat_nativeObj, long status_mat_nativeObj, long err_mat_nativeObj, double winSize_width, double winSize_height, int maxLevel, int criteria_type, int criteria_maxCount, double criteria_epsilon, int flags);
+    private static native void calcOpticalFlowPyrLK_2(long prevImg_nativeObj, long nextImg_nativeObj, long prevPts_mat_nativeObj, long nextPts_mat_nativeObj, long status_mat_nativeObj, long err_mat_nativeObj, double winSize_width, double winSize_height, int maxLevel, int criteria_type, int criteria_maxCount, double criteria_epsilon);
+    private static native void calcOpticalFlowPyrLK_3(long prevImg_nativeObj, long nextImg_nativeObj, long prevPts_mat_nativeObj, long nextPts_mat_nativeObj, long status_mat_nativeObj, long err_mat_nativeObj, double winSize_width, double winSize_height, int maxLevel);
+    private static native void calcOpticalFlowPyrLK_4(long prevImg_nativeObj, long nextImg_nativeObj, long prevPts_mat_nativeObj, long nextPts_mat_nativeObj, long status_mat_nativeObj, long err_mat_nativeObj, double winSize_width, double winSize_height);
+    private static native void calcOpticalFlowPyrLK_5(long prevImg_nativeObj, long nextImg_nativeObj, long prevPts_mat_nativeObj, long nextPts_mat_nativeObj, long status_mat_nativeObj, long err_mat_nativeObj);
+
+}
@@ -147,4 +147,173 @@ public class CompletedScansRegistryTest {
         assertNull(map.get(id2).ocrFormat());
         assertEquals("/tmp/" + id2 + ".txt", map.get(id2).ocrTextPath());
     }
+
+    @Test
+    public void testJournalReplayedByNewInstance() throws Exception {
+        long now = System.currentTimeMillis();
+        registry.insert(make(now, "id-1"));
+        registry.insert(make(now + 1, "id-2"));
+        registry.remove("id-1");
+        assertTrue(new File(tempDir, "completed_scans.json.journal").exists());
+
+        List<CompletedScan> all = new CompletedScansRegistry(indexFile).listAllOrderedByDateDesc();
+        assertEquals(1, all.size());
+        assertEquals("id-2", all.get(0).id());
+    }
+
+    @Test
+    public void testTornJournalRecordIgnored() throws Exception {
+        registry.insert(make(System.currentTimeMillis(), "id-ok"));
+        try (FileOutputStream fos = new FileOutputStream(new File(tempDir, "completed_scans.json.journal"), true)) {
+            fos.write("{\"op\":\"put\",\"entry\":{\"id\":\"id-torn".getBytes(StandardCharsets.UTF_8));
+        }
+        CompletedScansRegistry reopened = new CompletedScansRegistry(indexFile);
+        assertEquals(1, reopened.listAllOrderedByDateDesc().size());
+
+        reopened.insert(make(System.currentTimeMillis(), "id-next"));
+        assertEquals(2, new CompletedScansRegistry(indexFile).listAllOrderedByDateDesc().size());
+    }
+
+    @Test
+    public void testCompactionFoldsJournalIntoSnapshot() throws Exception {
+        long now = System.currentTimeMillis();
+        int n = JournalRegistryStore.COMPACT_MIN_RECORDS + 10;
+        for (int i = 0; i < n; i++) {
+            registry.insert(make(now + i, "id-" + i));
+            registry.remove("id-" + i);
+        }
+        registry.insert(make(now, "id-last"));
+        registry.compact();
+        assertFalse(new File(tempDir, "completed_scans.json.journal").exists());
+
+        List<CompletedScan> all = new CompletedScansRegistry(indexFile).listAllOrderedByDateDesc();
+        assertEquals(1, all.size());
+        assertEquals("id-last", all.get(0).id());
+    }
+
+    @Test
+    public void testGetByIdAndUpdate() throws Exception {
+        long now = System.currentTimeMillis();
+        registry.insert(make(now, "id-u"));
+        assertNull(registry.getById("missing"));
+        assertEquals("id-u", registry.getById("id-u").id());
+
+        CompletedScan updated = registry.update("id-u", s -> new CompletedScan(
+                s.id(), s.filePath(), s.rotationDeg(), "/tmp/words.bin", "words_bin",
+                s.thumbPath(), s.createdAt(), s.widthPx(), s.heightPx(), null));
+        assertNotNull(updated);
+        assertEquals("words_bin", registry.getById("id-u").ocrFormat());
+        assertNull(registry.update("missing", s -> s));
+
+        CompletedScan reopened = new CompletedScansRegistry(indexFile).getById("id-u");
+        assertEquals("/tmp/words.bin", reopened.ocrTextPath());
+    }
+
+    @Test
+    public void testPagedListFollowsCreatedAt() throws Exception {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 10; i++) registry.insert(make(now + i * 10, "id-" + i));
+        // moving an entry in time keeps the date index consistent
+        registry.update("id-0", s -> new CompletedScan(s.id(), s.filePath(), s.rotationDeg(), null, null,
+                null, now + 1000, s.widthPx(), s.heightPx(), null));
+
+        List<CompletedScan> first = registry.list(0, 3, CompletedScansRegistry.SortOrder.CREATED_DESC);
+        assertEquals(3, first.size());
+        assertEquals("id-0", first.get(0).id());
+        assertEquals("id-9", first.get(1).id());
+        List<CompletedScan> last = registry.list(8, 3, CompletedScansRegistry.SortOrder.CREATED_DESC);
+        assertEquals(2, last.size());
+        assertEquals("id-1", last.get(1).id());
+        assertEquals("id-1", registry.list(0, 1, CompletedScansRegistry.SortOrder.CREATED_ASC).get(0).id());
+        assertEquals(0, registry.list(20, 5, CompletedScansRegistry.SortOrder.CREATED_ASC).size());
+        assertEquals(10, registry.size());
+    }
+
+    @Test
+    public void testCursorPagingIgnoresConcurrentChanges() throws Exception {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 10; i++) registry.insert(make(now + i * 10, "id-" + i));
+
+        List<CompletedScan> first = registry.list(0, 4, CompletedScansRegistry.SortOrder.CREATED_DESC);
+        assertEquals("id-6", first.get(3).id());
+        // A new scan at the top and a removed one on the first page would shift an offset
+        registry.insert(make(now + 500, "id-new"));
+        registry.remove("id-8");
+        CompletedScan last = first.get(3);
+        List<CompletedScan> second = registry.listAfter(last.createdAt(), last.id(), 4, CompletedScansRegistry.SortOrder.CREATED_DESC);
+        assertEquals(4, second.size());
+        assertEquals("id-5", second.get(0).id());
+        assertEquals("id-2", second.get(3).id());
+
+        // The cursor scan itself may be gone
+        registry.remove("id-2");
+        List<CompletedScan> third = registry.listAfter(now + 20, "id-2", 4, CompletedScansRegistry.SortOrder.CREATED_DESC);
+        assertEquals(2, third.size());
+        assertEquals("id-1", third.get(0).id());
+        assertEquals("id-0", third.get(1).id());
+
+        List<CompletedScan> asc = registry.listAfter(now + 30, "id-3", 2, CompletedScansRegistry.SortOrder.CREATED_ASC);
+        assertEquals("id-4", asc.get(0).id());
+        assertEquals("id-5", asc.get(1).id());
+    }
+
+    @Test
+    public void testBatchCommitsAsSingleJournalRecord() throws Exception {
+        long now = System.currentTimeMillis();
+        registry.insert(make(now, "id-keep"));
+        registry.insert(make(now + 1, "id-drop"));
+        File journal = new File(tempDir, "completed_scans.json.journal");
+        long before = java.nio.file.Files.readAllLines(journal.toPath()).size();
+
+        int changed = registry.runBatch(b -> {
+            b.remove("id-drop");
+            for (int i = 0; i < 20; i++) b.insert(make(now + 10 + i, "id-new-" + i));
+            b.update("id-keep", s -> new CompletedScan(s.id(), "/tmp/moved.jpg", s.rotationDeg(), null, null,
+                    null, s.createdAt(), s.widthPx(), s.heightPx(), null));
+            assertNull(b.get("id-drop"));
+        });
+        assertEquals(22, changed);
+        assertEquals(before + 1, java.nio.file.Files.readAllLines(journal.toPath()).size());
+
+        CompletedScansRegistry reopened = new CompletedScansRegistry(indexFile);
+        assertEquals(21, reopened.size());
+        assertNull(reopened.getById("id-drop"));
+        assertEquals("/tmp/moved.jpg", reopened.getById("id-keep").filePath());
+    }
+
+    @Test
+    public void testFailedBatchAppliesNothing() throws Exception {
+        registry.insert(make(System.currentTimeMillis(), "id-a"));
+        try {
+            registry.runBatch(b -> {
+                b.remove("id-a");
+                throw new IllegalStateException("abort");
+            });
+            fail("expected exception");
+        } catch (IllegalStateException expected) {
+            // ok
+        }
+        assertNotNull(registry.getById("id-a"));
+    }
+
+    @Test
+    public void testReadOnlyFallbackUsesMigratedSnapshot() throws Exception {
+        registry.insert(make(1000L, "id-m"));
+        registry.compact();
+        // as left behind by the import into the catalog
+        assertTrue(indexFile.renameTo(new File(tempDir, "completed_scans.json.migrated")));
+
+        CompletedScansRegistry fallback = new CompletedScansRegistry(ScanCatalog.readOnlyFallback(indexFile));
+        assertTrue(fallback.isReadOnly());
+        assertNotNull(fallback.getById("id-m"));
+        try {
+            fallback.insert(make(2000L, "id-n"));
+            fail("expected IOException");
+        } catch (java.io.IOException expected) {
+            // ok
+        }
+        assertNull(fallback.getById("id-n"));
+        assertFalse(indexFile.exists());
+        assertFalse(registry.isReadOnly());
+    }
 }
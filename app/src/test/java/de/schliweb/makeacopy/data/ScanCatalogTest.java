@@ -0,0 +1,23 @@
+package de.schliweb.makeacopy.data;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ScanCatalogTest {
+
+    @Test
+    public void testMatchQueryQuotesTermsAndPrefixesLast() {
+        assertEquals("\"invoice\" \"2024*\"", ScanCatalog.matchQuery("  invoice 2024"));
+        assertEquals("\"Straße\" \"Köln*\"", ScanCatalog.matchQuery("Straße, Köln"));
+    }
+
+    @Test
+    public void testMatchQueryNeutralizesSyntax() {
+        assertEquals("\"a\" \"OR\" \"b*\"", ScanCatalog.matchQuery("a OR \"b\""));
+        assertEquals("\"x\" \"y*\"", ScanCatalog.matchQuery("x* -y"));
+        assertNull(ScanCatalog.matchQuery("  *\"- "));
+        assertNull(ScanCatalog.matchQuery(null));
+    }
+}
@@ -0,0 +1,77 @@
+package de.schliweb.makeacopy.utils;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class HocrWordsTest {
+
+    private static List<RecognizedWord> parse(String hocr, Integer defaultConf) throws Exception {
+        List<RecognizedWord> words = new ArrayList<>();
+        int n = HocrWords.parse(new StringReader(hocr), defaultConf, words::add);
+        assertEquals(words.size(), n);
+        return words;
+    }
+
+    @Test
+    public void parsesWordsWithBoxAndConfidence() throws Exception {
+        String hocr = "<div class='ocr_page'><span class='ocr_line' title='bbox 0 0 100 20'>"
+                + "<span class='ocrx_word' id='w1' title='bbox 10 20 50 35; x_wconf 91'>Hello</span> "
+                + "<span class=\"ocrx_word\" title=\"bbox 60 20 90 35; x_wconf 87\">World</span>"
+                + "</span></div>";
+        List<RecognizedWord> words = parse(hocr, null);
+        assertEquals(2, words.size());
+        assertEquals("Hello", words.get(0).getText());
+        assertEquals(10f, words.get(0).getBoundingBox().left, 0f);
+        assertEquals(35f, words.get(0).getBoundingBox().bottom, 0f);
+        assertEquals(91f, words.get(0).getConfidence(), 0f);
+        assertEquals("World", words.get(1).getText());
+        assertEquals(87f, words.get(1).getConfidence(), 0f);
+    }
+
+    @Test
+    public void stripsNestedMarkup() throws Exception {
+        String hocr = "<span class='ocrx_word' title='bbox 1 2 3 4'><strong><em>Bold</em></strong></span>"
+                + "<span class='ocrx_word' title='bbox 5 6 7 8'><span class='x'>In</span>ner</span>"
+                + "<span class='ocrx_word' title='bbox 9 9 9 9'>Next</span>";
+        List<RecognizedWord> words = parse(hocr, null);
+        assertEquals(3, words.size());
+        assertEquals("Bold", words.get(0).getText());
+        assertEquals("Inner", words.get(1).getText());
+        assertEquals("Next", words.get(2).getText());
+    }
+
+    @Test
+    public void resolvesEntities() throws Exception {
+        String hocr = "<span class='ocrx_word' title='bbox 0 0 1 1'>Tom&amp;Jerry</span>"
+                + "<span class='ocrx_word' title='bbox 0 0 1 1'>&lt;a&gt;&nbsp;&quot;b&quot;</span>";
+        List<RecognizedWord> words = parse(hocr, null);
+        assertEquals(2, words.size());
+        assertEquals("Tom&Jerry", words.get(0).getText());
+        assertEquals("<a> \"b\"", words.get(1).getText());
+    }
+
+    @Test
+    public void allowsGreaterThanInQuotedAttributes() throws Exception {
+        String hocr = "<span class='ocrx_word' data-x='a>b' title=\"bbox 1 2 3 4; x_wconf 50\">Word</span>";
+        List<RecognizedWord> words = parse(hocr, null);
+        assertEquals(1, words.size());
+        assertEquals("Word", words.get(0).getText());
+        assertEquals(50f, words.get(0).getConfidence(), 0f);
+    }
+
+    @Test
+    public void skipsWordsWithoutBoxOrText() throws Exception {
+        String hocr = "<span class='ocrx_word' title='x_wconf 90'>NoBox</span>"
+                + "<span class='ocrx_word' title='bbox 1 2 3 4'>  </span>"
+                + "<span class='ocrx_word' title='bbox 1 2 3 4'>Kept</span>";
+        List<RecognizedWord> words = parse(hocr, 42);
+        assertEquals(1, words.size());
+        assertEquals("Kept", words.get(0).getText());
+        assertEquals(42f, words.get(0).getConfidence(), 0f);
+    }
+}
@@ -0,0 +1,75 @@
+package de.schliweb.makeacopy.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class JpegHeaderTest {
+
+    private static byte[] jpeg(int sofMarker, int width, int height, int components) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(0xFF);
+        out.write(0xD8); // SOI
+        // APP0 with a 4-byte payload
+        out.write(0xFF);
+        out.write(0xE0);
+        out.write(0x00);
+        out.write(0x06);
+        out.write('J');
+        out.write('F');
+        out.write('I');
+        out.write('F');
+        // SOF
+        out.write(0xFF);
+        out.write(sofMarker);
+        int len = 8 + 3 * components;
+        out.write(len >> 8);
+        out.write(len & 0xFF);
+        out.write(8);
+        out.write(height >> 8);
+        out.write(height & 0xFF);
+        out.write(width >> 8);
+        out.write(width & 0xFF);
+        out.write(components);
+        for (int i = 0; i < components; i++) {
+            out.write(i + 1);
+            out.write(0x11);
+            out.write(0);
+        }
+        out.write(0xFF);
+        out.write(0xD9); // EOI
+        return out.toByteArray();
+    }
+
+    @Test
+    public void readsBaselineHeader() throws Exception {
+        JpegHeader h = JpegHeader.read(new ByteArrayInputStream(jpeg(0xC0, 2480, 3508, 3)));
+        assertNotNull(h);
+        assertEquals(2480, h.width);
+        assertEquals(3508, h.height);
+        assertEquals(3, h.components);
+        assertFalse(h.progressive);
+    }
+
+    @Test
+    public void readsProgressiveGrayHeader() throws Exception {
+        JpegHeader h = JpegHeader.read(new ByteArrayInputStream(jpeg(0xC2, 640, 480, 1)));
+        assertNotNull(h);
+        assertEquals(1, h.components);
+        assertTrue(h.progressive);
+    }
+
+    @Test
+    public void rejectsUnsupportedOrInvalidData() throws Exception {
+        assertNull(JpegHeader.read(new ByteArrayInputStream(jpeg(0xC3, 100, 100, 3)))); // lossless
+        assertNull(JpegHeader.read(new ByteArrayInputStream(new byte[]{(byte) 0x89, 'P', 'N', 'G'})));
+        assertNull(JpegHeader.read(new ByteArrayInputStream(new byte[]{(byte) 0xFF, (byte) 0xD8})));
+    }
+}
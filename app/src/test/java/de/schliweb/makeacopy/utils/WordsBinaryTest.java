@@ -0,0 +1,88 @@
+package de.schliweb.makeacopy.utils;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class WordsBinaryTest {
+
+    @Test
+    public void roundtripIntegralBoxes() throws Exception {
+        String[] texts = {"Hello", "Wörld", "Hello"};
+        float[] boxes = {10, 20, 50, 35, 60, 20, 110, 35, 10, 40, 50, 55};
+        float[] conf = {0.9f, 0.5f, 1f};
+        byte[] data = WordsBinary.encode(texts, boxes, conf);
+
+        WordsBinary.Reader r = WordsBinary.wrap(ByteBuffer.wrap(data));
+        assertEquals(3, r.size());
+        assertEquals("Hello", r.text(0));
+        assertEquals("Wörld", r.text(1));
+        assertEquals("Hello", r.text(2));
+        assertEquals(60f, r.left(1), 0f);
+        assertEquals(55f, r.bottom(2), 0f);
+        assertEquals(0.9f, r.confidence(0), 1e-4f);
+        assertEquals(1f, r.confidence(2), 0f);
+    }
+
+    @Test
+    public void fractionalBoxesUseFloats() throws Exception {
+        byte[] data = WordsBinary.encode(new String[]{"x"}, new float[]{1.5f, 2.25f, 70000f, 4f}, new float[]{0.25f});
+        WordsBinary.Reader r = WordsBinary.wrap(ByteBuffer.wrap(data));
+        assertEquals(1.5f, r.left(0), 0f);
+        assertEquals(2.25f, r.top(0), 0f);
+        assertEquals(70000f, r.right(0), 0f);
+        assertEquals(0.25f, r.confidence(0), 1e-4f);
+    }
+
+    @Test
+    public void tesseractConfidencesAreNormalized() throws Exception {
+        byte[] data = WordsBinary.encode(new String[]{"a", "b", "c", "d"}, new float[16], new float[]{87f, 42.5f, 100f, 150f});
+        WordsBinary.Reader r = WordsBinary.wrap(ByteBuffer.wrap(data));
+        assertEquals(0.87f, r.confidence(0), 1e-4f);
+        assertEquals(0.425f, r.confidence(1), 1e-4f);
+        assertEquals(1f, r.confidence(2), 0f);
+        assertEquals(1f, r.confidence(3), 0f);
+    }
+
+    @Test
+    public void duplicateTextsShareStringTable() {
+        String[] many = new String[100];
+        java.util.Arrays.fill(many, "repeated");
+        byte[] dup = WordsBinary.encode(many, new float[400], new float[100]);
+        String[] distinct = new String[100];
+        for (int i = 0; i < 100; i++) distinct[i] = "repeated" + i;
+        byte[] uniq = WordsBinary.encode(distinct, new float[400], new float[100]);
+        assertTrue(dup.length < uniq.length);
+    }
+
+    @Test
+    public void openMapsFile() throws Exception {
+        File tmp = File.createTempFile("words", ".bin");
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            fos.write(WordsBinary.encode(new String[]{"A", "B"}, new float[]{1, 2, 3, 4, 5, 6, 7, 8}, new float[]{1, 1}));
+        }
+        WordsBinary.Reader r = WordsBinary.open(tmp);
+        assertEquals(2, r.size());
+        assertEquals("B", r.text(1));
+        assertEquals(8f, r.bottom(1), 0f);
+        //noinspection ResultOfMethodCallIgnored
+        tmp.delete();
+    }
+
+    @Test
+    public void rejectsJson() {
+        try {
+            WordsBinary.wrap(ByteBuffer.wrap("[{\"text\":\"X\"}]                                ".getBytes()));
+            fail("expected IOException");
+        } catch (IOException expected) {
+            // ok
+        }
+    }
+}